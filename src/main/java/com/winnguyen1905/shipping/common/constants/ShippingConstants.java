@@ -57,4 +57,8 @@ public final class ShippingConstants {
     // Value limits (in currency)
     public static final BigDecimal MAX_DECLARED_VALUE = new BigDecimal("50000.00");
     public static final BigDecimal MIN_INSURANCE_VALUE = new BigDecimal("100.00");
+    
+    // Rate calculation surcharges (in basis points, 1 bp = 0.01%)
+    public static final int INSURANCE_RATE_BPS = 100; // 1% of declared value
+    public static final int FUEL_SURCHARGE_BPS = 1000; // 10% of the rate before fees
 } 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.winnguyen1905.shipping.common.enums;
+
+/**
+ * Enumeration of how old a cached shipping quote a caller is willing to accept
+ */
+public enum QuoteFreshness {
+    FRESH("Always query the providers; the result still refreshes the cache"),
+    CACHED("Serve cached quotes younger than the soft TTL, otherwise query the providers"),
+    STALE_WHILE_REVALIDATE("Serve cached quotes up to the hard TTL, refreshing them in the background once past the soft TTL");
+    
+    private final String description;
+    
+    QuoteFreshness(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
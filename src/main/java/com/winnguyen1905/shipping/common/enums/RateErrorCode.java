@@ -0,0 +1,21 @@
+package com.winnguyen1905.shipping.common.enums;
+
+/**
+ * Enumeration of the reasons a single rate calculation in a bulk request can fail
+ */
+public enum RateErrorCode {
+    INVALID_REQUEST("The request failed validation"),
+    NO_ZONE("No shipping zone covers the destination address"),
+    NO_METHODS("No shipping method accepts the shipment"),
+    CALCULATION_FAILED("Unexpected error while calculating rates");
+    
+    private final String description;
+    
+    RateErrorCode(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
@@ -13,10 +13,13 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
 
 @Configuration
@@ -41,7 +44,12 @@ public class ShippingQuoteConfig {
 
   @Bean
   public RestTemplate restTemplate() {
-    return new RestTemplate();
+    // Pooled JDK client with timeouts instead of the unpooled, unbounded default
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(Math.min(5, providerTimeoutSeconds)))
+        .build());
+    requestFactory.setReadTimeout(Duration.ofSeconds(providerTimeoutSeconds));
+    return new RestTemplate(requestFactory);
   }
 
   @Bean
@@ -62,6 +70,14 @@ public class ShippingQuoteConfig {
     return template;
   }
 
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+    // Carries quote near-cache invalidations between nodes
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    return container;
+  }
+
   @Bean
   public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
     RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
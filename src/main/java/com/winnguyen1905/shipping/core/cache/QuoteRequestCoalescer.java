@@ -0,0 +1,298 @@
+package com.winnguyen1905.shipping.core.cache;
+
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of quote fan-outs keyed by the canonical quote key.
+ *
+ * The first caller for a key runs the loader; concurrent callers with the same key on
+ * this node wait for its result instead of calling the providers again. With
+ * {@code shipping.cache.single-flight.distributed.enabled} the leader also takes a short
+ * Redis lock, and leaders on other nodes poll the quote cache while the lock is held
+ * rather than fanning out themselves. Waiters that outlast the wait timeout, or find
+ * the lock released without a cached result, load the quotes on their own. Only a
+ * cached quote that is still within the soft TTL, or that was written after the wait
+ * started, is taken from another node.
+ *
+ * Callers that must not be served from the cache (FRESH requests) only share a load
+ * with other such callers on this node and never pick quotes up from the cache.
+ *
+ * Background refreshes of stale quotes go through the same single-flight path on a
+ * small bounded executor; at most one refresh per key is queued and refreshes that do
+ * not fit in the queue are skipped, since the stale quote has already been served.
+ */
+@Component
+@Slf4j
+public class QuoteRequestCoalescer {
+
+  private static final String LOCK_PREFIX = "shipping_quotes:lock:";
+  private static final String FRESH_PREFIX = "fresh:";
+  private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+      Long.class);
+
+  private final ShippingQuoteCache shippingQuoteCache;
+  private final StringRedisTemplate stringRedisTemplate;
+  private final Map<String, CompletableFuture<ShippingQuoteResponse>> inFlight = new ConcurrentHashMap<>();
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+  private final ThreadPoolExecutor refreshExecutor;
+  private final boolean enabled;
+  private final long waitTimeoutMs;
+  private final boolean distributed;
+  private final Duration lockTtl;
+  private final long pollIntervalMs;
+
+  private final Counter leaders;
+  private final Counter collapsedLocal;
+  private final Counter collapsedRemote;
+  private final Counter refreshesSubmitted;
+  private final Counter refreshesSkipped;
+  private final Counter refreshesFailed;
+
+  public QuoteRequestCoalescer(ShippingQuoteCache shippingQuoteCache, StringRedisTemplate stringRedisTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${shipping.cache.single-flight.enabled:true}") boolean enabled,
+      @Value("${shipping.cache.single-flight.wait-timeout-ms:35000}") long waitTimeoutMs,
+      @Value("${shipping.cache.single-flight.distributed.enabled:false}") boolean distributed,
+      @Value("${shipping.cache.single-flight.distributed.lock-ttl-ms:10000}") long lockTtlMs,
+      @Value("${shipping.cache.single-flight.distributed.poll-interval-ms:100}") long pollIntervalMs,
+      @Value("${shipping.cache.stale-while-revalidate.refresh-threads:2}") int refreshThreads,
+      @Value("${shipping.cache.stale-while-revalidate.refresh-queue-capacity:100}") int refreshQueueCapacity) {
+    this.shippingQuoteCache = shippingQuoteCache;
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.enabled = enabled;
+    this.waitTimeoutMs = waitTimeoutMs;
+    this.distributed = distributed;
+    this.lockTtl = Duration.ofMillis(lockTtlMs);
+    this.pollIntervalMs = Math.max(10, pollIntervalMs);
+
+    this.leaders = callCounter(meterRegistry, "leader");
+    this.collapsedLocal = callCounter(meterRegistry, "collapsed-local");
+    this.collapsedRemote = callCounter(meterRegistry, "collapsed-remote");
+    this.refreshesSubmitted = refreshCounter(meterRegistry, "submitted");
+    this.refreshesSkipped = refreshCounter(meterRegistry, "skipped");
+    this.refreshesFailed = refreshCounter(meterRegistry, "failed");
+    Gauge.builder("shipping.quotes.single-flight.in-flight", inFlight, Map::size)
+        .description("Quote keys with a provider fan-out in progress on this node")
+        .register(meterRegistry);
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(refreshQueueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "quote-refresh-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+    this.refreshExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Return the result of the in-flight load for the key, starting one if there is none
+   */
+  public ShippingQuoteResponse execute(String key, Supplier<ShippingQuoteResponse> loader) {
+    return execute(key, true, loader);
+  }
+
+  /**
+   * Return the result of the in-flight load for the key, starting one if there is none;
+   * without {@code acceptCached} the load is only shared with callers that also bypass the cache
+   */
+  public ShippingQuoteResponse execute(String key, boolean acceptCached, Supplier<ShippingQuoteResponse> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    // Loads that may answer from the cache are not shared with callers that must not
+    String flightKey = acceptCached ? key : FRESH_PREFIX + key;
+    CompletableFuture<ShippingQuoteResponse> leader = new CompletableFuture<>();
+    CompletableFuture<ShippingQuoteResponse> existing = inFlight.putIfAbsent(flightKey, leader);
+    if (existing != null) {
+      collapsedLocal.increment();
+      return await(existing, loader);
+    }
+
+    leaders.increment();
+    try {
+      ShippingQuoteResponse response = distributed && acceptCached ? loadWithLock(key, loader) : loader.get();
+      leader.complete(response);
+      return response;
+    } catch (RuntimeException e) {
+      leader.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(flightKey, leader);
+    }
+  }
+
+  /**
+   * Reload the quotes for the key in the background unless a load is already queued or running
+   */
+  public void refreshInBackground(String key, Supplier<ShippingQuoteResponse> loader) {
+    if (inFlight.containsKey(key) || !refreshing.add(key)) {
+      refreshesSkipped.increment();
+      return;
+    }
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          execute(key, loader);
+        } catch (RuntimeException e) {
+          refreshesFailed.increment();
+          log.warn("Background quote refresh failed: {}", e.getMessage());
+        } finally {
+          refreshing.remove(key);
+        }
+      });
+      refreshesSubmitted.increment();
+    } catch (RejectedExecutionException e) {
+      // Queue full or shutting down; the next stale read tries again
+      refreshing.remove(key);
+      refreshesSkipped.increment();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdown();
+  }
+
+  private ShippingQuoteResponse await(CompletableFuture<ShippingQuoteResponse> existing,
+      Supplier<ShippingQuoteResponse> loader) {
+    try {
+      return existing.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Shipping quote calculation failed", e.getCause());
+    } catch (TimeoutException e) {
+      log.warn("In-flight quote calculation did not finish within {} ms, calculating separately", waitTimeoutMs);
+      return loader.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for shipping quotes", e);
+    }
+  }
+
+  private ShippingQuoteResponse loadWithLock(String key, Supplier<ShippingQuoteResponse> loader) {
+    String lockKey = LOCK_PREFIX + key;
+    String token = UUID.randomUUID().toString();
+    Instant waitStarted = Instant.now();
+    long deadline = waitStarted.toEpochMilli() + waitTimeoutMs;
+
+    while (true) {
+      Boolean acquired;
+      try {
+        acquired = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTtl);
+      } catch (Exception e) {
+        log.warn("Error acquiring quote lock, calculating without it: {}", e.getMessage());
+        return loader.get();
+      }
+
+      if (Boolean.TRUE.equals(acquired)) {
+        try {
+          return loader.get();
+        } finally {
+          releaseLock(lockKey, token);
+        }
+      }
+
+      // Another node is calculating these quotes; pick its result up from the cache
+      ShippingQuoteResponse cached = pollWhileLocked(key, lockKey, waitStarted, deadline);
+      if (cached != null) {
+        collapsedRemote.increment();
+        return cached;
+      }
+      if (System.currentTimeMillis() >= deadline) {
+        log.warn("Quote lock for key {} was held past {} ms, calculating separately", key, waitTimeoutMs);
+        return loader.get();
+      }
+    }
+  }
+
+  /**
+   * Poll the cache until it has usable quotes, the lock is released or the deadline passes
+   */
+  private ShippingQuoteResponse pollWhileLocked(String key, String lockKey, Instant waitStarted, long deadline) {
+    while (System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(pollIntervalMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for shipping quotes", e);
+      }
+      ShippingQuoteResponse cached = shippingQuoteCache.get(key);
+      if (cached != null && isUsable(cached, waitStarted)) {
+        return cached;
+      }
+      try {
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(lockKey))) {
+          return null;
+        }
+      } catch (Exception e) {
+        log.warn("Error checking quote lock: {}", e.getMessage());
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A soft-expired entry is only the lock holder's result if it was quoted after the wait started
+   */
+  private boolean isUsable(ShippingQuoteResponse cached, Instant waitStarted) {
+    return !shippingQuoteCache.isPastSoftTtl(cached)
+        || (cached.getQuotedAt() != null && !cached.getQuotedAt().isBefore(waitStarted));
+  }
+
+  private void releaseLock(String lockKey, String token) {
+    try {
+      stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(lockKey), token);
+    } catch (Exception e) {
+      log.warn("Error releasing quote lock, it will expire on its own: {}", e.getMessage());
+    }
+  }
+
+  private static Counter refreshCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("shipping.quotes.refreshes")
+        .description("Background refreshes of stale shipping quotes")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  private static Counter callCounter(MeterRegistry meterRegistry, String role) {
+    return Counter.builder("shipping.quotes.single-flight.calls")
+        .description("Quote calculations by single-flight role; collapsed calls reused another caller's result")
+        .tag("role", role)
+        .register(meterRegistry);
+  }
+}
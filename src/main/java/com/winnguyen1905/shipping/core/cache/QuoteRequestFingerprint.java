@@ -0,0 +1,149 @@
+package com.winnguyen1905.shipping.core.cache;
+
+import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Canonical cache key for shipping quote requests.
+ *
+ * Only the fields that can change a quote are included: addresses, package weight,
+ * dimensions, type, handling flags, declared value and currencies. Names, contact
+ * details and free-text instructions are left out. Text is trimmed, upper-cased and
+ * whitespace-collapsed; weights and dimensions are rounded up to the configured
+ * granularity and decimals are compared by value, so {@code 1.5} and
+ * {@code 1.50} kg share an entry. The canonical form is length-prefixed field by field
+ * and hashed to 128 bits (truncated SHA-256), so unrelated requests do not collide.
+ * Quotes are rated at the caller's actual weight, so the weight step must not be coarser
+ * than the finest billing step of any provider; the rate cards bill per gram.
+ */
+@Component
+public class QuoteRequestFingerprint {
+
+  private static final String VERSION = "v2";
+  private static final HexFormat HEX = HexFormat.of();
+
+  private final BigDecimal weightGranularity;
+  private final BigDecimal dimensionGranularity;
+
+  public QuoteRequestFingerprint(
+      @Value("${shipping.cache.key.weight-granularity-kg:0.001}") BigDecimal weightGranularity,
+      @Value("${shipping.cache.key.dimension-granularity-cm:0.1}") BigDecimal dimensionGranularity) {
+    this.weightGranularity = weightGranularity;
+    this.dimensionGranularity = dimensionGranularity;
+  }
+
+  /**
+   * 32 hex characters identifying the priced content of the request, prefixed with the key version
+   */
+  public String fingerprint(ShippingQuoteRequest request) {
+    StringBuilder canonical = new StringBuilder(256);
+    append(canonical, request.isSingleVendorRequest() ? "S" : "M");
+    appendText(canonical, request.getPreferredCurrency());
+    append(canonical, request.getRequireInsurance() == null ? null : request.getRequireInsurance().toString());
+    appendAddress(canonical, request.getCustomer() != null ? request.getCustomer().getAddress() : null);
+
+    if (request.isSingleVendorRequest()) {
+      appendAddress(canonical, request.getVendor().getAddress());
+      appendPackage(canonical, request.getPackageInfo());
+    } else if (request.getVendorPackages() != null) {
+      append(canonical, Integer.toString(request.getVendorPackages().size()));
+      for (ShippingQuoteRequest.VendorPackageInfo vendorPackage : request.getVendorPackages()) {
+        // Multi-vendor results are grouped by vendor, so the vendor identity is part of the key
+        append(canonical, vendorPackage.getVendor() != null ? vendorPackage.getVendor().getVendorId() : null);
+        appendAddress(canonical, vendorPackage.getVendor() != null ? vendorPackage.getVendor().getAddress() : null);
+        appendPackage(canonical, vendorPackage.getPackageInfo());
+      }
+    }
+
+    return VERSION + ":" + HEX.formatHex(sha256(canonical.toString()), 0, 16);
+  }
+
+  private void appendAddress(StringBuilder canonical, ShippingQuoteRequest.AddressInfo address) {
+    if (address == null) {
+      append(canonical, null);
+      return;
+    }
+    appendText(canonical, address.getCountry());
+    appendText(canonical, address.getState());
+    appendText(canonical, address.getCity());
+    appendPostal(canonical, address.getZip());
+    appendText(canonical, address.getStreet());
+    appendText(canonical, address.getAddressLine2());
+  }
+
+  private void appendPackage(StringBuilder canonical, ShippingQuoteRequest.PackageInfo packageInfo) {
+    if (packageInfo == null) {
+      append(canonical, null);
+      return;
+    }
+    appendDecimal(canonical, bucket(packageInfo.getWeight(), weightGranularity));
+    appendDecimal(canonical, packageInfo.getDeclaredValue());
+    appendText(canonical, packageInfo.getCurrency());
+    appendText(canonical, packageInfo.getType());
+    append(canonical, flags(packageInfo));
+
+    ShippingQuoteRequest.DimensionsInfo dimensions = packageInfo.getDimensions();
+    if (dimensions == null) {
+      append(canonical, null);
+      return;
+    }
+    appendDecimal(canonical, bucket(dimensions.getLength(), dimensionGranularity));
+    appendDecimal(canonical, bucket(dimensions.getWidth(), dimensionGranularity));
+    appendDecimal(canonical, bucket(dimensions.getHeight(), dimensionGranularity));
+    appendText(canonical, dimensions.getUnit());
+  }
+
+  private static String flags(ShippingQuoteRequest.PackageInfo packageInfo) {
+    return (Boolean.TRUE.equals(packageInfo.getIsFragile()) ? "F" : "")
+        + (Boolean.TRUE.equals(packageInfo.getIsLiquid()) ? "L" : "")
+        + (Boolean.TRUE.equals(packageInfo.getIsHazardous()) ? "H" : "");
+  }
+
+  /**
+   * Round up to a multiple of the granularity, as carriers bill the next step
+   */
+  private static BigDecimal bucket(BigDecimal value, BigDecimal granularity) {
+    if (value == null || granularity == null || granularity.signum() <= 0) {
+      return value;
+    }
+    return value.divide(granularity, 0, RoundingMode.CEILING).multiply(granularity);
+  }
+
+  private static void appendDecimal(StringBuilder canonical, BigDecimal value) {
+    append(canonical, value == null ? null : value.stripTrailingZeros().toPlainString());
+  }
+
+  private static void appendPostal(StringBuilder canonical, String postalCode) {
+    append(canonical, postalCode == null ? null : postalCode.replaceAll("[\\s-]", "").toUpperCase());
+  }
+
+  private static void appendText(StringBuilder canonical, String text) {
+    append(canonical, text == null ? null : text.trim().replaceAll("\\s+", " ").toUpperCase());
+  }
+
+  private static void append(StringBuilder canonical, String value) {
+    if (value == null || value.isEmpty()) {
+      canonical.append('~');
+    } else {
+      canonical.append(value.length()).append(':').append(value);
+    }
+    canonical.append('|');
+  }
+
+  private static byte[] sha256(String canonical) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
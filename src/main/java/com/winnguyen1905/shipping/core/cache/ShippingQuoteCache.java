@@ -0,0 +1,223 @@
+package com.winnguyen1905.shipping.core.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier cache for shipping quotes: a bounded Caffeine near cache on each node in
+ * front of the shared Redis cache.
+ *
+ * Near-cache hits are served from the heap without a network hop or deserialization,
+ * so cached responses must be treated as read-only. Whenever a node writes or evicts
+ * a quote it publishes the key on {@code shipping.cache.invalidation-channel}; other
+ * nodes drop their near copy and pick up the new value from Redis on the next read.
+ * The near TTL bounds staleness should an invalidation message be lost.
+ *
+ * Redis entries live for the hard TTL ({@code shipping.cache.ttl-minutes}); quotes older
+ * than the soft TTL ({@code shipping.cache.soft-ttl-seconds}) are still returned, and
+ * {@link #isPastSoftTtl} lets callers decide whether to use them.
+ */
+@Component
+@Slf4j
+public class ShippingQuoteCache {
+
+  private static final String KEY_PREFIX = "shipping_quotes:";
+  private static final String ALL_KEYS = "*";
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final StringRedisTemplate stringRedisTemplate;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final ObjectMapper objectMapper;
+  private final Cache<String, ShippingQuoteResponse> nearCache;
+  private final boolean nearEnabled;
+  private final Duration redisTtl;
+  private final Duration softTtl;
+  private final String invalidationChannel;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final Counter nearHits;
+  private final Counter nearMisses;
+  private final Counter redisHits;
+  private final Counter redisMisses;
+  private final Timer nearLatency;
+  private final Timer redisLatency;
+
+  public ShippingQuoteCache(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate,
+      RedisMessageListenerContainer listenerContainer, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+      @Value("${shipping.cache.near.enabled:true}") boolean nearEnabled,
+      @Value("${shipping.cache.near.max-size:10000}") long nearMaxSize,
+      @Value("${shipping.cache.near.ttl-seconds:60}") long nearTtlSeconds,
+      @Value("${shipping.cache.ttl-minutes:10}") long redisTtlMinutes,
+      @Value("${shipping.cache.soft-ttl-seconds:180}") long softTtlSeconds,
+      @Value("${shipping.cache.invalidation-channel:shipping_quotes:invalidate}") String invalidationChannel) {
+    this.redisTemplate = redisTemplate;
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.listenerContainer = listenerContainer;
+    this.objectMapper = objectMapper;
+    this.nearEnabled = nearEnabled;
+    this.redisTtl = Duration.ofMinutes(redisTtlMinutes);
+    this.softTtl = Duration.ofSeconds(Math.min(softTtlSeconds, redisTtl.toSeconds()));
+    this.invalidationChannel = invalidationChannel;
+    this.nearCache = Caffeine.newBuilder()
+        .maximumSize(nearMaxSize)
+        .expireAfterWrite(Duration.ofSeconds(Math.min(nearTtlSeconds, redisTtl.toSeconds())))
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "shipping_quotes_near");
+
+    this.nearHits = requestCounter(meterRegistry, "near", "hit");
+    this.nearMisses = requestCounter(meterRegistry, "near", "miss");
+    this.redisHits = requestCounter(meterRegistry, "redis", "hit");
+    this.redisMisses = requestCounter(meterRegistry, "redis", "miss");
+    this.nearLatency = latencyTimer(meterRegistry, "near");
+    this.redisLatency = latencyTimer(meterRegistry, "redis");
+  }
+
+  @PostConstruct
+  public void subscribe() {
+    listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(invalidationChannel));
+  }
+
+  /**
+   * Look the quote up in the near cache, then in Redis; Redis hits are promoted to the near cache
+   */
+  public ShippingQuoteResponse get(String key) {
+    if (nearEnabled) {
+      long started = System.nanoTime();
+      ShippingQuoteResponse near = nearCache.getIfPresent(key);
+      nearLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+      if (near != null) {
+        nearHits.increment();
+        return near;
+      }
+      nearMisses.increment();
+    }
+
+    long started = System.nanoTime();
+    try {
+      Object cached = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+      if (cached == null) {
+        redisMisses.increment();
+        return null;
+      }
+      ShippingQuoteResponse response = objectMapper.convertValue(cached, ShippingQuoteResponse.class);
+      redisHits.increment();
+      if (nearEnabled) {
+        nearCache.put(key, response);
+      }
+      log.debug("Found cached quotes for key: {}", key);
+      return response;
+    } catch (Exception e) {
+      log.warn("Error retrieving cached quotes: {}", e.getMessage());
+      return null;
+    } finally {
+      redisLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Whether the quote was calculated longer ago than the soft TTL
+   */
+  public boolean isPastSoftTtl(ShippingQuoteResponse response) {
+    return response.getQuotedAt() == null || response.getQuotedAt().plus(softTtl).isBefore(Instant.now());
+  }
+
+  /**
+   * Store the quote in both tiers and tell other nodes to drop their near copy
+   */
+  public void put(String key, ShippingQuoteResponse response) {
+    if (nearEnabled) {
+      nearCache.put(key, response);
+    }
+    try {
+      redisTemplate.opsForValue().set(KEY_PREFIX + key, response, redisTtl);
+      log.debug("Cached quotes for key: {}", key);
+    } catch (Exception e) {
+      log.warn("Error caching quotes: {}", e.getMessage());
+    }
+    publishInvalidation(key);
+  }
+
+  /**
+   * Remove the quote from both tiers on every node
+   */
+  public void evict(String key) {
+    nearCache.invalidate(key);
+    try {
+      redisTemplate.delete(KEY_PREFIX + key);
+    } catch (Exception e) {
+      log.warn("Error evicting cached quotes: {}", e.getMessage());
+    }
+    publishInvalidation(key);
+  }
+
+  /**
+   * Clear the near cache of every node; Redis entries expire on their own
+   */
+  public void invalidateNearCaches() {
+    nearCache.invalidateAll();
+    publishInvalidation(ALL_KEYS);
+  }
+
+  private void publishInvalidation(String key) {
+    if (!nearEnabled) {
+      return;
+    }
+    try {
+      stringRedisTemplate.convertAndSend(invalidationChannel, nodeId + " " + key);
+    } catch (Exception e) {
+      log.warn("Error publishing quote cache invalidation: {}", e.getMessage());
+    }
+  }
+
+  private void onInvalidation(Message message, byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    int separator = body.indexOf(' ');
+    if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+      return;
+    }
+    String key = body.substring(separator + 1);
+    if (ALL_KEYS.equals(key)) {
+      nearCache.invalidateAll();
+    } else {
+      nearCache.invalidate(key);
+    }
+  }
+
+  private static Counter requestCounter(MeterRegistry meterRegistry, String tier, String result) {
+    return Counter.builder("shipping.quotes.cache.requests")
+        .description("Shipping quote cache lookups by tier")
+        .tag("tier", tier)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private static Timer latencyTimer(MeterRegistry meterRegistry, String tier) {
+    return Timer.builder("shipping.quotes.cache.latency")
+        .description("Shipping quote cache lookup latency by tier")
+        .tag("tier", tier)
+        .register(meterRegistry);
+  }
+}
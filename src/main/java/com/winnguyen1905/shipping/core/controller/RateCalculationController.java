@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.winnguyen1905.shipping.core.model.request.CalculateRateRequest;
+import com.winnguyen1905.shipping.core.model.response.BulkRateCalculationResponse;
 import com.winnguyen1905.shipping.core.model.response.RateCalculationResponse;
 import com.winnguyen1905.shipping.core.service.RateCalculationService;
 import com.winnguyen1905.shipping.secure.AccountRequest;
@@ -19,8 +20,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -28,6 +33,8 @@ import java.util.List;
 @Tag(name = "Rate Calculation", description = "APIs for calculating shipping rates")
 public class RateCalculationController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private RateCalculationService rateCalculationService;
 
@@ -119,13 +126,33 @@ public class RateCalculationController {
         @ApiResponse(responseCode = "400", description = "Invalid request data"),
         @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
-    public ResponseEntity<List<RateCalculationResponse>> bulkCalculateRates(
+    public ResponseEntity<BulkRateCalculationResponse> bulkCalculateRates(
             @Valid @RequestBody List<CalculateRateRequest> requests,
             @AccountRequest TAccountRequest accountRequest) {
-        List<RateCalculationResponse> response = rateCalculationService.bulkCalculateRates(requests, accountRequest);
+        BulkRateCalculationResponse response = rateCalculationService.bulkCalculateRates(requests, accountRequest);
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/bulk-calculate/stream", consumes = NDJSON, produces = NDJSON)
+    @Operation(summary = "Streaming bulk rate calculation", 
+               description = "Calculates rates for a newline-delimited JSON stream of shipments, "
+                       + "emitting one NDJSON result per shipment as it is computed")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Results streamed; failed shipments carry an error code"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public void streamBulkCalculateRates(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @AccountRequest TAccountRequest accountRequest) throws IOException {
+        // Written straight to the servlet response so nothing is buffered or wrapped
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        rateCalculationService.streamBulkCalculateRates(request.getInputStream(), response.getOutputStream(),
+                accountRequest);
+    }
+
     @GetMapping("/compare")
     @Operation(summary = "Compare shipping rates", 
                description = "Compares rates across all available carriers for given shipment details")
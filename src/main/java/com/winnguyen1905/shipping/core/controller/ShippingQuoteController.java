@@ -1,5 +1,6 @@
 package com.winnguyen1905.shipping.core.controller;
 
+import com.winnguyen1905.shipping.common.enums.QuoteFreshness;
 import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
 import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
 import com.winnguyen1905.shipping.core.service.ShippingQuoteService;
@@ -16,9 +17,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -58,6 +62,28 @@ public class ShippingQuoteController {
     return ResponseEntity.ok(response);
   }
 
+  @PostMapping(value = "/calculate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @Operation(summary = "Stream shipping quotes", description = "Stream each provider's shipping options as Server-Sent Events as soon as it responds, followed by updated best picks and a final summary with the quote ID")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Quote events streamed"),
+      @ApiResponse(responseCode = "400", description = "Invalid request data"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized")
+  })
+  public ResponseEntity<SseEmitter> streamShippingQuotes(
+      @Valid @RequestBody ShippingQuoteRequest request,
+      @AccountRequest TAccountRequest accountRequest) {
+
+    log.info("Streaming shipping quotes for request type: {}",
+        request.isSingleVendorRequest() ? "single-vendor" : "multi-vendor");
+
+    // An invalid request is rejected here, before the response becomes an event stream
+    SseEmitter events = shippingQuoteService.streamShippingQuotes(request, accountRequest);
+    return ResponseEntity.ok()
+        .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+        .header("X-Accel-Buffering", "no")
+        .body(events);
+  }
+
   @PostMapping("/cart/review")
   @Operation(summary = "Review shipping costs for cart", description = "Get shipping options for cart review - typically called when user views cart")
   @ApiResponses(value = {
@@ -67,25 +93,20 @@ public class ShippingQuoteController {
   })
   public ResponseEntity<ShippingQuoteResponse> reviewCartShipping(
       @Valid @RequestBody ShippingQuoteRequest request,
-      @Parameter(description = "Include cached results if available") @RequestParam(defaultValue = "true") boolean allowCached,
+      @Parameter(description = "Include cached results if available, possibly stale while they are refreshed") @RequestParam(defaultValue = "true") boolean allowCached,
       @AccountRequest TAccountRequest accountRequest) {
 
     log.info("Reviewing cart shipping for {} items",
         request.isMultiVendorRequest() ? request.getVendorPackages().size() : 1);
 
-    // For cart review, try cached results first if allowed
-    ShippingQuoteResponse response = null;
-    if (allowCached) {
-      response = shippingQuoteService.getCachedQuotes(request, accountRequest);
-    }
+    // Cart review favours latency: stale quotes are served while they are refreshed
+    QuoteFreshness freshness = allowCached ? QuoteFreshness.STALE_WHILE_REVALIDATE : QuoteFreshness.FRESH;
 
-    // If no cached results or cache not allowed, calculate fresh quotes
-    if (response == null) {
-      if (request.isSingleVendorRequest()) {
-        response = shippingQuoteService.getShippingQuotes(request, accountRequest);
-      } else {
-        response = shippingQuoteService.getMultiVendorShippingQuotes(request, accountRequest);
-      }
+    ShippingQuoteResponse response;
+    if (request.isSingleVendorRequest()) {
+      response = shippingQuoteService.getShippingQuotes(request, accountRequest, freshness);
+    } else {
+      response = shippingQuoteService.getMultiVendorShippingQuotes(request, accountRequest, freshness);
     }
 
     return ResponseEntity.ok(response);
@@ -105,22 +126,14 @@ public class ShippingQuoteController {
 
     log.info("Calculating checkout shipping costs (forceFresh: {})", forceFresh);
 
-    // For checkout, always get fresh quotes unless explicitly allowed to use cache
-    ShippingQuoteResponse response;
-
-    if (!forceFresh) {
-      response = shippingQuoteService.getCachedQuotes(request, accountRequest);
-      if (response != null) {
-        log.info("Using cached quotes for checkout");
-        return ResponseEntity.ok(response);
-      }
-    }
+    // For checkout, always get fresh quotes unless explicitly allowed to use cache; never stale ones
+    QuoteFreshness freshness = forceFresh ? QuoteFreshness.FRESH : QuoteFreshness.CACHED;
 
-    // Calculate fresh quotes
+    ShippingQuoteResponse response;
     if (request.isSingleVendorRequest()) {
-      response = shippingQuoteService.getShippingQuotes(request, accountRequest);
+      response = shippingQuoteService.getShippingQuotes(request, accountRequest, freshness);
     } else {
-      response = shippingQuoteService.getMultiVendorShippingQuotes(request, accountRequest);
+      response = shippingQuoteService.getMultiVendorShippingQuotes(request, accountRequest, freshness);
     }
 
     return ResponseEntity.ok(response);
@@ -249,6 +262,22 @@ public class ShippingQuoteController {
     return ResponseEntity.ok(status);
   }
 
+  @GetMapping("/providers/routes")
+  @Operation(summary = "Get provider route coverage", description = "Get the origin and destination countries served by each shipping provider")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Route coverage retrieved successfully"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized")
+  })
+  public ResponseEntity<Map<String, Map<String, List<String>>>> getProviderRouteCoverage(
+      @AccountRequest TAccountRequest accountRequest) {
+
+    log.info("Getting provider route coverage");
+
+    Map<String, Map<String, List<String>>> coverage = shippingQuoteService.getProviderRouteCoverage();
+
+    return ResponseEntity.ok(coverage);
+  }
+
   @PostMapping("/providers/test-connectivity")
   @Operation(summary = "Test provider connectivity", description = "Test connectivity to all shipping providers")
   @ApiResponses(value = {
@@ -23,6 +23,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/zones")
@@ -160,4 +161,17 @@ public class ZoneController {
         ZoneResponse response = zoneService.lookupZone(country, state, postalCode, accountRequest);
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/resolution-stats")
+    @Operation(summary = "Get zone resolution statistics", 
+               description = "Returns size and lookup throughput of the compiled zone index")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<Map<String, Object>> getResolutionStats(
+            @AccountRequest TAccountRequest accountRequest) {
+        Map<String, Object> response = zoneService.getResolutionStats(accountRequest);
+        return ResponseEntity.ok(response);
+    }
 } 
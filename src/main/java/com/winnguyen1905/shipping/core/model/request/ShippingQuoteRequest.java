@@ -11,7 +11,7 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ShippingQuoteRequest {
@@ -119,7 +119,7 @@ public class ShippingQuoteRequest {
   }
 
   @Data
-  @Builder
+  @Builder(toBuilder = true)
   @NoArgsConstructor
   @AllArgsConstructor
   public static class PackageInfo {
@@ -197,4 +197,17 @@ public class ShippingQuoteRequest {
   public boolean isValidRequest() {
     return isSingleVendorRequest() || isMultiVendorRequest();
   }
+
+  /**
+   * Single vendor request for one vendor package of this request
+   */
+  public ShippingQuoteRequest forVendorPackage(VendorPackageInfo vendorPackage) {
+    return ShippingQuoteRequest.builder()
+        .customer(customer)
+        .vendor(vendorPackage.getVendor())
+        .packageInfo(vendorPackage.getPackageInfo())
+        .requireInsurance(requireInsurance)
+        .preferredCurrency(preferredCurrency)
+        .build();
+  }
 }
@@ -0,0 +1,45 @@
+package com.winnguyen1905.shipping.core.model.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import com.winnguyen1905.shipping.common.enums.RateErrorCode;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRateCalculationResponse {
+
+    private Integer totalRequests;
+
+    private Integer succeeded;
+
+    private Integer failed;
+
+    private Long processingTimeMs;
+
+    /**
+     * One entry per request, in request order
+     */
+    private List<Item> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Integer index;
+
+        private Boolean success;
+
+        private RateErrorCode errorCode;
+
+        private String errorMessage;
+
+        private RateCalculationResponse result;
+    }
+}
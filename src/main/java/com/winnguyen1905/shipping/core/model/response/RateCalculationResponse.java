@@ -40,6 +40,10 @@ public class RateCalculationResponse {
 
     private ShippingRate fastestRate;
 
+    private Boolean partial;
+
+    private List<CarrierResult> carrierResults;
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -81,4 +85,22 @@ public class RateCalculationResponse {
 
         private String zoneCode;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CarrierResult {
+        private Integer carrierId;
+
+        private String carrierName;
+
+        private String status;
+
+        private Integer rateCount;
+
+        private Long elapsedMs;
+
+        private String errorMessage;
+    }
 } 
@@ -13,7 +13,7 @@ import java.util.List;
 import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse.ShippingOption;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ShippingQuoteResponse {
@@ -37,7 +37,7 @@ public class ShippingQuoteResponse {
   private QuoteMetadata metadata;
 
   @Data
-  @Builder
+  @Builder(toBuilder = true)
   @NoArgsConstructor
   @AllArgsConstructor
   public static class ShippingOption {
@@ -99,7 +99,7 @@ public class ShippingQuoteResponse {
   }
 
   @Data
-  @Builder
+  @Builder(toBuilder = true)
   @NoArgsConstructor
   @AllArgsConstructor
   public static class QuoteMetadata {
@@ -127,6 +127,8 @@ public class ShippingQuoteResponse {
     private List<ProviderError> providerErrors;
 
     private String calculationMethod; // EXTERNAL_API, INTERNAL_CALCULATION, HYBRID
+
+    private Boolean stale; // Served from cache past the soft TTL while a refresh runs
   }
 
   @Data
@@ -3,6 +3,7 @@ package com.winnguyen1905.shipping.core.provider;
 import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
 import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,17 +17,66 @@ public interface ShippingProviderClient {
    * Get shipping quotes for a single vendor shipment
    * 
    * @param request The shipping quote request
-   * @return List of shipping options from this provider
+   * @return List of shipping options from this provider, empty when it does not serve the shipment
+   * @throws RuntimeException when the provider fails to answer
    */
   List<ShippingQuoteResponse.ShippingOption> getShippingQuotes(ShippingQuoteRequest request);
 
+  /**
+   * Get shipping quotes for several single vendor shipments in one provider round trip
+   * 
+   * The default implementation quotes the shipments one after another with
+   * {@link #getShippingQuotes}, so it never has more than one call in flight; a failure
+   * fails the whole batch. Providers with a batch rating endpoint override it and
+   * {@link #supportsBatchQuotes}; the quote service rates shipments for any other
+   * provider with parallel single calls instead.
+   * 
+   * @param requests Single vendor shipping quote requests
+   * @return Shipping options per request, index-aligned with the requests; empty for a
+   *         shipment the provider does not serve
+   * @throws RuntimeException when the provider fails to answer
+   */
+  default List<List<ShippingQuoteResponse.ShippingOption>> getShippingQuotesBatch(
+      List<ShippingQuoteRequest> requests) {
+    return requests.stream().map(this::getShippingQuotes).toList();
+  }
+
+  /**
+   * Whether {@link #getShippingQuotesBatch} quotes several shipments in about the time
+   * of one. Callers send such providers one batch and every other provider one call
+   * per shipment
+   */
+  default boolean supportsBatchQuotes() {
+    return false;
+  }
+
   /**
    * Get shipping quotes for multiple vendors (consolidated)
    * 
+   * Each vendor package is quoted as its own shipment through
+   * {@link #getShippingQuotesBatch}.
+   * 
    * @param request The shipping quote request with multiple vendors
    * @return Map of vendor ID to shipping options
    */
-  Map<String, List<ShippingQuoteResponse.ShippingOption>> getMultiVendorQuotes(ShippingQuoteRequest request);
+  default Map<String, List<ShippingQuoteResponse.ShippingOption>> getMultiVendorQuotes(ShippingQuoteRequest request) {
+    if (!request.isMultiVendorRequest()) {
+      return Map.of();
+    }
+
+    List<ShippingQuoteRequest.VendorPackageInfo> vendorPackages = request.getVendorPackages();
+    List<List<ShippingQuoteResponse.ShippingOption>> quotes = getShippingQuotesBatch(vendorPackages.stream()
+        .map(request::forVendorPackage)
+        .toList());
+
+    Map<String, List<ShippingQuoteResponse.ShippingOption>> result = new HashMap<>();
+    for (int i = 0; i < vendorPackages.size(); i++) {
+      if (!quotes.get(i).isEmpty()) {
+        result.put(vendorPackages.get(i).getVendor().getVendorId(), quotes.get(i));
+      }
+    }
+    return result;
+  }
 
   /**
    * Validate if the provider supports shipping from origin to destination
@@ -2,14 +2,18 @@ package com.winnguyen1905.shipping.core.provider.impl;
 
 import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
 import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+import com.winnguyen1905.shipping.core.provider.support.ProviderHttpTransport;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -23,7 +27,17 @@ import java.util.*;
 @Slf4j
 public class EasyPostShippingClient implements ShippingProviderClient {
 
-  private final RestTemplate restTemplate;
+  private static final List<String> SUPPORTED_COUNTRIES = List.of(
+      "US", "CA", "GB", "AU", "DE", "FR", "JP", "VN", "TH", "SG", "MY", "ID", "PH");
+
+  private static final TypeReference<Map<String, Object>> RESPONSE_TYPE = new TypeReference<>() {
+  };
+
+  // EasyPost parcels are in ounces and inches, requests are in kg and cm
+  private static final BigDecimal OUNCES_PER_KG = new BigDecimal("35.274");
+  private static final BigDecimal CM_PER_INCH = new BigDecimal("2.54");
+
+  private final ProviderHttpTransport providerHttpTransport;
 
   @Value("${shipping.providers.easypost.api-key:#{null}}")
   private String apiKey;
@@ -57,50 +71,22 @@ public class EasyPostShippingClient implements ShippingProviderClient {
       Map<String, Object> shipmentRequest = buildEasyPostRequest(request);
 
       // Make API call to EasyPost
-      // This is a placeholder - in real implementation, you would make HTTP calls
       Map<String, Object> response = callEasyPostAPI(shipmentRequest);
 
       // Parse response and convert to our format
       return parseEasyPostResponse(response, request);
 
-    } catch (Exception e) {
+    } catch (RuntimeException e) {
+      // Rethrow so the caller records the failure and reports EasyPost as unavailable
       log.error("Error getting quotes from EasyPost", e);
-      return Collections.emptyList();
+      throw e;
     }
   }
 
-  @Override
-  public Map<String, List<ShippingQuoteResponse.ShippingOption>> getMultiVendorQuotes(ShippingQuoteRequest request) {
-    if (!request.isMultiVendorRequest()) {
-      return Collections.emptyMap();
-    }
-
-    Map<String, List<ShippingQuoteResponse.ShippingOption>> result = new HashMap<>();
-
-    for (ShippingQuoteRequest.VendorPackageInfo vendorPackage : request.getVendorPackages()) {
-      // Create single vendor request for each vendor
-      ShippingQuoteRequest singleVendorRequest = ShippingQuoteRequest.builder()
-          .customer(request.getCustomer())
-          .vendor(vendorPackage.getVendor())
-          .packageInfo(vendorPackage.getPackageInfo())
-          .requireInsurance(request.getRequireInsurance())
-          .preferredCurrency(request.getPreferredCurrency())
-          .build();
-
-      List<ShippingQuoteResponse.ShippingOption> options = getShippingQuotes(singleVendorRequest);
-      if (!options.isEmpty()) {
-        result.put(vendorPackage.getVendor().getVendorId(), options);
-      }
-    }
-
-    return result;
-  }
-
   @Override
   public boolean supportsRoute(String originCountry, String destinationCountry) {
     // EasyPost supports many international routes
-    List<String> supportedCountries = getSupportedCountries();
-    return supportedCountries.contains(originCountry) && supportedCountries.contains(destinationCountry);
+    return SUPPORTED_COUNTRIES.contains(originCountry) && SUPPORTED_COUNTRIES.contains(destinationCountry);
   }
 
   @Override
@@ -131,7 +117,7 @@ public class EasyPostShippingClient implements ShippingProviderClient {
   @Override
   public List<String> getSupportedCountries() {
     // EasyPost supports many countries through different carriers
-    return List.of("US", "CA", "GB", "AU", "DE", "FR", "JP", "VN", "TH", "SG", "MY", "ID", "PH");
+    return SUPPORTED_COUNTRIES;
   }
 
   @Override
@@ -163,6 +149,18 @@ public class EasyPostShippingClient implements ShippingProviderClient {
 
   // Private helper methods
 
+  private static BigDecimal toOunces(BigDecimal weightKg) {
+    // Round up so the declared weight never falls below the real one
+    return weightKg.multiply(OUNCES_PER_KG).setScale(1, RoundingMode.CEILING);
+  }
+
+  private static BigDecimal toInches(BigDecimal length, String unit) {
+    if ("in".equalsIgnoreCase(unit)) {
+      return length;
+    }
+    return length.divide(CM_PER_INCH, 1, RoundingMode.HALF_UP);
+  }
+
   private Map<String, Object> buildEasyPostRequest(ShippingQuoteRequest request) {
     Map<String, Object> shipment = new HashMap<>();
 
@@ -186,10 +184,11 @@ public class EasyPostShippingClient implements ShippingProviderClient {
 
     // Parcel
     Map<String, Object> parcel = new HashMap<>();
-    parcel.put("weight", request.getPackageInfo().getWeight());
-    parcel.put("length", request.getPackageInfo().getDimensions().getLength());
-    parcel.put("width", request.getPackageInfo().getDimensions().getWidth());
-    parcel.put("height", request.getPackageInfo().getDimensions().getHeight());
+    ShippingQuoteRequest.DimensionsInfo dimensions = request.getPackageInfo().getDimensions();
+    parcel.put("weight", toOunces(request.getPackageInfo().getWeight()));
+    parcel.put("length", toInches(dimensions.getLength(), dimensions.getUnit()));
+    parcel.put("width", toInches(dimensions.getWidth(), dimensions.getUnit()));
+    parcel.put("height", toInches(dimensions.getHeight(), dimensions.getUnit()));
 
     shipment.put("to_address", toAddress);
     shipment.put("from_address", fromAddress);
@@ -202,46 +201,11 @@ public class EasyPostShippingClient implements ShippingProviderClient {
   }
 
   private Map<String, Object> callEasyPostAPI(Map<String, Object> request) {
-    // This is a placeholder for the actual API call
-    // In a real implementation, you would:
-    // 1. Set up HTTP headers with API key
-    // 2. Make POST request to EasyPost API
-    // 3. Handle authentication, rate limiting, errors
-
-    log.info("Making API call to EasyPost (placeholder)");
-
-    // Simulate API response
-    return createMockEasyPostResponse();
-  }
-
-  private Map<String, Object> createMockEasyPostResponse() {
-    // Mock response simulating EasyPost API format
-    Map<String, Object> response = new HashMap<>();
-
-    List<Map<String, Object>> rates = new ArrayList<>();
-
-    // Mock DHL rate
-    Map<String, Object> dhlRate = new HashMap<>();
-    dhlRate.put("id", "rate_dhl_123");
-    dhlRate.put("service", "Express");
-    dhlRate.put("carrier", "DHL");
-    dhlRate.put("rate", "25.50");
-    dhlRate.put("currency", "USD");
-    dhlRate.put("delivery_days", 2);
-    rates.add(dhlRate);
-
-    // Mock FedEx rate
-    Map<String, Object> fedexRate = new HashMap<>();
-    fedexRate.put("id", "rate_fedex_456");
-    fedexRate.put("service", "Ground");
-    fedexRate.put("carrier", "FedEx");
-    fedexRate.put("rate", "18.75");
-    fedexRate.put("currency", "USD");
-    fedexRate.put("delivery_days", 3);
-    rates.add(fedexRate);
-
-    response.put("rates", rates);
-    return response;
+    // EasyPost authenticates with the API key as the basic-auth user name
+    String credentials = Base64.getEncoder().encodeToString((apiKey + ":").getBytes(StandardCharsets.UTF_8));
+    return providerHttpTransport.client("easypost")
+        .postJson(URI.create(baseUrl + "/shipments"), Map.of("Authorization", "Basic " + credentials), request,
+            RESPONSE_TYPE);
   }
 
   @SuppressWarnings("unchecked")
@@ -256,13 +220,14 @@ public class EasyPostShippingClient implements ShippingProviderClient {
 
     for (Map<String, Object> rate : rates) {
       try {
+        Integer deliveryDays = (Integer) rate.get("delivery_days");
         ShippingQuoteResponse.ShippingOption option = ShippingQuoteResponse.ShippingOption.builder()
             .provider((String) rate.get("carrier"))
             .service((String) rate.get("service"))
             .cost(new BigDecimal((String) rate.get("rate")))
             .currency((String) rate.get("currency"))
-            .estimatedDays((Integer) rate.get("delivery_days"))
-            .estimatedDeliveryDate(LocalDate.now().plusDays((Integer) rate.get("delivery_days")))
+            .estimatedDays(deliveryDays)
+            .estimatedDeliveryDate(deliveryDays != null ? LocalDate.now().plusDays(deliveryDays) : null)
             .serviceCode((String) rate.get("id"))
             .trackingSupported("Yes")
             .insuranceIncluded(false)
@@ -3,6 +3,8 @@ package com.winnguyen1905.shipping.core.provider.impl;
 import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
 import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
 import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+import com.winnguyen1905.shipping.core.tariff.TariffEngine;
+import com.winnguyen1905.shipping.core.tariff.TariffShipment;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,6 +23,13 @@ import java.util.*;
 @Slf4j
 public class VNPostShippingClient implements ShippingProviderClient {
 
+  private static final Set<String> INTERNATIONAL_DESTINATIONS = Set.of(
+      "US", "CA", "GB", "AU", "JP", "KR", "TH", "SG", "MY", "ID", "PH", "CN", "TW", "HK");
+  private static final List<String> SUPPORTED_COUNTRIES = List.of(
+      "VN", "US", "CA", "GB", "AU", "JP", "KR", "TH", "SG", "MY", "ID", "PH", "CN", "TW", "HK");
+
+  private final TariffEngine tariffEngine;
+
   @Value("${shipping.providers.vnpost.api-key:#{null}}")
   private String apiKey;
 
@@ -60,41 +69,17 @@ public class VNPostShippingClient implements ShippingProviderClient {
       // Calculate rates based on VNPost pricing model
       return calculateVNPostRates(request);
 
-    } catch (Exception e) {
+    } catch (RuntimeException e) {
+      // Rethrow so the caller records the failure and reports VNPost as unavailable
       log.error("Error getting quotes from VNPost", e);
-      return Collections.emptyList();
+      throw e;
     }
   }
 
   @Override
-  public Map<String, List<ShippingQuoteResponse.ShippingOption>> getMultiVendorQuotes(ShippingQuoteRequest request) {
-    if (!request.isMultiVendorRequest()) {
-      return Collections.emptyMap();
-    }
-
-    Map<String, List<ShippingQuoteResponse.ShippingOption>> result = new HashMap<>();
-
-    for (ShippingQuoteRequest.VendorPackageInfo vendorPackage : request.getVendorPackages()) {
-      // Only process if both vendor and customer are in Vietnam
-      if ("VN".equals(vendorPackage.getVendor().getAddress().getCountry()) ||
-          "VN".equals(request.getCustomer().getAddress().getCountry())) {
-
-        ShippingQuoteRequest singleVendorRequest = ShippingQuoteRequest.builder()
-            .customer(request.getCustomer())
-            .vendor(vendorPackage.getVendor())
-            .packageInfo(vendorPackage.getPackageInfo())
-            .requireInsurance(request.getRequireInsurance())
-            .preferredCurrency(request.getPreferredCurrency())
-            .build();
-
-        List<ShippingQuoteResponse.ShippingOption> options = getShippingQuotes(singleVendorRequest);
-        if (!options.isEmpty()) {
-          result.put(vendorPackage.getVendor().getVendorId(), options);
-        }
-      }
-    }
-
-    return result;
+  public boolean supportsBatchQuotes() {
+    // Rated in-process from the rate card, so one call quotes every shipment at once
+    return true;
   }
 
   @Override
@@ -107,9 +92,7 @@ public class VNPostShippingClient implements ShippingProviderClient {
 
     // International routes from Vietnam
     if ("VN".equals(originCountry)) {
-      List<String> internationalDestinations = List.of(
-          "US", "CA", "GB", "AU", "JP", "KR", "TH", "SG", "MY", "ID", "PH", "CN", "TW", "HK");
-      return internationalDestinations.contains(destinationCountry);
+      return INTERNATIONAL_DESTINATIONS.contains(destinationCountry);
     }
 
     return false;
@@ -151,7 +134,7 @@ public class VNPostShippingClient implements ShippingProviderClient {
 
   @Override
   public List<String> getSupportedCountries() {
-    return List.of("VN", "US", "CA", "GB", "AU", "JP", "KR", "TH", "SG", "MY", "ID", "PH", "CN", "TW", "HK");
+    return SUPPORTED_COUNTRIES;
   }
 
   @Override
@@ -185,120 +168,21 @@ public class VNPostShippingClient implements ShippingProviderClient {
   // Private helper methods
 
   private List<ShippingQuoteResponse.ShippingOption> calculateVNPostRates(ShippingQuoteRequest request) {
-    List<ShippingQuoteResponse.ShippingOption> options = new ArrayList<>();
-
-    boolean isDomestic = "VN".equals(request.getVendor().getAddress().getCountry()) &&
-        "VN".equals(request.getCustomer().getAddress().getCountry());
-
-    if (isDomestic) {
-      options.addAll(getDomesticVNPostRates(request));
-    } else {
-      options.addAll(getInternationalVNPostRates(request));
-    }
-
-    return options;
-  }
-
-  private List<ShippingQuoteResponse.ShippingOption> getDomesticVNPostRates(ShippingQuoteRequest request) {
-    List<ShippingQuoteResponse.ShippingOption> options = new ArrayList<>();
-    BigDecimal weight = request.getPackageInfo().getWeight();
-
-    // VNPost Express (same city)
-    if (isSameCity(request)) {
-      BigDecimal expressRate = calculateDomesticRate(weight, "EXPRESS");
-      options.add(createVNPostOption("Express", expressRate, "VND", 1, "VNP_EXPRESS"));
-    }
-
-    // VNPost Standard
-    BigDecimal standardRate = calculateDomesticRate(weight, "STANDARD");
-    options.add(createVNPostOption("Standard", standardRate, "VND", 3, "VNP_STANDARD"));
-
-    // VNPost Economy
-    BigDecimal economyRate = calculateDomesticRate(weight, "ECONOMY");
-    options.add(createVNPostOption("Economy", economyRate, "VND", 5, "VNP_ECONOMY"));
-
-    return options;
-  }
-
-  private List<ShippingQuoteResponse.ShippingOption> getInternationalVNPostRates(ShippingQuoteRequest request) {
-    List<ShippingQuoteResponse.ShippingOption> options = new ArrayList<>();
-
-    // EMS International
-    BigDecimal emsRate = calculateInternationalRate(request, "EMS");
-    options.add(createVNPostOption("EMS International", emsRate, "VND", 7, "VNP_EMS_INTL"));
-
-    // Regular International
-    BigDecimal regularRate = calculateInternationalRate(request, "REGULAR");
-    options.add(createVNPostOption("Regular International", regularRate, "VND", 14, "VNP_REG_INTL"));
-
-    return options;
-  }
-
-  private BigDecimal calculateDomesticRate(BigDecimal weight, String serviceType) {
-    BigDecimal baseRate;
-    BigDecimal perKgRate;
-
-    switch (serviceType) {
-      case "EXPRESS":
-        baseRate = new BigDecimal("25000"); // 25,000 VND base
-        perKgRate = new BigDecimal("8000"); // 8,000 VND per kg
-        break;
-      case "STANDARD":
-        baseRate = new BigDecimal("15000"); // 15,000 VND base
-        perKgRate = new BigDecimal("5000"); // 5,000 VND per kg
-        break;
-      case "ECONOMY":
-        baseRate = new BigDecimal("10000"); // 10,000 VND base
-        perKgRate = new BigDecimal("3000"); // 3,000 VND per kg
-        break;
-      default:
-        baseRate = new BigDecimal("15000");
-        perKgRate = new BigDecimal("5000");
-    }
-
-    // Calculate total rate
-    BigDecimal additionalWeight = weight.subtract(BigDecimal.ONE).max(BigDecimal.ZERO);
-    return baseRate.add(additionalWeight.multiply(perKgRate));
-  }
-
-  private BigDecimal calculateInternationalRate(ShippingQuoteRequest request, String serviceType) {
-    BigDecimal weight = request.getPackageInfo().getWeight();
-    String destinationCountry = request.getCustomer().getAddress().getCountry();
-
-    BigDecimal baseRate;
-    BigDecimal perKgRate;
-    BigDecimal zoneMultiplier = getZoneMultiplier(destinationCountry);
-
-    switch (serviceType) {
-      case "EMS":
-        baseRate = new BigDecimal("200000"); // 200,000 VND base
-        perKgRate = new BigDecimal("50000"); // 50,000 VND per kg
-        break;
-      case "REGULAR":
-        baseRate = new BigDecimal("80000"); // 80,000 VND base
-        perKgRate = new BigDecimal("20000"); // 20,000 VND per kg
-        break;
-      default:
-        baseRate = new BigDecimal("80000");
-        perKgRate = new BigDecimal("20000");
-    }
-
-    BigDecimal additionalWeight = weight.subtract(BigDecimal.ONE).max(BigDecimal.ZERO);
-    BigDecimal totalRate = baseRate.add(additionalWeight.multiply(perKgRate));
-
-    return totalRate.multiply(zoneMultiplier);
-  }
-
-  private BigDecimal getZoneMultiplier(String countryCode) {
-    // Zone pricing for international shipping
-    return switch (countryCode) {
-      case "TH", "SG", "MY", "ID", "PH", "KH", "LA" -> new BigDecimal("1.0"); // ASEAN
-      case "CN", "TW", "HK", "JP", "KR" -> new BigDecimal("1.2"); // East Asia
-      case "AU", "NZ" -> new BigDecimal("1.5"); // Oceania
-      case "US", "CA" -> new BigDecimal("1.8"); // North America
-      case "GB", "DE", "FR" -> new BigDecimal("2.0"); // Europe
-      default -> new BigDecimal("2.5"); // Rest of world
-    };
+    ShippingQuoteRequest.PackageInfo packageInfo = request.getPackageInfo();
+    TariffShipment shipment = new TariffShipment(
+        request.getVendor().getAddress().getCountry(),
+        request.getCustomer().getAddress().getCountry(),
+        packageInfo.getWeight(),
+        isSameCity(request),
+        Boolean.TRUE.equals(packageInfo.getIsFragile()),
+        Boolean.TRUE.equals(packageInfo.getIsLiquid()),
+        Boolean.TRUE.equals(packageInfo.getIsHazardous()));
+
+    // Services, weight breaks and zones come from the VNPost rate card
+    return tariffEngine.rate(getProviderName(), shipment).stream()
+        .map(quote -> createVNPostOption(quote.serviceName(), quote.cost(), quote.currency(),
+            quote.deliveryDays(), quote.serviceCode()))
+        .toList();
   }
 
   private boolean isSameCity(ShippingQuoteRequest request) {
@@ -0,0 +1,48 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import org.slf4j.MDC;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The caller's MDC and security context, captured on submission and installed on the
+ * worker thread around the task
+ */
+final class CallContext {
+
+  private final Map<String, String> mdc;
+  private final SecurityContext securityContext;
+
+  private CallContext(Map<String, String> mdc, SecurityContext securityContext) {
+    this.mdc = mdc;
+    this.securityContext = securityContext;
+  }
+
+  static CallContext capture() {
+    return new CallContext(MDC.getCopyOfContextMap(), SecurityContextHolder.getContext());
+  }
+
+  <T> T call(Supplier<T> task) {
+    Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+    SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+    setMdc(mdc);
+    SecurityContextHolder.setContext(securityContext);
+    try {
+      return task.get();
+    } finally {
+      setMdc(previousMdc);
+      SecurityContextHolder.setContext(previousSecurityContext);
+    }
+  }
+
+  private static void setMdc(Map<String, String> context) {
+    if (context == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(context);
+    }
+  }
+}
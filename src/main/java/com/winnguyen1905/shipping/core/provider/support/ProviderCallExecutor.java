@@ -0,0 +1,340 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs shipping provider calls off the request thread and away from the common pool.
+ *
+ * Calls run on virtual threads by default ({@code shipping.providers.executor.virtual-threads});
+ * otherwise on a bounded platform pool that rejects calls when its queue is full. Each
+ * provider has a bulkhead limiting its concurrent calls to
+ * {@code shipping.providers.<name>.max-concurrent-calls}; a call that cannot get a permit
+ * within {@code shipping.providers.executor.bulkhead-wait-ms} fails with a
+ * {@link RejectedExecutionException}. The caller's MDC and security context are
+ * installed on the worker thread for the duration of the call.
+ *
+ * Quote fan-outs wait for each provider up to its deadline,
+ * {@code shipping.providers.<name>.deadline-ms}, and never longer than the total
+ * budget {@code shipping.timeout.quote-deadline-ms}.
+ *
+ * Providers with {@code shipping.providers.<name>.hedging.enabled} get hedged calls:
+ * when a call is still running at the provider's observed latency percentile, an
+ * identical second call is started and the first success wins; the call must throw
+ * on failure, so that a fast error does not beat a slower answer. Each call adds
+ * {@code hedging.budget-ratio} of a token to the provider's budget and each hedge
+ * spends one, so hedges stay within that share of the provider's calls. Only a
+ * provider whose rating call creates nothing may enable hedging; EasyPost rates by
+ * creating a shipment, so it stays off there.
+ */
+@Component
+@Slf4j
+public class ProviderCallExecutor {
+
+  private final ExecutorService executor;
+  private final ExecutorService fanOutExecutor = Executors
+      .newThreadPerTaskExecutor(Thread.ofVirtual().name("quote-fan-out-", 0).factory());
+  private final Environment environment;
+  private final MeterRegistry meterRegistry;
+  private final ProviderHealthEngine providerHealthEngine;
+  private final int defaultMaxConcurrentCalls;
+  private final long bulkheadWaitMs;
+  private final long quoteDeadlineMs;
+  private final double defaultHedgeBudgetRatio;
+  private final int hedgeMaxBurst;
+  private final double hedgePercentile;
+  private final long hedgeMinDelayMs;
+  private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+  private final Map<String, Optional<HedgeBudget>> hedgeBudgets = new ConcurrentHashMap<>();
+
+  public ProviderCallExecutor(List<ShippingProviderClient> providers, Environment environment,
+      MeterRegistry meterRegistry, ProviderHealthEngine providerHealthEngine,
+      @Value("${shipping.providers.executor.virtual-threads:true}") boolean virtualThreads,
+      @Value("${shipping.providers.executor.pool-size:32}") int poolSize,
+      @Value("${shipping.providers.executor.queue-capacity:256}") int queueCapacity,
+      @Value("${shipping.providers.executor.max-concurrent-calls:50}") int defaultMaxConcurrentCalls,
+      @Value("${shipping.providers.executor.bulkhead-wait-ms:500}") long bulkheadWaitMs,
+      @Value("${shipping.timeout.quote-deadline-ms:5000}") long quoteDeadlineMs,
+      @Value("${shipping.providers.hedging.budget-ratio:0.05}") double defaultHedgeBudgetRatio,
+      @Value("${shipping.providers.hedging.max-burst:10}") int hedgeMaxBurst,
+      @Value("${shipping.providers.hedging.percentile:0.95}") double hedgePercentile,
+      @Value("${shipping.providers.hedging.min-delay-ms:20}") long hedgeMinDelayMs) {
+    this.environment = environment;
+    this.meterRegistry = meterRegistry;
+    this.providerHealthEngine = providerHealthEngine;
+    this.defaultHedgeBudgetRatio = defaultHedgeBudgetRatio;
+    this.hedgeMaxBurst = Math.max(1, hedgeMaxBurst);
+    this.hedgePercentile = hedgePercentile;
+    this.hedgeMinDelayMs = hedgeMinDelayMs;
+    this.defaultMaxConcurrentCalls = defaultMaxConcurrentCalls;
+    this.bulkheadWaitMs = bulkheadWaitMs;
+    this.quoteDeadlineMs = quoteDeadlineMs;
+
+    if (virtualThreads) {
+      this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("provider-call-", 0).factory());
+    } else {
+      AtomicInteger threadCount = new AtomicInteger();
+      ThreadPoolExecutor platformPool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(queueCapacity),
+          runnable -> {
+            Thread thread = new Thread(runnable, "provider-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          },
+          new ThreadPoolExecutor.AbortPolicy());
+      platformPool.allowCoreThreadTimeOut(true);
+      this.executor = platformPool;
+      Gauge.builder("shipping.providers.executor.queue.size", platformPool, pool -> pool.getQueue().size())
+          .description("Provider calls waiting for a platform thread")
+          .register(meterRegistry);
+    }
+
+    providers.forEach(provider -> {
+      bulkhead(provider.getProviderName());
+      hedgeBudget(provider.getProviderName());
+    });
+  }
+
+  /**
+   * Run the call for the provider asynchronously within its bulkhead
+   */
+  public <T> CompletableFuture<T> submit(String providerName, Supplier<T> call) {
+    return submit(providerName, call, CallContext.capture());
+  }
+
+  /**
+   * Run the call like {@link #submit}, hedging it if the provider has hedging enabled;
+   * the call must be safe to run twice
+   */
+  public <T> CompletableFuture<T> submitHedged(String providerName, Supplier<T> call) {
+    Optional<HedgeBudget> budget = hedgeBudget(providerName);
+    CallContext context = CallContext.capture();
+    CompletableFuture<T> primary = submit(providerName, call, context);
+    if (budget.isEmpty()) {
+      return primary;
+    }
+
+    HedgeBudget hedgeBudget = budget.get();
+    hedgeBudget.primaryCalls.increment();
+    hedgeBudget.deposit();
+    long delayMs = providerHealthEngine.latencyPercentileMs(providerName, hedgePercentile);
+    if (delayMs < 0) {
+      // Not enough latency history yet to know when a call is slow
+      return primary;
+    }
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicInteger running = new AtomicInteger(1);
+    primary.whenComplete((value, error) -> settle(result, running, value, error, null));
+    CompletableFuture.delayedExecutor(Math.max(delayMs, hedgeMinDelayMs), TimeUnit.MILLISECONDS).execute(() -> {
+      if (result.isDone()) {
+        return;
+      }
+      if (!hedgeBudget.tryWithdraw()) {
+        hedgeBudget.budgetExhausted.increment();
+        return;
+      }
+      // The original call may have failed, and settled the result, since the check above
+      if (running.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+        return;
+      }
+      hedgeBudget.hedgeCalls.increment();
+      submit(providerName, call, context)
+          .whenComplete((value, error) -> settle(result, running, value, error, hedgeBudget.hedgeWins));
+    });
+    return result;
+  }
+
+  private <T> CompletableFuture<T> submit(String providerName, Supplier<T> call, CallContext context) {
+    Bulkhead bulkhead = bulkhead(providerName);
+
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> context.call(() -> bulkhead.call(providerName, call, bulkheadWaitMs)), executor);
+    } catch (RejectedExecutionException e) {
+      log.warn("Provider call executor rejected a call to {}", providerName);
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Run a whole quote fan-out off the request thread, with the caller's MDC and security
+   * context. It gets its own virtual thread and no bulkhead permit, since it only waits
+   * for the provider calls it submits
+   */
+  public <T> CompletableFuture<T> submitFanOut(Supplier<T> fanOut) {
+    CallContext context = CallContext.capture();
+    return CompletableFuture.supplyAsync(() -> context.call(fanOut), fanOutExecutor);
+  }
+
+  /**
+   * How long a quote fan-out waits for the provider, within the total budget
+   */
+  public long deadlineMs(String providerName) {
+    long deadline = environment.getProperty("shipping.providers." + providerName.toLowerCase() + ".deadline-ms",
+        Long.class, quoteDeadlineMs);
+    return Math.min(deadline, quoteDeadlineMs);
+  }
+
+  /**
+   * First success completes the result and a failure loses while another attempt is
+   * still running; the result fails only once every attempt has failed
+   */
+  private static <T> void settle(CompletableFuture<T> result, AtomicInteger running, T value, Throwable error,
+      Counter wins) {
+    if (error == null) {
+      if (result.complete(value) && wins != null) {
+        wins.increment();
+      }
+    } else if (running.decrementAndGet() == 0) {
+      result.completeExceptionally(error);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    fanOutExecutor.shutdown();
+    executor.shutdown();
+  }
+
+  private Bulkhead bulkhead(String providerName) {
+    return bulkheads.computeIfAbsent(providerName, name -> {
+      int limit = environment.getProperty("shipping.providers." + name.toLowerCase() + ".max-concurrent-calls",
+          Integer.class, defaultMaxConcurrentCalls);
+      Bulkhead bulkhead = new Bulkhead(limit);
+      Gauge.builder("shipping.providers.calls.active", bulkhead.active, AtomicInteger::get)
+          .description("Provider calls in progress")
+          .tag("provider", name)
+          .register(meterRegistry);
+      Gauge.builder("shipping.providers.calls.waiting", bulkhead.waiting, AtomicInteger::get)
+          .description("Provider calls waiting for a bulkhead permit")
+          .tag("provider", name)
+          .register(meterRegistry);
+      return bulkhead;
+    });
+  }
+
+  private Optional<HedgeBudget> hedgeBudget(String providerName) {
+    return hedgeBudgets.computeIfAbsent(providerName, name -> {
+      String prefix = "shipping.providers." + name.toLowerCase() + ".hedging.";
+      if (!environment.getProperty(prefix + "enabled", Boolean.class, false)) {
+        return Optional.empty();
+      }
+      double ratio = environment.getProperty(prefix + "budget-ratio", Double.class, defaultHedgeBudgetRatio);
+      return Optional.of(new HedgeBudget(meterRegistry, name, ratio, hedgeMaxBurst));
+    });
+  }
+
+  /**
+   * Token budget for hedged calls, kept in thousandths of a token
+   */
+  private static final class HedgeBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final AtomicLong tokens = new AtomicLong();
+    private final long deposit;
+    private final long capacity;
+    private final Counter primaryCalls;
+    private final Counter hedgeCalls;
+    private final Counter hedgeWins;
+    private final Counter budgetExhausted;
+
+    HedgeBudget(MeterRegistry meterRegistry, String providerName, double ratio, int maxBurst) {
+      this.deposit = Math.round(ratio * TOKEN);
+      this.capacity = maxBurst * TOKEN;
+      this.primaryCalls = hedgeCounter(meterRegistry, providerName, "primary");
+      this.hedgeCalls = hedgeCounter(meterRegistry, providerName, "hedge");
+      this.hedgeWins = Counter.builder("shipping.providers.hedge.wins")
+          .description("Hedged calls that answered before the original call")
+          .tag("provider", providerName)
+          .register(meterRegistry);
+      this.budgetExhausted = Counter.builder("shipping.providers.hedge.budget.exhausted")
+          .description("Hedges not sent because the provider's hedge budget was spent")
+          .tag("provider", providerName)
+          .register(meterRegistry);
+    }
+
+    void deposit() {
+      tokens.accumulateAndGet(deposit, (current, amount) -> Math.min(capacity, current + amount));
+    }
+
+    boolean tryWithdraw() {
+      long current;
+      do {
+        current = tokens.get();
+        if (current < TOKEN) {
+          return false;
+        }
+      } while (!tokens.compareAndSet(current, current - TOKEN));
+      return true;
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, String providerName, String type) {
+      return Counter.builder("shipping.providers.hedge.calls")
+          .description("Provider calls eligible for hedging, by original call or hedge")
+          .tag("provider", providerName)
+          .tag("type", type)
+          .register(meterRegistry);
+    }
+  }
+
+  private static final class Bulkhead {
+
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    Bulkhead(int maxConcurrentCalls) {
+      this.permits = new Semaphore(Math.max(1, maxConcurrentCalls));
+    }
+
+    <T> T call(String providerName, Supplier<T> call, long waitMs) {
+      boolean acquired;
+      waiting.incrementAndGet();
+      try {
+        acquired = permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException("Interrupted waiting for provider " + providerName, e);
+      } finally {
+        waiting.decrementAndGet();
+      }
+      if (!acquired) {
+        throw new RejectedExecutionException("Too many concurrent calls to provider " + providerName);
+      }
+
+      active.incrementAndGet();
+      try {
+        return call.get();
+      } finally {
+        active.decrementAndGet();
+        permits.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,276 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling health statistics for the shipping providers, used to order and skip them
+ * during quote fan-outs.
+ *
+ * Every provider call records its latency and outcome: success, error, or timeout when
+ * it took longer than the provider's deadline. Each provider keeps an EWMA of its
+ * latency and its last {@code window-size} outcomes in a lock-free ring buffer. Its
+ * score estimates the milliseconds to a successful answer, the EWMA latency divided by
+ * the success rate; providers are tried lowest score first, so when a fan-out is capped
+ * the slowest and least reliable ones are left out.
+ *
+ * A provider whose failure rate reaches {@code max-failure-rate}, or whose EWMA latency
+ * exceeds its deadline times {@code slow-latency-ratio}, is ejected for
+ * {@code ejection-ms} once it has {@code min-samples} outcomes. While ejected it gets
+ * one probe call per ejection period; a successful probe clears its window and
+ * readmits it. The healthiest provider is never skipped, so a route is not left
+ * without external quotes.
+ */
+@Component
+@Slf4j
+public class ProviderHealthEngine {
+
+  private static final int SUCCESS = 0;
+  private static final int ERROR = 1;
+  private static final int TIMEOUT = 2;
+
+  private final MeterRegistry meterRegistry;
+  private final int windowSize;
+  private final double alpha;
+  private final int minSamples;
+  private final double maxFailureRate;
+  private final double slowLatencyRatio;
+  private final long ejectionNanos;
+  private final Map<String, ProviderHealth> health = new ConcurrentHashMap<>();
+
+  public ProviderHealthEngine(List<ShippingProviderClient> providers, MeterRegistry meterRegistry,
+      @Value("${shipping.providers.health.window-size:100}") int windowSize,
+      @Value("${shipping.providers.health.ewma-alpha:0.2}") double alpha,
+      @Value("${shipping.providers.health.min-samples:20}") int minSamples,
+      @Value("${shipping.providers.health.max-failure-rate:0.5}") double maxFailureRate,
+      @Value("${shipping.providers.health.slow-latency-ratio:1.0}") double slowLatencyRatio,
+      @Value("${shipping.providers.health.ejection-ms:30000}") long ejectionMs) {
+    this.meterRegistry = meterRegistry;
+    this.windowSize = Math.max(1, windowSize);
+    this.alpha = alpha;
+    this.minSamples = Math.min(minSamples, this.windowSize);
+    this.maxFailureRate = maxFailureRate;
+    this.slowLatencyRatio = slowLatencyRatio;
+    this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionMs);
+
+    providers.forEach(provider -> health(provider.getProviderName()));
+  }
+
+  /**
+   * Record a completed provider call
+   *
+   * @param deadlineMs The provider's deadline; slower calls count as timeouts
+   */
+  public void record(String providerName, long latencyNanos, boolean failed, long deadlineMs) {
+    long latencyMs = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+    int outcome = latencyMs > deadlineMs ? TIMEOUT : failed ? ERROR : SUCCESS;
+    ProviderHealth provider = health(providerName);
+    provider.record(latencyMs, outcome);
+
+    long now = System.nanoTime();
+    if (provider.isEjected()) {
+      if (outcome == SUCCESS) {
+        provider.readmit();
+        log.info("Provider {} answered its probe, readmitting it", providerName);
+      }
+      return;
+    }
+
+    Stats stats = provider.stats();
+    if (stats.samples() >= minSamples && (stats.errorRate() + stats.timeoutRate() >= maxFailureRate
+        || stats.ewmaLatencyMs() > deadlineMs * slowLatencyRatio)) {
+      provider.eject(now);
+      log.warn("Ejecting provider {} for {} ms: {}", providerName,
+          TimeUnit.NANOSECONDS.toMillis(ejectionNanos), stats);
+    }
+  }
+
+  /**
+   * The providers to query, healthiest first; ejected providers are left out unless due a probe
+   */
+  public List<ShippingProviderClient> rank(List<ShippingProviderClient> providers) {
+    if (providers.size() <= 1) {
+      return providers;
+    }
+
+    long now = System.nanoTime();
+    Map<ShippingProviderClient, Double> scores = new HashMap<>();
+    providers.forEach(provider -> scores.put(provider, health(provider.getProviderName()).stats().score()));
+    List<ShippingProviderClient> ranked = new ArrayList<>(providers);
+    ranked.sort(Comparator.comparingDouble(scores::get));
+
+    List<ShippingProviderClient> selected = new ArrayList<>(ranked.size());
+    for (ShippingProviderClient provider : ranked) {
+      if (health(provider.getProviderName()).admit(now)) {
+        selected.add(provider);
+      }
+    }
+    return selected.isEmpty() ? List.of(ranked.get(0)) : selected;
+  }
+
+  /**
+   * Latency percentile of the provider's recent answered calls, or -1 until it has {@code min-samples} of them
+   *
+   * @param percentile Between 0 and 1, e.g. 0.95
+   */
+  public long latencyPercentileMs(String providerName, double percentile) {
+    return health(providerName).latencyPercentileMs(percentile, minSamples);
+  }
+
+  /**
+   * Current statistics for the provider
+   */
+  public Stats stats(String providerName) {
+    return health(providerName).stats();
+  }
+
+  private ProviderHealth health(String providerName) {
+    return health.computeIfAbsent(providerName, name -> {
+      Counter ejections = Counter.builder("shipping.providers.health.ejections")
+          .description("Times the provider was ejected for failures or latency")
+          .tag("provider", name)
+          .register(meterRegistry);
+      ProviderHealth provider = new ProviderHealth(windowSize, alpha, ejectionNanos, ejections);
+      Gauge.builder("shipping.providers.health.latency.ewma", provider, p -> p.stats().ewmaLatencyMs())
+          .description("Exponentially weighted provider call latency")
+          .baseUnit("milliseconds")
+          .tag("provider", name)
+          .register(meterRegistry);
+      Gauge.builder("shipping.providers.health.failure.rate", provider,
+              p -> p.stats().errorRate() + p.stats().timeoutRate())
+          .description("Share of errors and timeouts in the provider's recent calls")
+          .tag("provider", name)
+          .register(meterRegistry);
+      Gauge.builder("shipping.providers.health.ejected", provider, p -> p.isEjected() ? 1 : 0)
+          .description("Whether the provider is ejected from quote fan-outs")
+          .tag("provider", name)
+          .register(meterRegistry);
+      return provider;
+    });
+  }
+
+  /**
+   * @param score Estimated milliseconds to a successful answer; lower is better
+   */
+  public record Stats(int samples, double ewmaLatencyMs, double errorRate, double timeoutRate, double score,
+      boolean ejected) {
+  }
+
+  private static final class ProviderHealth {
+
+    private static final long NO_LATENCY = Double.doubleToLongBits(-1);
+
+    // Each slot packs latency ms << 3 | outcome << 1 | 1; zero marks an empty slot
+    private final AtomicLongArray outcomes;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong ewmaLatency = new AtomicLong(NO_LATENCY);
+    private final AtomicLong ejectedUntil = new AtomicLong();
+    private final double alpha;
+    private final long ejectionNanos;
+    private final Counter ejections;
+
+    ProviderHealth(int windowSize, double alpha, long ejectionNanos, Counter ejections) {
+      this.outcomes = new AtomicLongArray(windowSize);
+      this.alpha = alpha;
+      this.ejectionNanos = ejectionNanos;
+      this.ejections = ejections;
+    }
+
+    void record(long latencyMs, int outcome) {
+      int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+      outcomes.set(slot, latencyMs << 3 | (long) outcome << 1 | 1);
+
+      long current;
+      long next;
+      do {
+        current = ewmaLatency.get();
+        double previous = Double.longBitsToDouble(current);
+        next = Double.doubleToLongBits(previous < 0 ? latencyMs : previous + alpha * (latencyMs - previous));
+      } while (!ewmaLatency.compareAndSet(current, next));
+    }
+
+    Stats stats() {
+      int samples = 0;
+      int errors = 0;
+      int timeouts = 0;
+      for (int i = 0; i < outcomes.length(); i++) {
+        long entry = outcomes.get(i);
+        if (entry == 0) {
+          continue;
+        }
+        samples++;
+        int outcome = (int) (entry >>> 1 & 0b11);
+        if (outcome == ERROR) {
+          errors++;
+        } else if (outcome == TIMEOUT) {
+          timeouts++;
+        }
+      }
+
+      double latency = Math.max(0, Double.longBitsToDouble(ewmaLatency.get()));
+      double errorRate = samples == 0 ? 0 : (double) errors / samples;
+      double timeoutRate = samples == 0 ? 0 : (double) timeouts / samples;
+      double successRate = Math.max(0.05, 1 - errorRate - timeoutRate);
+      return new Stats(samples, latency, errorRate, timeoutRate, latency / successRate, isEjected());
+    }
+
+    long latencyPercentileMs(double percentile, int minSamples) {
+      long[] latencies = new long[outcomes.length()];
+      int count = 0;
+      for (int i = 0; i < outcomes.length(); i++) {
+        long entry = outcomes.get(i);
+        // Errors often fail fast and would pull the percentile down
+        if (entry != 0 && (int) (entry >>> 1 & 0b11) != ERROR) {
+          latencies[count++] = entry >>> 3;
+        }
+      }
+      if (count == 0 || count < minSamples) {
+        return -1;
+      }
+      Arrays.sort(latencies, 0, count);
+      return latencies[Math.max(0, (int) Math.ceil(percentile * count) - 1)];
+    }
+
+    boolean isEjected() {
+      return ejectedUntil.get() != 0;
+    }
+
+    /**
+     * Whether the provider takes part in a fan-out now; an ejected provider claims one probe per period
+     */
+    boolean admit(long now) {
+      long until = ejectedUntil.get();
+      return until == 0 || (now - until >= 0 && ejectedUntil.compareAndSet(until, now + ejectionNanos));
+    }
+
+    void eject(long now) {
+      if (ejectedUntil.compareAndSet(0, now + ejectionNanos)) {
+        ejections.increment();
+      }
+    }
+
+    void readmit() {
+      for (int i = 0; i < outcomes.length(); i++) {
+        outcomes.set(i, 0);
+      }
+      ejectedUntil.set(0);
+    }
+  }
+}
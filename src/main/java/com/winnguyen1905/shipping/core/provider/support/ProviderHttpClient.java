@@ -0,0 +1,180 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * JSON over HTTP for one shipping provider, on a shared pooled {@link HttpClient}.
+ *
+ * Requests ask for gzip and are decompressed transparently. At most
+ * {@code max-connections} requests are in flight at once, which bounds the HTTP/1.1
+ * keep-alive connections the client opens; HTTP/2 origins multiplex them onto a single
+ * connection. A request that waits longer than {@code acquire-timeout-ms} for a slot
+ * fails without being sent.
+ */
+public class ProviderHttpClient {
+
+  private final String providerName;
+  private final HttpClient httpClient;
+  private final ObjectMapper objectMapper;
+  private final Duration requestTimeout;
+  private final long acquireTimeoutMs;
+  private final int maxConnections;
+  private final Semaphore connections;
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final MeterRegistry meterRegistry;
+
+  ProviderHttpClient(String providerName, HttpClient httpClient, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+      Duration requestTimeout, int maxConnections, long acquireTimeoutMs) {
+    this.providerName = providerName;
+    this.httpClient = httpClient;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+    this.requestTimeout = requestTimeout;
+    this.maxConnections = Math.max(1, maxConnections);
+    this.acquireTimeoutMs = acquireTimeoutMs;
+    this.connections = new Semaphore(this.maxConnections);
+
+    Gauge.builder("shipping.providers.http.connections.active", active, AtomicInteger::get)
+        .description("Provider HTTP requests in flight")
+        .tag("provider", providerName)
+        .register(meterRegistry);
+    Gauge.builder("shipping.providers.http.connections.pending", pending, AtomicInteger::get)
+        .description("Provider HTTP requests waiting for a connection slot")
+        .tag("provider", providerName)
+        .register(meterRegistry);
+    Gauge.builder("shipping.providers.http.connections.max", this, client -> client.maxConnections)
+        .description("Maximum concurrent provider HTTP requests")
+        .tag("provider", providerName)
+        .register(meterRegistry);
+  }
+
+  /**
+   * POST the body as JSON and read the JSON response
+   */
+  public <T> T postJson(URI uri, Map<String, String> headers, Object body, TypeReference<T> responseType) {
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(body);
+    } catch (JsonProcessingException e) {
+      throw new ProviderHttpException(providerName, 0, "Could not serialize request: " + e.getMessage(), e);
+    }
+    HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8));
+    return send(request, headers, responseType);
+  }
+
+  /**
+   * GET the URI and read the JSON response
+   */
+  public <T> T getJson(URI uri, Map<String, String> headers, TypeReference<T> responseType) {
+    return send(HttpRequest.newBuilder(uri).GET(), headers, responseType);
+  }
+
+  private <T> T send(HttpRequest.Builder builder, Map<String, String> headers, TypeReference<T> responseType) {
+    builder.timeout(requestTimeout)
+        .header("Accept", "application/json")
+        .header("Accept-Encoding", "gzip");
+    headers.forEach(builder::header);
+    HttpRequest request = builder.build();
+
+    acquire();
+    active.incrementAndGet();
+    long started = System.nanoTime();
+    String status = "IO_ERROR";
+    String protocol = "UNKNOWN";
+    try {
+      HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      status = Integer.toString(response.statusCode());
+      protocol = response.version().name();
+      try (InputStream body = decode(response)) {
+        if (response.statusCode() >= 400) {
+          String error = new String(body.readNBytes(512), StandardCharsets.UTF_8);
+          throw new ProviderHttpException(providerName, response.statusCode(), error, null);
+        }
+        return objectMapper.readValue(body, responseType);
+      }
+    } catch (IOException e) {
+      throw new ProviderHttpException(providerName, 0, e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProviderHttpException(providerName, 0, "Interrupted", e);
+    } finally {
+      active.decrementAndGet();
+      connections.release();
+      Timer.builder("shipping.providers.http.requests")
+          .description("Provider HTTP requests by status and negotiated protocol")
+          .tag("provider", providerName)
+          .tag("status", status)
+          .tag("protocol", protocol)
+          .register(meterRegistry)
+          .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void acquire() {
+    pending.incrementAndGet();
+    try {
+      if (!connections.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new ProviderHttpException(providerName, 0, "No connection slot within " + acquireTimeoutMs + " ms",
+            null);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProviderHttpException(providerName, 0, "Interrupted waiting for a connection slot", e);
+    } finally {
+      pending.decrementAndGet();
+    }
+  }
+
+  private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+    boolean gzip = response.headers().firstValue("Content-Encoding")
+        .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+        .orElse(false);
+    return gzip ? new GZIPInputStream(response.body()) : response.body();
+  }
+
+  /**
+   * A provider request that failed or was answered with an error status; status is 0 when no response arrived
+   */
+  public static class ProviderHttpException extends RuntimeException {
+
+    private final String providerName;
+    private final int status;
+
+    public ProviderHttpException(String providerName, int status, String message, Throwable cause) {
+      super(providerName + " request failed" + (status > 0 ? " with status " + status : "") + ": " + message, cause);
+      this.providerName = providerName;
+      this.status = status;
+    }
+
+    public String getProviderName() {
+      return providerName;
+    }
+
+    public int getStatus() {
+      return status;
+    }
+  }
+}
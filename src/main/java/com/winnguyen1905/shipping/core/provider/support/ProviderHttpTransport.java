@@ -0,0 +1,91 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HTTP transport for shipping provider clients.
+ *
+ * Each provider gets one long-lived {@link ProviderHttpClient}, created on first use
+ * from {@code shipping.providers.<name>}: {@code timeout-seconds} bounds each request,
+ * and {@code http.max-connections}, {@code http.connect-timeout-ms},
+ * {@code http.acquire-timeout-ms} and {@code http.version} tune its pool. Unset values
+ * fall back to {@code shipping.providers.http.*} and
+ * {@code shipping.timeout.provider-call-seconds}.
+ */
+@Component
+@Slf4j
+public class ProviderHttpTransport {
+
+  private final Environment environment;
+  private final ObjectMapper objectMapper;
+  private final MeterRegistry meterRegistry;
+  private final int defaultTimeoutSeconds;
+  private final int defaultMaxConnections;
+  private final long defaultConnectTimeoutMs;
+  private final long defaultAcquireTimeoutMs;
+  private final Map<String, HttpClient> httpClients = new ConcurrentHashMap<>();
+  private final Map<String, ProviderHttpClient> clients = new ConcurrentHashMap<>();
+
+  public ProviderHttpTransport(Environment environment, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+      @Value("${shipping.timeout.provider-call-seconds:30}") int defaultTimeoutSeconds,
+      @Value("${shipping.providers.http.max-connections:20}") int defaultMaxConnections,
+      @Value("${shipping.providers.http.connect-timeout-ms:2000}") long defaultConnectTimeoutMs,
+      @Value("${shipping.providers.http.acquire-timeout-ms:1000}") long defaultAcquireTimeoutMs) {
+    this.environment = environment;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+    this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+    this.defaultMaxConnections = defaultMaxConnections;
+    this.defaultConnectTimeoutMs = defaultConnectTimeoutMs;
+    this.defaultAcquireTimeoutMs = defaultAcquireTimeoutMs;
+  }
+
+  /**
+   * The HTTP client for the provider, keyed by its configuration name (e.g. {@code easypost})
+   */
+  public ProviderHttpClient client(String providerKey) {
+    return clients.computeIfAbsent(providerKey, this::createClient);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    httpClients.values().forEach(HttpClient::close);
+  }
+
+  private ProviderHttpClient createClient(String providerKey) {
+    String prefix = "shipping.providers." + providerKey + ".";
+    int timeoutSeconds = environment.getProperty(prefix + "timeout-seconds", Integer.class, defaultTimeoutSeconds);
+    int maxConnections = environment.getProperty(prefix + "http.max-connections", Integer.class,
+        defaultMaxConnections);
+    long connectTimeoutMs = environment.getProperty(prefix + "http.connect-timeout-ms", Long.class,
+        defaultConnectTimeoutMs);
+    long acquireTimeoutMs = environment.getProperty(prefix + "http.acquire-timeout-ms", Long.class,
+        defaultAcquireTimeoutMs);
+    HttpClient.Version version = environment.getProperty(prefix + "http.version", HttpClient.Version.class,
+        HttpClient.Version.HTTP_2);
+
+    HttpClient httpClient = HttpClient.newBuilder()
+        .version(version)
+        .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .build();
+    httpClients.put(providerKey, httpClient);
+
+    log.info("Created {} HTTP client for provider {} with {} connections and a {} s timeout",
+        version, providerKey, maxConnections, timeoutSeconds);
+    return new ProviderHttpClient(providerKey, httpClient, objectMapper, meterRegistry,
+        Duration.ofSeconds(timeoutSeconds), maxConnections, acquireTimeoutMs);
+  }
+}
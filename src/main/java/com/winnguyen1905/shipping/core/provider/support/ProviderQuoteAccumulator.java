@@ -0,0 +1,98 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Collects the outcome of each provider call in one quote fan-out.
+ *
+ * Provider threads record their outcome once, with the time it arrived; the request
+ * thread takes a {@link Snapshot} at its deadline. Providers that had not answered
+ * within their own deadline appear as unavailable with a {@code PROVIDER_TIMEOUT}
+ * error and the snapshot is partial; a later snapshot without deadlines includes
+ * their late results. Recorded option lists are never modified, so snapshots can be
+ * taken at any time.
+ */
+public class ProviderQuoteAccumulator {
+
+  private final List<String> providerNames;
+  private final Map<String, Outcome> outcomes = new ConcurrentHashMap<>();
+
+  /**
+   * @param providerNames Providers queried, in the order their options should be listed
+   */
+  public ProviderQuoteAccumulator(List<String> providerNames) {
+    this.providerNames = List.copyOf(providerNames);
+  }
+
+  /**
+   * Record the result of a provider call; only the first outcome per provider counts
+   */
+  public void record(String providerName, List<ShippingQuoteResponse.ShippingOption> options, Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    outcomes.putIfAbsent(providerName, new Outcome(options != null ? List.copyOf(options) : List.of(), cause,
+        System.nanoTime()));
+  }
+
+  /**
+   * Results that arrived by each provider's deadline, in {@link System#nanoTime()} terms;
+   * providers without an entry have no deadline
+   */
+  public Snapshot snapshot(Map<String, Long> deadlineNanos) {
+    List<ShippingQuoteResponse.ShippingOption> options = new ArrayList<>();
+    List<String> available = new ArrayList<>();
+    List<String> unavailable = new ArrayList<>();
+    List<ShippingQuoteResponse.ProviderError> errors = new ArrayList<>();
+    boolean partial = false;
+
+    for (String providerName : providerNames) {
+      Outcome outcome = outcomes.get(providerName);
+      Long deadline = deadlineNanos.get(providerName);
+      if (outcome == null || (deadline != null && outcome.arrivedAtNanos() - deadline > 0)) {
+        partial = true;
+        unavailable.add(providerName);
+        errors.add(ShippingQuoteResponse.ProviderError.builder()
+            .provider(providerName)
+            .errorCode("PROVIDER_TIMEOUT")
+            .errorMessage("No response within the provider deadline")
+            .fallbackUsed("Internal calculation")
+            .build());
+      } else if (outcome.error() != null) {
+        unavailable.add(providerName);
+        errors.add(ShippingQuoteResponse.ProviderError.builder()
+            .provider(providerName)
+            .errorCode(outcome.error() instanceof RejectedExecutionException ? "PROVIDER_BUSY" : "PROVIDER_ERROR")
+            .errorMessage(outcome.error().getMessage())
+            .fallbackUsed("Internal calculation")
+            .build());
+      } else {
+        available.add(providerName);
+        options.addAll(outcome.options());
+      }
+    }
+    return new Snapshot(options, available, unavailable, errors, partial);
+  }
+
+  /**
+   * Everything recorded so far, ignoring deadlines
+   */
+  public Snapshot snapshot() {
+    return snapshot(Map.of());
+  }
+
+  public record Snapshot(List<ShippingQuoteResponse.ShippingOption> options,
+      List<String> availableProviders,
+      List<String> unavailableProviders,
+      List<ShippingQuoteResponse.ProviderError> providerErrors,
+      boolean partial) {
+  }
+
+  private record Outcome(List<ShippingQuoteResponse.ShippingOption> options, Throwable error, long arrivedAtNanos) {
+  }
+}
@@ -0,0 +1,230 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Per-provider cache of rating responses, keyed on what the carrier bills on rather
+ * than on the whole quote request.
+ *
+ * The key is the origin and destination country and postal area (a prefix of the
+ * zip), whether both ends are in the same city, the chargeable weight (the larger of
+ * the actual and the provider's dimensional weight) rounded up to the provider's
+ * weight step, the handling flags and, for insured shipments, the declared value. On
+ * a miss the provider is asked to rate the package at that rounded chargeable weight,
+ * so for a carrier that prices on nothing but these fields the cached options are what
+ * every request with the same key would be billed; the misses of a batch are rated in
+ * one provider call. Packages the provider does not accept are passed through uncached.
+ *
+ * Settings are {@code shipping.providers.rate-cache.*}, overridden per provider with
+ * {@code shipping.providers.<provider>.rate-cache.*}. The default TTL is 0, so no
+ * provider is cached until it sets its own TTL, and that is only correct for a carrier
+ * known to bill on exactly the key: postal area rather than street, and the larger of
+ * actual and dimensional weight. A provider whose options carry per-shipment ids, such
+ * as EasyPost rate ids, or that bills actual weight only must stay off. The default
+ * weight step of one gram leaves prices unchanged; a coarser step raises the price of
+ * every package below it, so it belongs only in the override of a provider whose
+ * carrier bills in that increment. Cached option lists are shared and must be treated
+ * as read-only.
+ */
+@Component
+public class ProviderResponseCache {
+
+  private final Environment environment;
+  private final MeterRegistry meterRegistry;
+  private final long defaultTtlSeconds;
+  private final long defaultMaxSize;
+  private final BigDecimal defaultWeightStepKg;
+  private final int defaultPostalPrefixLength;
+  private final Map<String, Optional<ProviderCache>> caches = new ConcurrentHashMap<>();
+
+  public ProviderResponseCache(Environment environment, MeterRegistry meterRegistry,
+      @Value("${shipping.providers.rate-cache.ttl-seconds:0}") long defaultTtlSeconds,
+      @Value("${shipping.providers.rate-cache.max-size:10000}") long defaultMaxSize,
+      @Value("${shipping.providers.rate-cache.weight-step-kg:0.001}") BigDecimal defaultWeightStepKg,
+      @Value("${shipping.providers.rate-cache.postal-prefix-length:3}") int defaultPostalPrefixLength) {
+    this.environment = environment;
+    this.meterRegistry = meterRegistry;
+    this.defaultTtlSeconds = defaultTtlSeconds;
+    this.defaultMaxSize = defaultMaxSize;
+    this.defaultWeightStepKg = defaultWeightStepKg;
+    this.defaultPostalPrefixLength = defaultPostalPrefixLength;
+  }
+
+  /**
+   * Return the cached options for each request's billable key and rate the rest in one
+   * call: each missing key once, at its billable weight, and uncacheable requests as
+   * they are. Results are index-aligned with the requests; empty results are not cached
+   *
+   * @param rate Rates requests, returning options index-aligned with them
+   */
+  public List<List<ShippingQuoteResponse.ShippingOption>> getOrRate(ShippingProviderClient provider,
+      List<ShippingQuoteRequest> requests,
+      Function<List<ShippingQuoteRequest>, List<List<ShippingQuoteResponse.ShippingOption>>> rate) {
+    Optional<ProviderCache> cache = cache(provider.getProviderName());
+    if (cache.isEmpty()) {
+      return rate.apply(requests);
+    }
+
+    ProviderCache providerCache = cache.get();
+    List<List<ShippingQuoteResponse.ShippingOption>> results = new ArrayList<>(
+        Collections.nCopies(requests.size(), null));
+    List<ShippingQuoteRequest> toRate = new ArrayList<>();
+    List<String> toRateKeys = new ArrayList<>(); // null for an uncacheable request
+    List<List<Integer>> toRateIndexes = new ArrayList<>();
+    Map<String, List<Integer>> indexesByKey = new HashMap<>();
+    for (int i = 0; i < requests.size(); i++) {
+      ShippingQuoteRequest request = requests.get(i);
+      if (!isCacheable(provider, request)) {
+        toRate.add(request);
+        toRateKeys.add(null);
+        toRateIndexes.add(List.of(i));
+        continue;
+      }
+
+      BigDecimal billableWeight = providerCache.billableWeight(provider, request.getPackageInfo());
+      String key = providerCache.key(request, billableWeight);
+      List<ShippingQuoteResponse.ShippingOption> cached = providerCache.responses.getIfPresent(key);
+      if (cached != null) {
+        results.set(i, cached);
+        continue;
+      }
+      List<Integer> sameKey = indexesByKey.get(key);
+      if (sameKey != null) {
+        sameKey.add(i);
+        continue;
+      }
+      sameKey = new ArrayList<>(List.of(i));
+      indexesByKey.put(key, sameKey);
+      toRate.add(request.toBuilder()
+          .packageInfo(request.getPackageInfo().toBuilder().weight(billableWeight).build())
+          .build());
+      toRateKeys.add(key);
+      toRateIndexes.add(sameKey);
+    }
+
+    if (!toRate.isEmpty()) {
+      List<List<ShippingQuoteResponse.ShippingOption>> rated = rate.apply(toRate);
+      for (int j = 0; j < toRate.size(); j++) {
+        List<ShippingQuoteResponse.ShippingOption> options = rated.get(j);
+        if (toRateKeys.get(j) != null && !options.isEmpty()) {
+          options = List.copyOf(options);
+          providerCache.responses.put(toRateKeys.get(j), options);
+        }
+        for (int index : toRateIndexes.get(j)) {
+          results.set(index, options);
+        }
+      }
+    }
+    return results;
+  }
+
+  private boolean isCacheable(ShippingProviderClient provider, ShippingQuoteRequest request) {
+    ShippingQuoteRequest.PackageInfo packageInfo = request.getPackageInfo();
+    return request.isSingleVendorRequest()
+        && request.getVendor().getAddress() != null
+        && request.getCustomer().getAddress() != null
+        && packageInfo.getWeight() != null
+        && packageInfo.getDimensions() != null
+        && packageInfo.getDeclaredValue() != null
+        && provider.supportsPackage(packageInfo.getWeight(), packageInfo.getDimensions(),
+            packageInfo.getDeclaredValue());
+  }
+
+  private Optional<ProviderCache> cache(String providerName) {
+    return caches.computeIfAbsent(providerName, name -> {
+      String prefix = "shipping.providers." + name.toLowerCase() + ".rate-cache.";
+      long ttlSeconds = environment.getProperty(prefix + "ttl-seconds", Long.class, defaultTtlSeconds);
+      if (ttlSeconds <= 0) {
+        return Optional.empty();
+      }
+      Cache<String, List<ShippingQuoteResponse.ShippingOption>> responses = Caffeine.newBuilder()
+          .maximumSize(environment.getProperty(prefix + "max-size", Long.class, defaultMaxSize))
+          .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+          .recordStats()
+          .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, responses, "shipping_provider_responses", "provider", name);
+      return Optional.of(new ProviderCache(name, responses,
+          environment.getProperty(prefix + "weight-step-kg", BigDecimal.class, defaultWeightStepKg),
+          environment.getProperty(prefix + "postal-prefix-length", Integer.class, defaultPostalPrefixLength)));
+    });
+  }
+
+  private static final class ProviderCache {
+
+    private final String providerName;
+    private final Cache<String, List<ShippingQuoteResponse.ShippingOption>> responses;
+    private final BigDecimal weightStepKg;
+    private final int postalPrefixLength;
+
+    ProviderCache(String providerName, Cache<String, List<ShippingQuoteResponse.ShippingOption>> responses,
+        BigDecimal weightStepKg, int postalPrefixLength) {
+      this.providerName = providerName;
+      this.responses = responses;
+      this.weightStepKg = weightStepKg.signum() > 0 ? weightStepKg : new BigDecimal("0.001");
+      this.postalPrefixLength = Math.max(0, postalPrefixLength);
+    }
+
+    /**
+     * Larger of actual and dimensional weight, rounded up to the weight step
+     */
+    BigDecimal billableWeight(ShippingProviderClient provider, ShippingQuoteRequest.PackageInfo packageInfo) {
+      BigDecimal chargeable = packageInfo.getWeight()
+          .max(provider.calculateDimensionalWeight(packageInfo.getDimensions()));
+      return chargeable.divide(weightStepKg, 0, RoundingMode.CEILING)
+          .multiply(weightStepKg)
+          .stripTrailingZeros();
+    }
+
+    String key(ShippingQuoteRequest request, BigDecimal billableWeight) {
+      ShippingQuoteRequest.AddressInfo origin = request.getVendor().getAddress();
+      ShippingQuoteRequest.AddressInfo destination = request.getCustomer().getAddress();
+      ShippingQuoteRequest.PackageInfo packageInfo = request.getPackageInfo();
+      boolean insured = Boolean.TRUE.equals(request.getRequireInsurance());
+      boolean sameCity = origin.getCity() != null && origin.getCity().equalsIgnoreCase(destination.getCity());
+
+      return String.join("|",
+          providerName,
+          String.valueOf(origin.getCountry()),
+          postalArea(origin.getZip()),
+          String.valueOf(destination.getCountry()),
+          postalArea(destination.getZip()),
+          sameCity ? "C" : "-",
+          billableWeight.toPlainString(),
+          (Boolean.TRUE.equals(packageInfo.getIsFragile()) ? "F" : "-")
+              + (Boolean.TRUE.equals(packageInfo.getIsLiquid()) ? "L" : "-")
+              + (Boolean.TRUE.equals(packageInfo.getIsHazardous()) ? "H" : "-"),
+          insured ? packageInfo.getDeclaredValue().stripTrailingZeros().toPlainString() : "-",
+          String.valueOf(request.getPreferredCurrency()));
+    }
+
+    private String postalArea(String zip) {
+      if (zip == null) {
+        return "";
+      }
+      String normalized = zip.replace(" ", "").toUpperCase(Locale.ROOT);
+      return normalized.length() <= postalPrefixLength ? normalized : normalized.substring(0, postalPrefixLength);
+    }
+  }
+}
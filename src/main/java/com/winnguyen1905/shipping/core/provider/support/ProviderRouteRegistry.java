@@ -0,0 +1,177 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Precomputed route coverage of the shipping providers.
+ *
+ * At startup every provider is asked once for each origin and destination among the
+ * countries any provider supports, and the answers are stored as one provider bitmask
+ * per route, indexed by ISO country code. Selecting the providers for a route is then
+ * an array lookup instead of calling {@code supportsRoute} and scanning country lists
+ * on every request. Countries no provider lists are not covered. The matrix is rebuilt
+ * when {@code shipping.providers.*} configuration changes or on {@link #refresh()}.
+ *
+ * Provider availability is not part of the matrix; callers still check
+ * {@link ShippingProviderClient#isAvailable()} on the providers returned.
+ */
+@Component
+@Slf4j
+public class ProviderRouteRegistry {
+
+  private static final int LETTERS = 26;
+  private static final int MAX_PROVIDERS = Long.SIZE;
+
+  private final List<ShippingProviderClient> providers;
+  private volatile RouteMatrix matrix;
+
+  public ProviderRouteRegistry(List<ShippingProviderClient> providers) {
+    if (providers.size() > MAX_PROVIDERS) {
+      throw new IllegalStateException("At most " + MAX_PROVIDERS + " shipping providers are supported");
+    }
+    this.providers = List.copyOf(providers);
+    this.matrix = build();
+  }
+
+  /**
+   * Providers that serve the route, in registration order
+   */
+  public List<ShippingProviderClient> providersForRoute(String originCountry, String destinationCountry) {
+    RouteMatrix current = matrix;
+    int origin = current.indexOf(originCountry);
+    int destination = current.indexOf(destinationCountry);
+    if (origin < 0 || destination < 0) {
+      return List.of();
+    }
+    return select(current.routes()[origin * current.countries().length + destination]);
+  }
+
+  /**
+   * Providers that list the destination among their supported countries, for routes with several origins
+   */
+  public List<ShippingProviderClient> providersForDestination(String destinationCountry) {
+    RouteMatrix current = matrix;
+    int destination = current.indexOf(destinationCountry);
+    return destination < 0 ? List.of() : select(current.destinations()[destination]);
+  }
+
+  /**
+   * Route coverage as provider -> origin country -> destination countries
+   */
+  public Map<String, Map<String, List<String>>> coverage() {
+    RouteMatrix current = matrix;
+    String[] countries = current.countries();
+    Map<String, Map<String, List<String>>> coverage = new LinkedHashMap<>();
+    for (int p = 0; p < providers.size(); p++) {
+      long bit = 1L << p;
+      Map<String, List<String>> origins = new LinkedHashMap<>();
+      for (int o = 0; o < countries.length; o++) {
+        List<String> destinations = new ArrayList<>();
+        for (int d = 0; d < countries.length; d++) {
+          if ((current.routes()[o * countries.length + d] & bit) != 0) {
+            destinations.add(countries[d]);
+          }
+        }
+        if (!destinations.isEmpty()) {
+          origins.put(countries[o], destinations);
+        }
+      }
+      coverage.put(providers.get(p).getProviderName(), origins);
+    }
+    return coverage;
+  }
+
+  /**
+   * Rebuild the matrix from the providers' current route support
+   */
+  public void refresh() {
+    matrix = build();
+  }
+
+  @EventListener
+  public void onEnvironmentChange(EnvironmentChangeEvent event) {
+    if (event.getKeys().stream().anyMatch(key -> key.startsWith("shipping.providers."))) {
+      log.info("Shipping provider configuration changed, rebuilding route matrix");
+      refresh();
+    }
+  }
+
+  private List<ShippingProviderClient> select(long mask) {
+    List<ShippingProviderClient> selected = new ArrayList<>(Long.bitCount(mask));
+    for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+      selected.add(providers.get(Long.numberOfTrailingZeros(remaining)));
+    }
+    return selected;
+  }
+
+  private RouteMatrix build() {
+    TreeSet<String> known = new TreeSet<>();
+    List<List<String>> supported = new ArrayList<>(providers.size());
+    for (ShippingProviderClient provider : providers) {
+      List<String> countries = provider.getSupportedCountries().stream()
+          .filter(ProviderRouteRegistry::isCountryCode)
+          .toList();
+      supported.add(countries);
+      known.addAll(countries);
+    }
+
+    String[] countries = known.toArray(String[]::new);
+    short[] index = new short[LETTERS * LETTERS];
+    Arrays.fill(index, (short) -1);
+    for (int i = 0; i < countries.length; i++) {
+      index[slot(countries[i])] = (short) i;
+    }
+
+    long[] routes = new long[countries.length * countries.length];
+    long[] destinations = new long[countries.length];
+    for (int p = 0; p < providers.size(); p++) {
+      ShippingProviderClient provider = providers.get(p);
+      long bit = 1L << p;
+      for (String country : supported.get(p)) {
+        destinations[index[slot(country)]] |= bit;
+      }
+      for (int o = 0; o < countries.length; o++) {
+        for (int d = 0; d < countries.length; d++) {
+          if (provider.supportsRoute(countries[o], countries[d])) {
+            routes[o * countries.length + d] |= bit;
+          }
+        }
+      }
+    }
+
+    log.info("Built provider route matrix for {} providers over {} countries", providers.size(), countries.length);
+    return new RouteMatrix(countries, index, routes, destinations);
+  }
+
+  private static boolean isCountryCode(String country) {
+    return country != null && country.length() == 2
+        && country.charAt(0) >= 'A' && country.charAt(0) <= 'Z'
+        && country.charAt(1) >= 'A' && country.charAt(1) <= 'Z';
+  }
+
+  private static int slot(String country) {
+    return (country.charAt(0) - 'A') * LETTERS + (country.charAt(1) - 'A');
+  }
+
+  /**
+   * Provider bitmasks by route ({@code origin * countries + destination}) and by destination
+   */
+  private record RouteMatrix(String[] countries, short[] index, long[] routes, long[] destinations) {
+
+    int indexOf(String country) {
+      return isCountryCode(country) ? index[slot(country)] : -1;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.winnguyen1905.shipping.core.rating;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits bulk rate calculations into chunks of {@code shipping.rates.bulk.chunk-size}
+ * and runs up to {@code shipping.rates.bulk.concurrency} chunks at a time. The queue
+ * of pending chunks is bounded; when it is full the calling thread processes the
+ * chunk itself.
+ *
+ * Streams are processed the same way with flow control: at most twice the concurrency
+ * of chunks are in flight, so the producer stops reading input while the workers (or
+ * whatever they write to) are behind, and memory stays bounded by the chunk size
+ * whatever the stream length.
+ */
+@Component
+@Slf4j
+public class BulkRatingEngine {
+
+    /**
+     * Processes the items in {@code [fromIndex, toIndex)}
+     */
+    @FunctionalInterface
+    public interface ChunkProcessor {
+        void process(int fromIndex, int toIndex);
+    }
+
+    /**
+     * Processes one chunk of a stream; {@code firstIndex} is the position of its first item
+     */
+    @FunctionalInterface
+    public interface StreamChunkHandler<T> {
+        void handle(List<T> chunk, long firstIndex);
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    public BulkRatingEngine(@Value("${shipping.rates.bulk.concurrency:4}") int concurrency,
+                            @Value("${shipping.rates.bulk.chunk-size:100}") int chunkSize,
+                            @Value("${shipping.rates.bulk.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rate-bulk-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxChunksInFlight = Math.max(1, concurrency) * 2;
+    }
+
+    /**
+     * Process {@code itemCount} items chunk by chunk, returning once every chunk is done
+     */
+    public void processInChunks(int itemCount, ChunkProcessor processor) {
+        if (itemCount <= chunkSize) {
+            processor.process(0, itemCount);
+            return;
+        }
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>((itemCount + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < itemCount; from += chunkSize) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(from + chunkSize, itemCount);
+            chunks.add(CompletableFuture.runAsync(() -> processor.process(chunkFrom, chunkTo), executor));
+        }
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).join();
+        log.debug("Processed {} items in {} chunks", itemCount, chunks.size());
+    }
+
+    /**
+     * Pull items from the source in chunks and hand them to the handler on the executor,
+     * blocking the source while {@code maxChunksInFlight} chunks are unfinished. Stops
+     * reading after the first failed chunk and rethrows its error once in-flight chunks
+     * are done. Returns the number of items read.
+     */
+    public <T> long processStream(Iterator<T> source, StreamChunkHandler<T> handler) {
+        Semaphore inFlight = new Semaphore(maxChunksInFlight);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long itemCount = 0;
+        int chunkCount = 0;
+
+        try {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (failure.get() == null && source.hasNext()) {
+                chunk.add(source.next());
+                itemCount++;
+                if (chunk.size() == chunkSize || !source.hasNext()) {
+                    List<T> ready = chunk;
+                    long firstIndex = itemCount - ready.size();
+                    chunk = new ArrayList<>(chunkSize);
+                    chunkCount++;
+
+                    inFlight.acquireUninterruptibly();
+                    if (executor.isShutdown()) {
+                        inFlight.release();
+                        throw new IllegalStateException("Bulk rating engine is shut down");
+                    }
+                    executor.execute(() -> {
+                        try {
+                            handler.handle(ready, firstIndex);
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+        } finally {
+            // Wait for every chunk in flight before returning or rethrowing
+            inFlight.acquireUninterruptibly(maxChunksInFlight);
+            inFlight.release(maxChunksInFlight);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        log.debug("Streamed {} items in {} chunks", itemCount, chunkCount);
+        return itemCount;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
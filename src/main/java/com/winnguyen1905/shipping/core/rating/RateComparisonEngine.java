@@ -0,0 +1,170 @@
+package com.winnguyen1905.shipping.core.rating;
+
+import com.winnguyen1905.shipping.core.model.response.RateCalculationResponse;
+import com.winnguyen1905.shipping.persistance.entity.EShippingCarrier;
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Evaluates the candidate methods of every carrier in parallel for rate comparison.
+ *
+ * Candidates are loaded once for all carriers by the caller and grouped here by
+ * carrier; each group is rated on a bounded executor, never on the request thread, so
+ * the caller waits at most {@code shipping.rates.compare.carrier-timeout-ms}. Carriers
+ * still running by then are reported as timed out, and carriers the executor rejects
+ * because its queue is full are reported as failed; either way the comparison is
+ * marked partial instead of waiting for them.
+ */
+@Component
+@Slf4j
+public class RateComparisonEngine {
+
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_TIMED_OUT = "TIMED_OUT";
+
+    private final ThreadPoolExecutor executor;
+    private final long carrierTimeoutMs;
+    private final Timer compareTimer;
+
+    public RateComparisonEngine(MeterRegistry meterRegistry,
+                                @Value("${shipping.rates.compare.parallelism:8}") int parallelism,
+                                @Value("${shipping.rates.compare.queue-capacity:256}") int queueCapacity,
+                                @Value("${shipping.rates.compare.carrier-timeout-ms:2000}") long carrierTimeoutMs) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rate-compare-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.carrierTimeoutMs = carrierTimeoutMs;
+        this.compareTimer = Timer.builder("shipping.rates.compare")
+                .description("Rate comparison latency across carriers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rate every candidate, one task per carrier, and collect what finished in time
+     */
+    public Comparison compare(List<EShippingMethod> candidates,
+                              Function<EShippingMethod, RateCalculationResponse.ShippingRate> rater) {
+        long started = System.nanoTime();
+
+        Map<Integer, List<EShippingMethod>> byCarrier = new LinkedHashMap<>();
+        Map<Integer, EShippingCarrier> carriers = new LinkedHashMap<>();
+        for (EShippingMethod method : candidates) {
+            EShippingCarrier carrier = method.getCarrier();
+            if (!Boolean.TRUE.equals(carrier.getIsActive())) {
+                continue;
+            }
+            carriers.putIfAbsent(carrier.getCarrierId(), carrier);
+            byCarrier.computeIfAbsent(carrier.getCarrierId(), key -> new ArrayList<>()).add(method);
+        }
+
+        Map<Integer, CompletableFuture<CarrierRates>> tasks = new LinkedHashMap<>();
+        byCarrier.forEach((carrierId, methods) ->
+                tasks.put(carrierId, submit(carriers.get(carrierId), methods, rater)));
+
+        try {
+            CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture[0]))
+                    .get(carrierTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Rate comparison reached {} ms with carriers still running, returning partial results",
+                    carrierTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Failed carriers are reported individually below
+        }
+
+        List<RateCalculationResponse.ShippingRate> rates = new ArrayList<>();
+        List<RateCalculationResponse.CarrierResult> carrierResults = new ArrayList<>(tasks.size());
+        boolean partial = false;
+        long now = System.nanoTime();
+        for (Map.Entry<Integer, CompletableFuture<CarrierRates>> task : tasks.entrySet()) {
+            EShippingCarrier carrier = carriers.get(task.getKey());
+            RateCalculationResponse.CarrierResult.CarrierResultBuilder result = RateCalculationResponse.CarrierResult.builder()
+                    .carrierId(carrier.getCarrierId())
+                    .carrierName(carrier.getCarrierName());
+            CompletableFuture<CarrierRates> future = task.getValue();
+
+            if (!future.isDone()) {
+                future.cancel(false);
+                partial = true;
+                result.status(STATUS_TIMED_OUT).elapsedMs(TimeUnit.NANOSECONDS.toMillis(now - started)).rateCount(0);
+            } else if (future.isCompletedExceptionally()) {
+                partial = true;
+                Throwable cause = future.handle((ignored, error) -> error).join();
+                String message = cause != null && cause.getCause() != null ? cause.getCause().getMessage()
+                        : cause != null ? cause.getMessage() : null;
+                log.warn("Error calculating rates for carrier {}: {}", carrier.getCarrierName(), message);
+                result.status(STATUS_FAILED).elapsedMs(TimeUnit.NANOSECONDS.toMillis(now - started)).rateCount(0)
+                        .errorMessage(message);
+            } else {
+                CarrierRates carrierRates = future.join();
+                rates.addAll(carrierRates.rates());
+                result.status(STATUS_COMPLETED)
+                        .elapsedMs(TimeUnit.NANOSECONDS.toMillis(carrierRates.finishedAtNanos() - started))
+                        .rateCount(carrierRates.rates().size());
+            }
+            carrierResults.add(result.build());
+        }
+
+        compareTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return new Comparison(rates, carrierResults, partial);
+    }
+
+    private CompletableFuture<CarrierRates> submit(EShippingCarrier carrier, List<EShippingMethod> methods,
+                                                   Function<EShippingMethod, RateCalculationResponse.ShippingRate> rater) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                List<RateCalculationResponse.ShippingRate> rates = new ArrayList<>(methods.size());
+                for (EShippingMethod method : methods) {
+                    rates.add(rater.apply(method));
+                }
+                return new CarrierRates(rates, System.nanoTime());
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Rate comparison executor rejected carrier {}", carrier.getCarrierName());
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Rate comparison is busy, carrier not rated"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public record Comparison(List<RateCalculationResponse.ShippingRate> rates,
+                             List<RateCalculationResponse.CarrierResult> carrierResults,
+                             boolean partial) {
+    }
+
+    private record CarrierRates(List<RateCalculationResponse.ShippingRate> rates, long finishedAtNanos) {
+    }
+}
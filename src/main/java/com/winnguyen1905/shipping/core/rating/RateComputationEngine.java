@@ -0,0 +1,258 @@
+package com.winnguyen1905.shipping.core.rating;
+
+import com.winnguyen1905.shipping.common.constants.ShippingConstants;
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+import com.winnguyen1905.shipping.util.ShippingValidationUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rate arithmetic for shipping methods.
+ *
+ * The rate of a method is {@code base + perKg * weight + perItem * packages}, plus a
+ * fuel surcharge on that amount and, for insured shipments, an insurance fee on the
+ * declared value, rounded HALF_UP to two decimals. The method rates are compiled once
+ * into unscaled {@code long} coefficients and the whole sum is evaluated exactly in
+ * fixed point at a common scale, so the only rounding is the final HALF_UP step and
+ * the result is identical, value and scale, to evaluating the formula in
+ * {@link BigDecimal}. Inputs that do not fit (more than {@value #MAX_FIXED_POINT_SCALE}
+ * decimals, or an intermediate overflowing a {@code long}) take the {@link BigDecimal}
+ * path instead.
+ *
+ * With {@code shipping.rating.fixed-point.verify-sample-rate} above zero a sample of
+ * fixed-point results is recomputed in {@link BigDecimal}; a mismatch is logged,
+ * counted and answered with the reference result.
+ */
+@Component
+@Slf4j
+public class RateComputationEngine {
+
+    private static final int MAX_FIXED_POINT_SCALE = 9;
+    private static final int BPS_SCALE = 4;
+    private static final long BPS_ONE = 10_000L;
+    private static final long FUEL_FACTOR_BPS = BPS_ONE + ShippingConstants.FUEL_SURCHARGE_BPS;
+    private static final BigDecimal FUEL_SURCHARGE_RATE = BigDecimal.valueOf(ShippingConstants.FUEL_SURCHARGE_BPS, BPS_SCALE);
+    private static final BigDecimal INSURANCE_RATE = BigDecimal.valueOf(ShippingConstants.INSURANCE_RATE_BPS, BPS_SCALE);
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L,
+            100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private final Map<Integer, MethodCoefficients> coefficients = new ConcurrentHashMap<>();
+    private final double verifySampleRate;
+    private final Counter fixedPointCounter;
+    private final Counter referenceCounter;
+    private final Counter mismatchCounter;
+
+    public RateComputationEngine(MeterRegistry meterRegistry,
+                                 @Value("${shipping.rating.fixed-point.verify-sample-rate:0.0}") double verifySampleRate) {
+        this.verifySampleRate = verifySampleRate;
+        this.fixedPointCounter = Counter.builder("shipping.rating.computations")
+                .description("Shipping method rate computations")
+                .tag("path", "fixed-point")
+                .register(meterRegistry);
+        this.referenceCounter = Counter.builder("shipping.rating.computations")
+                .description("Shipping method rate computations")
+                .tag("path", "decimal")
+                .register(meterRegistry);
+        this.mismatchCounter = Counter.builder("shipping.rating.fixed-point.mismatches")
+                .description("Sampled fixed-point rates that differed from the decimal reference")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prepare the per-shipment operands once so they can be reused for every candidate method
+     */
+    public Shipment prepare(BigDecimal totalWeight, BigDecimal totalValue, Integer packageCount) {
+        int packages = packageCount != null ? packageCount : 1;
+        boolean insured = ShippingValidationUtils.requiresInsurance(totalValue);
+        boolean fixedPoint = fitsFixedPoint(totalWeight) && (!insured || fitsFixedPoint(totalValue));
+        return new Shipment(totalWeight, totalValue, packages, insured, fixedPoint,
+                fixedPoint ? totalWeight.unscaledValue().longValue() : 0L,
+                fixedPoint ? totalWeight.scale() : 0,
+                fixedPoint && insured ? totalValue.unscaledValue().longValue() : 0L,
+                fixedPoint && insured ? totalValue.scale() : 0);
+    }
+
+    /**
+     * Compute the weight component and the final rate of a method for the shipment
+     */
+    public ComputedRate compute(EShippingMethod method, Shipment shipment) {
+        MethodCoefficients rates = coefficientsFor(method);
+        if (shipment.fixedPoint() && rates.fixedPoint()) {
+            ComputedRate result = computeFixedPoint(rates, shipment);
+            if (result != null) {
+                fixedPointCounter.increment();
+                return verifySampleRate > 0 && ThreadLocalRandom.current().nextDouble() < verifySampleRate
+                        ? verify(method, shipment, result)
+                        : result;
+            }
+        }
+        referenceCounter.increment();
+        return computeReference(method, shipment);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShippingMethodChanged(ShippingMethodChangedEvent event) {
+        if (event.methodId() != null) {
+            coefficients.remove(event.methodId());
+        } else {
+            coefficients.clear();
+        }
+    }
+
+    /**
+     * Reference evaluation of the rate formula in {@link BigDecimal}
+     */
+    static ComputedRate computeReference(EShippingMethod method, Shipment shipment) {
+        BigDecimal weightRate = method.getPerKgRate().multiply(shipment.totalWeight());
+        BigDecimal itemRate = method.getPerItemRate().multiply(BigDecimal.valueOf(shipment.packageCount()));
+        BigDecimal subtotal = method.getBaseRate().add(weightRate).add(itemRate);
+
+        BigDecimal totalRate = subtotal.add(subtotal.multiply(FUEL_SURCHARGE_RATE));
+        if (shipment.insured()) {
+            totalRate = totalRate.add(shipment.totalValue().multiply(INSURANCE_RATE));
+        }
+        return new ComputedRate(weightRate, totalRate.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Exact fixed-point evaluation, or {@code null} when an intermediate overflows
+     */
+    private static ComputedRate computeFixedPoint(MethodCoefficients rates, Shipment shipment) {
+        try {
+            long weightUnscaled = Math.multiplyExact(rates.perKgUnscaled(), shipment.weightUnscaled());
+            int weightScale = rates.perKgScale() + shipment.weightScale();
+            long itemUnscaled = Math.multiplyExact(rates.perItemUnscaled(), (long) shipment.packageCount());
+
+            int subtotalScale = Math.max(weightScale, Math.max(rates.baseScale(), rates.perItemScale()));
+            long subtotal = Math.addExact(
+                    Math.addExact(rescale(rates.baseUnscaled(), subtotalScale - rates.baseScale()),
+                            rescale(weightUnscaled, subtotalScale - weightScale)),
+                    rescale(itemUnscaled, subtotalScale - rates.perItemScale()));
+
+            // subtotal * (1 + fuel) + value * insurance, both sides carrying four extra basis-point decimals
+            int amountScale = (shipment.insured() ? Math.max(subtotalScale, shipment.valueScale()) : subtotalScale) + BPS_SCALE;
+            long amount = rescale(Math.multiplyExact(subtotal, FUEL_FACTOR_BPS), amountScale - BPS_SCALE - subtotalScale);
+            if (shipment.insured()) {
+                amount = Math.addExact(amount, rescale(
+                        Math.multiplyExact(shipment.valueUnscaled(), (long) ShippingConstants.INSURANCE_RATE_BPS),
+                        amountScale - BPS_SCALE - shipment.valueScale()));
+            }
+
+            return new ComputedRate(BigDecimal.valueOf(weightUnscaled, weightScale),
+                    BigDecimal.valueOf(roundHalfUp(amount, amountScale - 2), 2));
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    private ComputedRate verify(EShippingMethod method, Shipment shipment, ComputedRate fixedPoint) {
+        ComputedRate reference = computeReference(method, shipment);
+        if (!reference.equals(fixedPoint)) {
+            mismatchCounter.increment();
+            log.error("Fixed-point rate {} differs from decimal rate {} for method {}",
+                    fixedPoint, reference, method.getMethodId());
+            return reference;
+        }
+        return fixedPoint;
+    }
+
+    private MethodCoefficients coefficientsFor(EShippingMethod method) {
+        Integer methodId = method.getMethodId();
+        MethodCoefficients cached = methodId != null ? coefficients.get(methodId) : null;
+        if (cached != null && cached.compiledFrom(method)) {
+            return cached;
+        }
+        MethodCoefficients compiled = MethodCoefficients.compile(method);
+        if (methodId != null) {
+            coefficients.put(methodId, compiled);
+        }
+        return compiled;
+    }
+
+    private static boolean fitsFixedPoint(BigDecimal value) {
+        return value != null && value.scale() >= 0 && value.scale() <= MAX_FIXED_POINT_SCALE
+                && value.unscaledValue().bitLength() < Long.SIZE - 1;
+    }
+
+    private static long rescale(long unscaled, int extraDigits) {
+        if (extraDigits >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("scale out of range");
+        }
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[extraDigits]);
+    }
+
+    /**
+     * Drop {@code digits} decimals rounding half away from zero, as {@link RoundingMode#HALF_UP} does
+     */
+    private static long roundHalfUp(long unscaled, int digits) {
+        if (digits <= 0) {
+            return rescale(unscaled, -digits);
+        }
+        if (digits >= POWERS_OF_TEN.length) {
+            return 0L;
+        }
+        long divisor = POWERS_OF_TEN[digits];
+        long quotient = unscaled / divisor;
+        long remainder = Math.abs(unscaled % divisor);
+        return remainder >= divisor - remainder ? quotient + Long.signum(unscaled) : quotient;
+    }
+
+    /**
+     * Per-shipment operands; the unscaled fields are only meaningful when {@code fixedPoint} is set
+     */
+    public record Shipment(BigDecimal totalWeight, BigDecimal totalValue, int packageCount, boolean insured,
+                           boolean fixedPoint, long weightUnscaled, int weightScale,
+                           long valueUnscaled, int valueScale) {
+    }
+
+    /**
+     * The rate components exposed in {@code RateCalculationResponse.ShippingRate}
+     */
+    public record ComputedRate(BigDecimal weightRate, BigDecimal totalRate) {
+    }
+
+    /**
+     * Unscaled coefficients of a method, remembering the decimals they were compiled from
+     * so a cached entry is never applied to a method whose rates have since changed
+     */
+    private record MethodCoefficients(BigDecimal baseRate, BigDecimal perKgRate, BigDecimal perItemRate,
+                                      boolean fixedPoint, long baseUnscaled, int baseScale,
+                                      long perKgUnscaled, int perKgScale,
+                                      long perItemUnscaled, int perItemScale) {
+
+        static MethodCoefficients compile(EShippingMethod method) {
+            BigDecimal base = method.getBaseRate();
+            BigDecimal perKg = method.getPerKgRate();
+            BigDecimal perItem = method.getPerItemRate();
+            if (!fitsFixedPoint(base) || !fitsFixedPoint(perKg) || !fitsFixedPoint(perItem)) {
+                return new MethodCoefficients(base, perKg, perItem, false, 0L, 0, 0L, 0, 0L, 0);
+            }
+            return new MethodCoefficients(base, perKg, perItem, true,
+                    base.unscaledValue().longValue(), base.scale(),
+                    perKg.unscaledValue().longValue(), perKg.scale(),
+                    perItem.unscaledValue().longValue(), perItem.scale());
+        }
+
+        boolean compiledFrom(EShippingMethod method) {
+            return Objects.equals(baseRate, method.getBaseRate())
+                    && Objects.equals(perKgRate, method.getPerKgRate())
+                    && Objects.equals(perItemRate, method.getPerItemRate());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.winnguyen1905.shipping.core.rating;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.winnguyen1905.shipping.common.enums.ServiceType;
+import com.winnguyen1905.shipping.core.zone.ZoneChangedEvent;
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+import com.winnguyen1905.shipping.persistance.repository.ShippingMethodRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Query path for the shipping methods that can serve a set of destination zones.
+ *
+ * By default candidates are loaded in a single query for all zones, with the weight,
+ * order value, service type and carrier predicates evaluated in SQL and the carrier
+ * and zone fetched eagerly. With {@code shipping.methods.catalog.snapshot.enabled}
+ * the active methods of the most frequently rated zones are kept in a bounded
+ * in-memory snapshot and filtered on the heap instead; zones missing from the
+ * snapshot are loaded together in one query.
+ */
+@Component
+@Slf4j
+public class ShippingMethodCatalog {
+
+    private final ShippingMethodRepository shippingMethodRepository;
+    private final boolean snapshotEnabled;
+    private final LoadingCache<Integer, List<EShippingMethod>> zoneSnapshot;
+
+    public ShippingMethodCatalog(ShippingMethodRepository shippingMethodRepository,
+                                 @Value("${shipping.methods.catalog.snapshot.enabled:false}") boolean snapshotEnabled,
+                                 @Value("${shipping.methods.catalog.snapshot.max-zones:1000}") long maxZones,
+                                 @Value("${shipping.methods.catalog.snapshot.ttl-seconds:60}") long ttlSeconds) {
+        this.shippingMethodRepository = shippingMethodRepository;
+        this.snapshotEnabled = snapshotEnabled;
+        this.zoneSnapshot = Caffeine.newBuilder()
+                .maximumSize(maxZones)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build(new ZoneMethodsLoader());
+    }
+
+    /**
+     * Find the active methods of the given zones that accept the shipment.
+     * Null carrier and service type mean "any".
+     */
+    public List<EShippingMethod> findCandidates(Collection<Integer> zoneIds, Integer carrierId,
+                                                BigDecimal totalWeight, BigDecimal totalValue,
+                                                ServiceType serviceType) {
+        if (zoneIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (!snapshotEnabled) {
+            return shippingMethodRepository.findCandidateMethods(zoneIds, carrierId, serviceType,
+                    totalWeight, totalValue);
+        }
+
+        List<EShippingMethod> candidates = new ArrayList<>();
+        for (List<EShippingMethod> zoneMethods : zoneSnapshot.getAll(zoneIds).values()) {
+            for (EShippingMethod method : zoneMethods) {
+                if (accepts(method, carrierId, totalWeight, totalValue, serviceType)) {
+                    candidates.add(method);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * All active methods of the given zones keyed by zone ID, for callers that filter
+     * many shipments against the same zones with {@link #accepts}
+     */
+    public Map<Integer, List<EShippingMethod>> findActiveMethodsByZone(Collection<Integer> zoneIds) {
+        if (zoneIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (snapshotEnabled) {
+            return zoneSnapshot.getAll(zoneIds);
+        }
+        List<Integer> ids = new ArrayList<>(zoneIds);
+        return groupByZone(ids, shippingMethodRepository.findActiveByZoneIdsWithCarrierAndZone(ids));
+    }
+
+    /**
+     * Apply the same predicates as {@link ShippingMethodRepository#findCandidateMethods}
+     */
+    public static boolean accepts(EShippingMethod method, Integer carrierId, BigDecimal totalWeight,
+                                  BigDecimal totalValue, ServiceType serviceType) {
+        return (carrierId == null || Objects.equals(method.getCarrier().getCarrierId(), carrierId))
+                && (serviceType == null || serviceType.equals(method.getServiceType()))
+                && (method.getMinWeight() == null || totalWeight.compareTo(method.getMinWeight()) >= 0)
+                && (method.getMaxWeight() == null || totalWeight.compareTo(method.getMaxWeight()) <= 0)
+                && (method.getMinOrderValue() == null || totalValue.compareTo(method.getMinOrderValue()) >= 0)
+                && (method.getMaxOrderValue() == null || totalValue.compareTo(method.getMaxOrderValue()) <= 0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShippingMethodChanged(ShippingMethodChangedEvent event) {
+        invalidate("method " + event.methodId() + " " + event.action());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onZoneChanged(ZoneChangedEvent event) {
+        invalidate("zone " + event.zoneId() + " " + event.action());
+    }
+
+    private void invalidate(String reason) {
+        if (snapshotEnabled) {
+            log.debug("Invalidating shipping method snapshot: {}", reason);
+            zoneSnapshot.invalidateAll();
+        }
+    }
+
+    private static Map<Integer, List<EShippingMethod>> groupByZone(Collection<? extends Integer> zoneIds,
+                                                                   List<EShippingMethod> methods) {
+        Map<Integer, List<EShippingMethod>> byZone = new HashMap<>();
+        for (Integer zoneId : zoneIds) {
+            byZone.put(zoneId, new ArrayList<>());
+        }
+        for (EShippingMethod method : methods) {
+            byZone.computeIfAbsent(method.getZone().getZoneId(), key -> new ArrayList<>()).add(method);
+        }
+        byZone.replaceAll((zoneId, zoneMethods) -> List.copyOf(zoneMethods));
+        return byZone;
+    }
+
+    private final class ZoneMethodsLoader implements CacheLoader<Integer, List<EShippingMethod>> {
+
+        @Override
+        public List<EShippingMethod> load(Integer zoneId) {
+            return loadAll(Set.of(zoneId)).get(zoneId);
+        }
+
+        @Override
+        public Map<Integer, List<EShippingMethod>> loadAll(Set<? extends Integer> zoneIds) {
+            List<Integer> ids = new ArrayList<>(zoneIds);
+            return groupByZone(ids, shippingMethodRepository.findActiveByZoneIdsWithCarrierAndZone(ids));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.winnguyen1905.shipping.core.rating;
+
+/**
+ * Published whenever a shipping method is created, updated, activated or
+ * deactivated so that in-memory method snapshots can be invalidated once the
+ * change is committed.
+ */
+public record ShippingMethodChangedEvent(Integer methodId, String action) {
+}
@@ -0,0 +1,198 @@
+package com.winnguyen1905.shipping.core.retention;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduled retention purge of expired quotes, old rate calculations and processed webhooks.
+ *
+ * Each table is purged in chunks walking up its primary key: a chunk selects the next
+ * {@code chunk-size} eligible IDs and deletes that ID range in its own statement, so no
+ * single delete holds locks or write-ahead log for more than one chunk. The job pauses
+ * between chunks and stops once {@code max-runtime-minutes} is used up; whatever is left
+ * is picked up by the next run. A Redis lock ensures only one node purges at a time.
+ *
+ * Each table reports the rows purged, the run duration and the purge rate of its last
+ * run in rows per second.
+ */
+@Component
+@Slf4j
+public class RetentionPurgeJob {
+
+    private static final String LOCK_KEY = "shipping:retention:lock";
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final Duration maxRuntime;
+    private final Duration lockTtl;
+    private final List<PurgeTarget> targets;
+
+    public RetentionPurgeJob(JdbcTemplate jdbcTemplate, StringRedisTemplate stringRedisTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${shipping.retention.enabled:true}") boolean enabled,
+                             @Value("${shipping.retention.chunk-size:5000}") int chunkSize,
+                             @Value("${shipping.retention.pause-ms:100}") long pauseMs,
+                             @Value("${shipping.retention.max-runtime-minutes:30}") long maxRuntimeMinutes,
+                             @Value("${shipping.retention.quotes.retention-days:7}") long quoteRetentionDays,
+                             @Value("${shipping.retention.rate-calculations.retention-days:90}") long rateCalculationRetentionDays,
+                             @Value("${shipping.retention.webhooks.retention-days:30}") long webhookRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMs = Math.max(0, pauseMs);
+        this.maxRuntime = Duration.ofMinutes(maxRuntimeMinutes);
+        // Outlive the run so a slow purge is never joined by a second node
+        this.lockTtl = maxRuntime.plusMinutes(5);
+
+        this.targets = List.of(
+                // Unused quotes are kept for a while past expiry for conversion analytics
+                new PurgeTarget(meterRegistry, "shipping_quotes", "quote_id", "expires_at < ? AND is_used = false",
+                        Duration.ofDays(quoteRetentionDays)),
+                new PurgeTarget(meterRegistry, "shipping_rate_calculations", "calculation_id", "created_at < ?",
+                        Duration.ofDays(rateCalculationRetentionDays)),
+                new PurgeTarget(meterRegistry, "shipping_webhooks", "webhook_id", "processed = true AND processed_at < ?",
+                        Duration.ofDays(webhookRetentionDays)));
+    }
+
+    @Scheduled(cron = "${shipping.retention.cron:0 30 3 * * *}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+
+        String token = UUID.randomUUID().toString();
+        Boolean acquired;
+        try {
+            acquired = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, lockTtl);
+        } catch (Exception e) {
+            log.warn("Error acquiring retention lock, skipping purge: {}", e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(acquired)) {
+            log.info("Retention purge is running on another node, skipping");
+            return;
+        }
+
+        try {
+            Instant deadline = Instant.now().plus(maxRuntime);
+            for (PurgeTarget target : targets) {
+                if (Instant.now().isAfter(deadline) || Thread.currentThread().isInterrupted()) {
+                    log.warn("Retention purge ran out of time before {}", target.table);
+                    break;
+                }
+                purge(target, deadline);
+            }
+        } finally {
+            releaseLock(token);
+        }
+    }
+
+    private void purge(PurgeTarget target, Instant deadline) {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(target.retention).truncatedTo(ChronoUnit.SECONDS));
+        String selectSql = "SELECT " + target.idColumn + " FROM " + target.table
+                + " WHERE " + target.idColumn + " > ? AND " + target.predicate
+                + " ORDER BY " + target.idColumn + " LIMIT ?";
+        String deleteSql = "DELETE FROM " + target.table
+                + " WHERE " + target.idColumn + " BETWEEN ? AND ? AND " + target.predicate;
+
+        long started = System.nanoTime();
+        long purged = 0;
+        long lastId = 0;
+        try {
+            while (Instant.now().isBefore(deadline)) {
+                List<Long> ids = jdbcTemplate.queryForList(selectSql, Long.class, lastId, cutoff, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long firstId = ids.get(0);
+                lastId = ids.get(ids.size() - 1);
+                int deleted = jdbcTemplate.update(deleteSql, firstId, lastId, cutoff);
+                purged += deleted;
+                target.purgedRows.increment(deleted);
+
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+                if (pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Retention purge of {} interrupted", target.table);
+        } catch (Exception e) {
+            log.error("Error purging {} after {} rows", target.table, purged, e);
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        target.duration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        long rowsPerSecond = elapsedNanos > 0 ? purged * TimeUnit.SECONDS.toNanos(1) / elapsedNanos : purged;
+        target.lastRowsPerSecond.set(rowsPerSecond);
+        log.info("Purged {} rows from {} older than {} in {} ms ({} rows/s)", purged, target.table, cutoff,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rowsPerSecond);
+    }
+
+    private void releaseLock(String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY), token);
+        } catch (Exception e) {
+            log.warn("Error releasing retention lock, it will expire on its own: {}", e.getMessage());
+        }
+    }
+
+    private static final class PurgeTarget {
+
+        private final String table;
+        private final String idColumn;
+        private final String predicate;
+        private final Duration retention;
+        private final Counter purgedRows;
+        private final Timer duration;
+        private final AtomicLong lastRowsPerSecond = new AtomicLong();
+
+        PurgeTarget(MeterRegistry meterRegistry, String table, String idColumn, String predicate, Duration retention) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.predicate = predicate;
+            this.retention = retention;
+            this.purgedRows = Counter.builder("shipping.retention.purged.rows")
+                    .description("Rows deleted by the retention purge")
+                    .tag("table", table)
+                    .register(meterRegistry);
+            this.duration = Timer.builder("shipping.retention.purge.duration")
+                    .description("Time spent purging a table per run")
+                    .tag("table", table)
+                    .register(meterRegistry);
+            Gauge.builder("shipping.retention.purge.rate", lastRowsPerSecond, AtomicLong::get)
+                    .description("Rows purged per second in the last run")
+                    .baseUnit("rows/s")
+                    .tag("table", table)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -4,9 +4,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import com.winnguyen1905.shipping.core.model.request.CalculateRateRequest;
+import com.winnguyen1905.shipping.core.model.response.BulkRateCalculationResponse;
 import com.winnguyen1905.shipping.core.model.response.RateCalculationResponse;
 import com.winnguyen1905.shipping.secure.TAccountRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface RateCalculationService {
@@ -65,9 +69,21 @@ public interface RateCalculationService {
    * 
    * @param requests       List of rate calculation requests
    * @param accountRequest The account request for authorization
-   * @return List of rate calculation responses
+   * @return One result per request, in request order, with an error code for failed items
+   */
+  BulkRateCalculationResponse bulkCalculateRates(List<CalculateRateRequest> requests, TAccountRequest accountRequest);
+
+  /**
+   * Calculates rates for a newline-delimited JSON stream of requests, writing one
+   * NDJSON result per request as soon as it is computed
+   * 
+   * @param requests       NDJSON stream of rate calculation requests
+   * @param results        Stream receiving one NDJSON result per request, tagged with its index
+   * @param accountRequest The account request for authorization
+   * @return Number of requests processed
    */
-  List<RateCalculationResponse> bulkCalculateRates(List<CalculateRateRequest> requests, TAccountRequest accountRequest);
+  long streamBulkCalculateRates(InputStream requests, OutputStream results, TAccountRequest accountRequest)
+      throws IOException;
 
   /**
    * Compares rates across all available carriers for given shipment details
@@ -1,8 +1,10 @@
 package com.winnguyen1905.shipping.core.service;
 
+import com.winnguyen1905.shipping.common.enums.QuoteFreshness;
 import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
 import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
 import com.winnguyen1905.shipping.secure.TAccountRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -21,6 +23,17 @@ public interface ShippingQuoteService {
    */
   ShippingQuoteResponse getShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest);
 
+  /**
+   * Get shipping quotes for a single vendor shipment with the given cache freshness
+   * 
+   * @param request        The shipping quote request
+   * @param accountRequest The account request for authorization
+   * @param freshness      How old a cached quote may be
+   * @return Shipping quote response, marked stale in its metadata when served past the soft TTL
+   */
+  ShippingQuoteResponse getShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest,
+      QuoteFreshness freshness);
+
   /**
    * Get shipping quotes for multiple vendors (consolidated cart)
    * 
@@ -30,6 +43,29 @@ public interface ShippingQuoteService {
    */
   ShippingQuoteResponse getMultiVendorShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest);
 
+  /**
+   * Get shipping quotes for multiple vendors with the given cache freshness
+   * 
+   * @param request        The multi-vendor shipping quote request
+   * @param accountRequest The account request for authorization
+   * @param freshness      How old a cached vendor quote may be
+   * @return Consolidated shipping quote response, marked stale if any vendor quote is
+   */
+  ShippingQuoteResponse getMultiVendorShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest,
+      QuoteFreshness freshness);
+
+  /**
+   * Stream shipping quotes as Server-Sent Events while the providers respond: each
+   * provider's options, updated best picks, then a summary carrying the quote ID. The
+   * request is validated before the emitter is returned; the quotes are computed off
+   * the calling thread
+   * 
+   * @param request        The shipping quote request
+   * @param accountRequest The account request for authorization
+   * @return The emitter the events are sent through
+   */
+  SseEmitter streamShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest);
+
   /**
    * Get cached shipping quotes if available
    * 
@@ -68,6 +104,13 @@ public interface ShippingQuoteService {
    */
   List<String> getAvailableProviders(String originCountry, String destinationCountry);
 
+  /**
+   * Get the route coverage of every provider
+   * 
+   * @return Map of provider name to origin country to supported destination countries
+   */
+  Map<String, Map<String, List<String>>> getProviderRouteCoverage();
+
   /**
    * Validate shipping quote request
    * 
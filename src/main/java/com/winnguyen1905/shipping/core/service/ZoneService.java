@@ -8,6 +8,7 @@ import com.winnguyen1905.shipping.core.model.response.ZoneResponse;
 import com.winnguyen1905.shipping.secure.TAccountRequest;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ZoneService {
 
@@ -79,4 +80,11 @@ public interface ZoneService {
      * @return The matching zone response
      */
     ZoneResponse lookupZone(String country, String state, String postalCode, TAccountRequest accountRequest);
-} 
+
+    /**
+     * Retrieves size and throughput statistics of the zone index
+     * @param accountRequest The account request for authorization
+     * @return Map of statistic name to value
+     */
+    Map<String, Object> getResolutionStats(TAccountRequest accountRequest);
+}
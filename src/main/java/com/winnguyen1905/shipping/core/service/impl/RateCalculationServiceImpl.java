@@ -3,18 +3,22 @@ package com.winnguyen1905.shipping.core.service.impl;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.winnguyen1905.shipping.core.model.request.CalculateRateRequest;
+import com.winnguyen1905.shipping.core.model.response.BulkRateCalculationResponse;
 import com.winnguyen1905.shipping.core.model.response.RateCalculationResponse;
+import com.winnguyen1905.shipping.core.rating.BulkRatingEngine;
+import com.winnguyen1905.shipping.core.rating.RateComparisonEngine;
+import com.winnguyen1905.shipping.core.rating.RateComputationEngine;
+import com.winnguyen1905.shipping.core.rating.ShippingMethodCatalog;
 import com.winnguyen1905.shipping.core.service.RateCalculationService;
+import com.winnguyen1905.shipping.core.writebehind.RateCalculationWriteBehind;
+import com.winnguyen1905.shipping.core.zone.ZoneIndex;
 import com.winnguyen1905.shipping.exception.BadRequestException;
 import com.winnguyen1905.shipping.exception.ResourceNotFoundException;
-import com.winnguyen1905.shipping.persistance.entity.EShippingCarrier;
 import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
 import com.winnguyen1905.shipping.persistance.entity.EShippingRateCalculation;
 import com.winnguyen1905.shipping.persistance.entity.EShippingZone;
-import com.winnguyen1905.shipping.persistance.repository.ShippingCarrierRepository;
-import com.winnguyen1905.shipping.persistance.repository.ShippingMethodRepository;
 import com.winnguyen1905.shipping.persistance.repository.ShippingRateCalculationRepository;
-import com.winnguyen1905.shipping.persistance.repository.ShippingZoneRepository;
+import com.winnguyen1905.shipping.common.enums.RateErrorCode;
 import com.winnguyen1905.shipping.common.enums.ServiceType;
 import com.winnguyen1905.shipping.secure.TAccountRequest;
 import com.winnguyen1905.shipping.util.ShippingValidationUtils;
@@ -25,10 +29,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -40,9 +51,12 @@ import java.util.stream.Collectors;
 public class RateCalculationServiceImpl implements RateCalculationService {
 
     private final ShippingRateCalculationRepository rateCalculationRepository;
-    private final ShippingMethodRepository shippingMethodRepository;
-    private final ShippingCarrierRepository carrierRepository;
-    private final ShippingZoneRepository zoneRepository;
+    private final RateCalculationWriteBehind rateCalculationWriteBehind;
+    private final ShippingMethodCatalog shippingMethodCatalog;
+    private final RateComputationEngine rateComputationEngine;
+    private final RateComparisonEngine rateComparisonEngine;
+    private final BulkRatingEngine bulkRatingEngine;
+    private final ZoneIndex zoneIndex;
     private final ObjectMapper objectMapper;
 
     @Override
@@ -74,40 +88,14 @@ public class RateCalculationServiceImpl implements RateCalculationService {
         }
         
         // Calculate rates for each method
-        List<RateCalculationResponse.ShippingRate> calculatedRates = availableMethods.stream()
-                .map(method -> calculateRateForMethod(method, request))
-                .filter(Objects::nonNull)
-                .sorted(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate))
-                .collect(Collectors.toList());
+        List<RateCalculationResponse.ShippingRate> calculatedRates = rateMethods(availableMethods, request);
         
         // Save calculation
         EShippingRateCalculation calculation = saveRateCalculation(request, calculatedRates);
         
-        // Find cheapest and fastest rates
-        RateCalculationResponse.ShippingRate cheapestRate = calculatedRates.stream()
-                .min(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate))
-                .orElse(null);
-        
-        RateCalculationResponse.ShippingRate fastestRate = calculatedRates.stream()
-                .min(Comparator.comparing(RateCalculationResponse.ShippingRate::getEstimatedDaysMax))
-                .orElse(null);
-        
         log.info("Rate calculation completed with {} available rates", calculatedRates.size());
         
-        return RateCalculationResponse.builder()
-                .calculationId(calculation.getCalculationId())
-                .orderId(request.getOrderId())
-                .fromZip(request.getFromAddress().getPostalCode())
-                .toZip(request.getToAddress().getPostalCode())
-                .totalWeight(request.getTotalWeight())
-                .totalValue(request.getTotalValue())
-                .packageCount(request.getPackageCount())
-                .requestedServiceType(request.getRequestedServiceType())
-                .calculatedAt(calculation.getCreatedAt())
-                .availableRates(calculatedRates)
-                .cheapestRate(cheapestRate)
-                .fastestRate(fastestRate)
-                .build();
+        return buildCalculatedResponse(request, calculation, calculatedRates);
     }
 
     @Override
@@ -115,7 +103,10 @@ public class RateCalculationServiceImpl implements RateCalculationService {
     public RateCalculationResponse getRateCalculationById(Long id, TAccountRequest accountRequest) {
         log.info("Getting rate calculation by ID: {} for account: {}", id, accountRequest.username());
         
-        EShippingRateCalculation calculation = rateCalculationRepository.findById(id)
+        // Pending entries are removed only after their row commits, so checking them first
+        // leaves no gap in which a just-issued ID is in neither place
+        EShippingRateCalculation calculation = rateCalculationWriteBehind.findPending(id)
+                .or(() -> rateCalculationRepository.findById(id))
                 .orElseThrow(() -> new ResourceNotFoundException("Rate calculation not found with ID: " + id));
         
         return mapToRateCalculationResponse(calculation);
@@ -190,11 +181,7 @@ public class RateCalculationServiceImpl implements RateCalculationService {
         );
         
         // Calculate rates for each method
-        List<RateCalculationResponse.ShippingRate> calculatedRates = availableMethods.stream()
-                .map(method -> calculateRateForMethod(method, request))
-                .filter(Objects::nonNull)
-                .sorted(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate))
-                .collect(Collectors.toList());
+        List<RateCalculationResponse.ShippingRate> calculatedRates = rateMethods(availableMethods, request);
         
         // Find cheapest and fastest rates
         RateCalculationResponse.ShippingRate cheapestRate = calculatedRates.stream()
@@ -219,20 +206,216 @@ public class RateCalculationServiceImpl implements RateCalculationService {
     }
 
     @Override
-    public List<RateCalculationResponse> bulkCalculateRates(List<CalculateRateRequest> requests, TAccountRequest accountRequest) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkRateCalculationResponse bulkCalculateRates(List<CalculateRateRequest> requests, TAccountRequest accountRequest) {
         log.info("Bulk calculating rates for {} requests for account: {}", requests.size(), accountRequest.username());
+        long startTime = System.currentTimeMillis();
+        
+        BulkRateCalculationResponse.Item[] results = rateBatch(requests, 0);
+        
+        int succeeded = 0;
+        for (BulkRateCalculationResponse.Item item : results) {
+            if (Boolean.TRUE.equals(item.getSuccess())) {
+                succeeded++;
+            }
+        }
+        log.info("Bulk rate calculation completed: {} of {} succeeded", succeeded, requests.size());
+        
+        return BulkRateCalculationResponse.builder()
+                .totalRequests(requests.size())
+                .succeeded(succeeded)
+                .failed(requests.size() - succeeded)
+                .processingTimeMs(System.currentTimeMillis() - startTime)
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long streamBulkCalculateRates(InputStream requests, OutputStream results, TAccountRequest accountRequest)
+            throws IOException {
+        log.info("Streaming bulk rate calculation for account: {}", accountRequest.username());
+        long startTime = System.currentTimeMillis();
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(requests, StandardCharsets.UTF_8));
+        IOException[] readFailure = new IOException[1];
+        // Lines are read lazily by the engine, so every read happens inside the guarded pipeline;
+        // a read failure ends the stream and is reported as a result line below
+        Iterator<CalculateRateRequest> parser = new Iterator<>() {
+            private String nextLine;
+            
+            @Override
+            public boolean hasNext() {
+                if (nextLine == null && readFailure[0] == null) {
+                    nextLine = readNonBlankLine();
+                }
+                return nextLine != null;
+            }
+            
+            @Override
+            public CalculateRateRequest next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String line = nextLine;
+                nextLine = null;
+                try {
+                    return objectMapper.readValue(line, CalculateRateRequest.class);
+                } catch (JsonProcessingException e) {
+                    // Reported as an invalid item by rateBatch
+                    return null;
+                }
+            }
+            
+            private String readNonBlankLine() {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null && line.isBlank()) {
+                        // skip blank lines between records
+                    }
+                    return line;
+                } catch (IOException e) {
+                    readFailure[0] = e;
+                    return null;
+                }
+            }
+        };
+        
+        // Parser -> bounded chunks in flight -> serialized writes; a slow reader stalls the whole pipeline
+        long processed;
+        try {
+            processed = bulkRatingEngine.processStream(parser, (chunk, firstIndex) -> {
+                BulkRateCalculationResponse.Item[] items = rateBatch(chunk, Math.toIntExact(firstIndex));
+                writeStreamItems(results, items);
+            });
+            if (readFailure[0] != null) {
+                log.warn("Error reading bulk rate request stream after {} requests: {}", processed,
+                        readFailure[0].getMessage());
+                writeStreamItems(results, failedItem(Math.toIntExact(processed), RateErrorCode.INVALID_REQUEST,
+                        "Request stream could not be read: " + readFailure[0].getMessage()));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        log.info("Streaming bulk rate calculation completed: {} requests in {} ms", processed,
+                System.currentTimeMillis() - startTime);
+        return processed;
+    }
+
+    private void writeStreamItems(OutputStream results, BulkRateCalculationResponse.Item... items) {
+        try {
+            synchronized (results) {
+                for (BulkRateCalculationResponse.Item item : items) {
+                    results.write(objectMapper.writeValueAsBytes(item));
+                    results.write('\n');
+                }
+                results.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rate a batch of requests, sharing zone and method lookups, and return one item per
+     * request numbered from {@code baseIndex}. A {@code null} request is reported as invalid.
+     */
+    private BulkRateCalculationResponse.Item[] rateBatch(List<CalculateRateRequest> requests, int baseIndex) {
+        BulkRateCalculationResponse.Item[] results = new BulkRateCalculationResponse.Item[requests.size()];
+        List<List<EShippingZone>> requestZones = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        
+        // Validate and resolve zones once per distinct destination
+        Map<List<String>, List<EShippingZone>> zonesByDestination = new HashMap<>();
+        Set<Integer> zoneIds = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CalculateRateRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = failedItem(baseIndex + i, RateErrorCode.INVALID_REQUEST, "Malformed rate request");
+                continue;
+            }
+            try {
+                validateCalculateRateRequest(request);
+            } catch (BadRequestException e) {
+                results[i] = failedItem(baseIndex + i, RateErrorCode.INVALID_REQUEST, e.getMessage());
+                continue;
+            }
+            
+            List<EShippingZone> zones = zonesByDestination.computeIfAbsent(
+                    Arrays.asList(request.getToAddress().getCountry(), request.getToAddress().getState(),
+                            request.getToAddress().getPostalCode()),
+                    destination -> findApplicableZones(destination.get(0), destination.get(1), destination.get(2)));
+            if (zones.isEmpty()) {
+                results[i] = failedItem(baseIndex + i, RateErrorCode.NO_ZONE, "No shipping zones found for destination address");
+                continue;
+            }
+            requestZones.set(i, zones);
+            zones.forEach(zone -> zoneIds.add(zone.getZoneId()));
+        }
+        
+        // One method lookup shared by every request, filtered per shipment below
+        Map<Integer, List<EShippingMethod>> methodsByZone = shippingMethodCatalog.findActiveMethodsByZone(zoneIds);
         
-        return requests.stream()
-                .map(request -> {
-                    try {
-                        return calculateRates(request, accountRequest);
-                    } catch (Exception e) {
-                        log.error("Error calculating rates for request: {}", e.getMessage());
-                        return null;
+        bulkRatingEngine.processInChunks(requests.size(), (fromIndex, toIndex) -> {
+            List<Integer> rated = new ArrayList<>(toIndex - fromIndex);
+            List<EShippingRateCalculation> calculations = new ArrayList<>(toIndex - fromIndex);
+            List<List<RateCalculationResponse.ShippingRate>> chunkRates = new ArrayList<>(toIndex - fromIndex);
+            
+            for (int i = fromIndex; i < toIndex; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                CalculateRateRequest request = requests.get(i);
+                try {
+                    List<EShippingMethod> availableMethods = new ArrayList<>();
+                    for (EShippingZone zone : requestZones.get(i)) {
+                        for (EShippingMethod method : methodsByZone.getOrDefault(zone.getZoneId(), Collections.emptyList())) {
+                            if (ShippingMethodCatalog.accepts(method, request.getSpecificCarrierId(),
+                                    request.getTotalWeight(), request.getTotalValue(), request.getRequestedServiceType())) {
+                                availableMethods.add(method);
+                            }
+                        }
                     }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+                    if (availableMethods.isEmpty()) {
+                        results[i] = failedItem(baseIndex + i, RateErrorCode.NO_METHODS, "No shipping methods available for the given criteria");
+                        continue;
+                    }
+                    
+                    // Rate first, so a failure leaves the three lists aligned
+                    List<RateCalculationResponse.ShippingRate> rates = rateMethods(availableMethods, request);
+                    EShippingRateCalculation calculation = newRateCalculation(request);
+                    rated.add(i);
+                    calculations.add(calculation);
+                    chunkRates.add(rates);
+                } catch (Exception e) {
+                    log.error("Error calculating rates for bulk request {}: {}", baseIndex + i, e.getMessage());
+                    results[i] = failedItem(baseIndex + i, RateErrorCode.CALCULATION_FAILED, e.getMessage());
+                }
+            }
+            
+            // Persist the chunk's calculations together
+            List<EShippingRateCalculation> saved;
+            try {
+                saved = rateCalculationWriteBehind.submitAll(calculations, chunkRates);
+            } catch (Exception e) {
+                log.error("Error saving bulk rate calculations {}..{}: {}", baseIndex + fromIndex,
+                        baseIndex + toIndex - 1, e.getMessage());
+                for (int index : rated) {
+                    results[index] = failedItem(baseIndex + index, RateErrorCode.CALCULATION_FAILED, "Error saving rate calculation");
+                }
+                return;
+            }
+            for (int j = 0; j < rated.size(); j++) {
+                int index = rated.get(j);
+                results[index] = BulkRateCalculationResponse.Item.builder()
+                        .index(baseIndex + index)
+                        .success(true)
+                        .result(buildCalculatedResponse(requests.get(index), saved.get(j), chunkRates.get(j)))
+                        .build();
+            }
+        });
+        
+        return results;
     }
 
     @Override
@@ -243,42 +426,38 @@ public class RateCalculationServiceImpl implements RateCalculationService {
         // Validate request
         validateCalculateRateRequest(request);
         
-        // Get all active carriers
-        List<EShippingCarrier> activeCarriers = carrierRepository.findAllActiveCarriers();
+        // Resolve zones and load the candidate methods of every carrier once
+        List<EShippingZone> applicableZones = findApplicableZones(request.getToAddress().getCountry(), 
+                request.getToAddress().getState(), request.getToAddress().getPostalCode());
+        
+        List<EShippingMethod> availableMethods = getAvailableShippingMethods(
+                null,
+                applicableZones,
+                request.getTotalWeight(),
+                request.getTotalValue(),
+                request.getRequestedServiceType()
+        );
         
-        List<RateCalculationResponse.ShippingRate> allRates = new ArrayList<>();
+        // Rate carriers in parallel; carriers that do not finish in time are reported, not awaited
+        RateComputationEngine.Shipment shipment = rateComputationEngine.prepare(
+                request.getTotalWeight(), request.getTotalValue(), request.getPackageCount());
+        RateComparisonEngine.Comparison comparison = rateComparisonEngine.compare(availableMethods,
+                method -> calculateRateForMethod(method, shipment));
         
-        for (EShippingCarrier carrier : activeCarriers) {
-            try {
-                // Create request for specific carrier
-                CalculateRateRequest carrierRequest = CalculateRateRequest.builder()
-                        .orderId(request.getOrderId())
-                        .fromAddress(request.getFromAddress())
-                        .toAddress(request.getToAddress())
-                        .totalWeight(request.getTotalWeight())
-                        .totalValue(request.getTotalValue())
-                        .packageCount(request.getPackageCount())
-                        .requestedServiceType(request.getRequestedServiceType())
-                        .specificCarrierId(carrier.getCarrierId())
-                        .packages(request.getPackages())
-                        .build();
-                
-                RateCalculationResponse carrierResponse = quickRateEstimate(carrierRequest, accountRequest);
-                allRates.addAll(carrierResponse.getAvailableRates());
-            } catch (Exception e) {
-                log.warn("Error calculating rates for carrier {}: {}", carrier.getCarrierName(), e.getMessage());
-            }
-        }
+        List<RateCalculationResponse.ShippingRate> allRates = new ArrayList<>(comparison.rates());
         
-        // Sort by total rate
-        allRates.sort(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate));
+        // Sort by total rate, unavailable methods last
+        allRates.sort(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate,
+                Comparator.nullsLast(Comparator.naturalOrder())));
         
         // Find cheapest and fastest rates
         RateCalculationResponse.ShippingRate cheapestRate = allRates.stream()
+                .filter(RateCalculationResponse.ShippingRate::getIsAvailable)
                 .min(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate))
                 .orElse(null);
         
         RateCalculationResponse.ShippingRate fastestRate = allRates.stream()
+                .filter(RateCalculationResponse.ShippingRate::getIsAvailable)
                 .min(Comparator.comparing(RateCalculationResponse.ShippingRate::getEstimatedDaysMax))
                 .orElse(null);
         
@@ -292,6 +471,8 @@ public class RateCalculationServiceImpl implements RateCalculationService {
                 .availableRates(allRates)
                 .cheapestRate(cheapestRate)
                 .fastestRate(fastestRate)
+                .partial(comparison.partial())
+                .carrierResults(comparison.carrierResults())
                 .build();
     }
 
@@ -323,48 +504,7 @@ public class RateCalculationServiceImpl implements RateCalculationService {
     }
 
     private List<EShippingZone> findApplicableZones(String country, String state, String postalCode) {
-        List<EShippingZone> zones = zoneRepository.findAllActiveZones();
-        
-        return zones.stream()
-                .filter(zone -> isZoneApplicable(zone, country, state, postalCode))
-                .collect(Collectors.toList());
-    }
-
-    private boolean isZoneApplicable(EShippingZone zone, String country, String state, String postalCode) {
-        try {
-            // Check country
-            List<String> countries = objectMapper.readValue(zone.getCountries(), 
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
-            
-            if (!countries.contains(country.toUpperCase())) {
-                return false;
-            }
-            
-            // Check state if specified
-            if (zone.getStatesProvinces() != null && !zone.getStatesProvinces().isEmpty()) {
-                List<String> states = objectMapper.readValue(zone.getStatesProvinces(), 
-                        objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
-                
-                if (!states.isEmpty() && !states.contains(state.toUpperCase())) {
-                    return false;
-                }
-            }
-            
-            // Check postal code if specified
-            if (zone.getZipCodes() != null && !zone.getZipCodes().isEmpty()) {
-                List<String> zipCodes = objectMapper.readValue(zone.getZipCodes(), 
-                        objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
-                
-                if (!zipCodes.isEmpty()) {
-                    return zipCodes.stream().anyMatch(zip -> postalCode.startsWith(zip));
-                }
-            }
-            
-            return true;
-        } catch (JsonProcessingException e) {
-            log.error("Error parsing zone data for zone ID: {}", zone.getZoneId(), e);
-            return false;
-        }
+        return zoneIndex.findApplicableZones(country, state, postalCode);
     }
 
     private List<EShippingMethod> getAvailableShippingMethods(Integer specificCarrierId, 
@@ -372,65 +512,20 @@ public class RateCalculationServiceImpl implements RateCalculationService {
                                                              BigDecimal totalWeight,
                                                              BigDecimal totalValue,
                                                              ServiceType requestedServiceType) {
-        List<EShippingMethod> methods = new ArrayList<>();
-        
-        for (EShippingZone zone : applicableZones) {
-            List<EShippingMethod> zoneMethods;
-            
-            if (specificCarrierId != null) {
-                zoneMethods = shippingMethodRepository.findByCarrierAndZone(specificCarrierId, zone.getZoneId());
-            } else {
-                zoneMethods = shippingMethodRepository.findByZoneZoneIdAndIsActive(zone.getZoneId(), true);
-            }
-            
-            // Filter by service type if specified
-            if (requestedServiceType != null) {
-                zoneMethods = zoneMethods.stream()
-                        .filter(method -> method.getServiceType().equals(requestedServiceType))
-                        .collect(Collectors.toList());
-            }
-            
-            // Filter by weight and value constraints
-            zoneMethods = zoneMethods.stream()
-                    .filter(method -> 
-                            (method.getMinWeight() == null || totalWeight.compareTo(method.getMinWeight()) >= 0) &&
-                            (method.getMaxWeight() == null || totalWeight.compareTo(method.getMaxWeight()) <= 0) &&
-                            (method.getMinOrderValue() == null || totalValue.compareTo(method.getMinOrderValue()) >= 0) &&
-                            (method.getMaxOrderValue() == null || totalValue.compareTo(method.getMaxOrderValue()) <= 0)
-                    )
-                    .collect(Collectors.toList());
-            
-            methods.addAll(zoneMethods);
-        }
-        
-        // Remove duplicates
-        return methods.stream()
-                .collect(Collectors.toMap(
-                        EShippingMethod::getMethodId,
-                        method -> method,
-                        (existing, replacement) -> existing
-                ))
-                .values()
-                .stream()
+        // One query (or snapshot read) for all zones; a method belongs to a single zone so no dedupe is needed
+        List<Integer> zoneIds = applicableZones.stream()
+                .map(EShippingZone::getZoneId)
                 .collect(Collectors.toList());
+        
+        return shippingMethodCatalog.findCandidates(zoneIds, specificCarrierId, totalWeight, totalValue,
+                requestedServiceType);
     }
 
-    private RateCalculationResponse.ShippingRate calculateRateForMethod(EShippingMethod method, CalculateRateRequest request) {
+    private RateCalculationResponse.ShippingRate calculateRateForMethod(EShippingMethod method,
+                                                                        RateComputationEngine.Shipment shipment) {
         try {
-            // Calculate base components
-            BigDecimal baseRate = method.getBaseRate();
-            BigDecimal weightRate = method.getPerKgRate().multiply(request.getTotalWeight());
-            BigDecimal itemRate = method.getPerItemRate().multiply(
-                    BigDecimal.valueOf(request.getPackageCount() != null ? request.getPackageCount() : 1));
-            
-            // Calculate total rate
-            BigDecimal totalRate = baseRate.add(weightRate).add(itemRate);
-            
-            // Apply any additional fees or discounts (can be extended)
-            totalRate = applyAdditionalFees(totalRate, method, request);
-            
-            // Round to 2 decimal places
-            totalRate = totalRate.setScale(2, RoundingMode.HALF_UP);
+            // Base, weight and item components plus insurance and fuel surcharge, rounded to 2 decimal places
+            RateComputationEngine.ComputedRate computed = rateComputationEngine.compute(method, shipment);
             
             // Calculate estimated delivery date
             LocalDate estimatedDeliveryDate = LocalDate.now().plusDays(method.getEstimatedDaysMax());
@@ -443,9 +538,9 @@ public class RateCalculationServiceImpl implements RateCalculationService {
                     .methodName(method.getMethodName())
                     .methodCode(method.getMethodCode())
                     .serviceType(method.getServiceType())
-                    .baseRate(baseRate)
-                    .weightRate(weightRate)
-                    .totalRate(totalRate)
+                    .baseRate(method.getBaseRate())
+                    .weightRate(computed.weightRate())
+                    .totalRate(computed.totalRate())
                     .currency("USD")
                     .estimatedDaysMin(method.getEstimatedDaysMin())
                     .estimatedDaysMax(method.getEstimatedDaysMax())
@@ -469,44 +564,77 @@ public class RateCalculationServiceImpl implements RateCalculationService {
         }
     }
 
-    private BigDecimal applyAdditionalFees(BigDecimal baseRate, EShippingMethod method, CalculateRateRequest request) {
-        BigDecimal finalRate = baseRate;
-        
-        // Apply insurance fee if required
-        if (ShippingValidationUtils.requiresInsurance(request.getTotalValue())) {
-            BigDecimal insuranceFee = request.getTotalValue().multiply(new BigDecimal("0.01")); // 1% of value
-            finalRate = finalRate.add(insuranceFee);
-        }
+    private List<RateCalculationResponse.ShippingRate> rateMethods(List<EShippingMethod> methods,
+                                                                  CalculateRateRequest request) {
+        RateComputationEngine.Shipment shipment = rateComputationEngine.prepare(
+                request.getTotalWeight(), request.getTotalValue(), request.getPackageCount());
+        return methods.stream()
+                .map(method -> calculateRateForMethod(method, shipment))
+                .filter(Objects::nonNull)
+                // Unavailable methods have no total rate and go last
+                .sorted(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+    }
+
+    private RateCalculationResponse buildCalculatedResponse(CalculateRateRequest request,
+                                                            EShippingRateCalculation calculation,
+                                                            List<RateCalculationResponse.ShippingRate> calculatedRates) {
+        // Find cheapest and fastest rates
+        RateCalculationResponse.ShippingRate cheapestRate = calculatedRates.stream()
+                .filter(rate -> Boolean.TRUE.equals(rate.getIsAvailable()))
+                .min(Comparator.comparing(RateCalculationResponse.ShippingRate::getTotalRate,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .orElse(null);
         
-        // Apply fuel surcharge (example: 10% fuel surcharge)
-        BigDecimal fuelSurcharge = baseRate.multiply(new BigDecimal("0.10"));
-        finalRate = finalRate.add(fuelSurcharge);
+        RateCalculationResponse.ShippingRate fastestRate = calculatedRates.stream()
+                .filter(rate -> Boolean.TRUE.equals(rate.getIsAvailable()))
+                .min(Comparator.comparing(RateCalculationResponse.ShippingRate::getEstimatedDaysMax,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .orElse(null);
         
-        return finalRate;
+        return RateCalculationResponse.builder()
+                .calculationId(calculation.getCalculationId())
+                .orderId(request.getOrderId())
+                .fromZip(request.getFromAddress().getPostalCode())
+                .toZip(request.getToAddress().getPostalCode())
+                .totalWeight(request.getTotalWeight())
+                .totalValue(request.getTotalValue())
+                .packageCount(request.getPackageCount())
+                .requestedServiceType(request.getRequestedServiceType())
+                .calculatedAt(calculation.getCreatedAt())
+                .availableRates(calculatedRates)
+                .cheapestRate(cheapestRate)
+                .fastestRate(fastestRate)
+                .build();
+    }
+
+    private BulkRateCalculationResponse.Item failedItem(int index, RateErrorCode errorCode, String errorMessage) {
+        return BulkRateCalculationResponse.Item.builder()
+                .index(index)
+                .success(false)
+                .errorCode(errorCode)
+                .errorMessage(errorMessage)
+                .build();
     }
 
     private EShippingRateCalculation saveRateCalculation(CalculateRateRequest request, 
                                                         List<RateCalculationResponse.ShippingRate> calculatedRates) {
-        try {
-            String ratesJson = objectMapper.writeValueAsString(calculatedRates);
-            
-            EShippingRateCalculation calculation = EShippingRateCalculation.builder()
-                    .orderId(request.getOrderId())
-                    .fromZip(request.getFromAddress().getPostalCode())
-                    .toZip(request.getToAddress().getPostalCode())
-                    .totalWeight(request.getTotalWeight())
-                    .totalValue(request.getTotalValue())
-                    .packageCount(request.getPackageCount() != null ? request.getPackageCount() : 1)
-                    .requestedServiceType(request.getRequestedServiceType() != null ? 
-                            request.getRequestedServiceType().name() : null)
-                    .calculatedRates(ratesJson)
-                    .build();
-            
-            return rateCalculationRepository.save(calculation);
-        } catch (JsonProcessingException e) {
-            log.error("Error saving rate calculation", e);
-            throw new BadRequestException("Error saving rate calculation");
-        }
+        // ID and timestamp are assigned now; serialization and the insert happen off the request path
+        return rateCalculationWriteBehind.submit(newRateCalculation(request), calculatedRates);
+    }
+
+    private EShippingRateCalculation newRateCalculation(CalculateRateRequest request) {
+        return EShippingRateCalculation.builder()
+                .orderId(request.getOrderId())
+                .fromZip(request.getFromAddress().getPostalCode())
+                .toZip(request.getToAddress().getPostalCode())
+                .totalWeight(request.getTotalWeight())
+                .totalValue(request.getTotalValue())
+                .packageCount(request.getPackageCount() != null ? request.getPackageCount() : 1)
+                .requestedServiceType(request.getRequestedServiceType() != null ? 
+                        request.getRequestedServiceType().name() : null)
+                .build();
     }
 
     private RateCalculationResponse mapToRateCalculationResponse(EShippingRateCalculation calculation) {
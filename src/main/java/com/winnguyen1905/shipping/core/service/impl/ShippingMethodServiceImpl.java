@@ -2,6 +2,7 @@ package com.winnguyen1905.shipping.core.service.impl;
 
 import com.winnguyen1905.shipping.core.model.request.CreateShippingMethodRequest;
 import com.winnguyen1905.shipping.core.model.response.ShippingMethodResponse;
+import com.winnguyen1905.shipping.core.rating.ShippingMethodChangedEvent;
 import com.winnguyen1905.shipping.core.service.ShippingMethodService;
 import com.winnguyen1905.shipping.common.enums.ServiceType;
 import com.winnguyen1905.shipping.common.enums.ShipmentStatus;
@@ -21,6 +22,7 @@ import com.winnguyen1905.shipping.util.ShippingValidationUtils;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -44,6 +46,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
     private final ShippingCarrierRepository carrierRepository;
     private final ShippingZoneRepository zoneRepository;
     private final ShipmentRepository shipmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public ShippingMethodResponse createShippingMethod(CreateShippingMethodRequest request, TAccountRequest accountRequest) {
@@ -93,6 +96,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
                 .build();
         
         method = shippingMethodRepository.save(method);
+        eventPublisher.publishEvent(new ShippingMethodChangedEvent(method.getMethodId(), "created"));
         
         log.info("Shipping method created successfully with ID: {}", method.getMethodId());
         return mapToShippingMethodResponse(method);
@@ -151,6 +155,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
         method.setIsActive(request.getIsActive() != null ? request.getIsActive() : method.getIsActive());
         
         method = shippingMethodRepository.save(method);
+        eventPublisher.publishEvent(new ShippingMethodChangedEvent(method.getMethodId(), "updated"));
         
         log.info("Shipping method updated successfully with ID: {}", method.getMethodId());
         return mapToShippingMethodResponse(method);
@@ -172,6 +177,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
         // Soft delete by deactivating
         method.setIsActive(false);
         shippingMethodRepository.save(method);
+        eventPublisher.publishEvent(new ShippingMethodChangedEvent(id, "deactivated"));
         
         log.info("Shipping method deactivated successfully with ID: {}", id);
     }
@@ -287,6 +293,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
         
         method.setIsActive(true);
         method = shippingMethodRepository.save(method);
+        eventPublisher.publishEvent(new ShippingMethodChangedEvent(method.getMethodId(), "activated"));
         
         log.info("Shipping method activated successfully with ID: {}", method.getMethodId());
         return mapToShippingMethodResponse(method);
@@ -301,6 +308,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
         
         method.setIsActive(false);
         method = shippingMethodRepository.save(method);
+        eventPublisher.publishEvent(new ShippingMethodChangedEvent(method.getMethodId(), "deactivated"));
         
         log.info("Shipping method deactivated successfully with ID: {}", method.getMethodId());
         return mapToShippingMethodResponse(method);
@@ -374,6 +382,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
                 method.setPerItemRate(method.getPerItemRate().multiply(rateMultiplier));
                 
                 shippingMethodRepository.save(method);
+                eventPublisher.publishEvent(new ShippingMethodChangedEvent(methodId, "rates-updated"));
                 
                 results.add(ShippingMethodResponse.BulkUpdateResult.UpdateResult.builder()
                         .methodId(methodId)
@@ -443,6 +452,7 @@ public class ShippingMethodServiceImpl implements ShippingMethodService {
                 .build();
         
         clonedMethod = shippingMethodRepository.save(clonedMethod);
+        eventPublisher.publishEvent(new ShippingMethodChangedEvent(clonedMethod.getMethodId(), "created"));
         
         log.info("Shipping method cloned successfully with ID: {}", clonedMethod.getMethodId());
         return mapToShippingMethodResponse(clonedMethod);
@@ -1,26 +1,42 @@
 package com.winnguyen1905.shipping.core.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.winnguyen1905.shipping.common.enums.QuoteFreshness;
+import com.winnguyen1905.shipping.core.cache.QuoteRequestCoalescer;
+import com.winnguyen1905.shipping.core.cache.QuoteRequestFingerprint;
+import com.winnguyen1905.shipping.core.cache.ShippingQuoteCache;
 import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
 import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
 import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+import com.winnguyen1905.shipping.core.provider.support.ProviderCallExecutor;
+import com.winnguyen1905.shipping.core.provider.support.ProviderHealthEngine;
+import com.winnguyen1905.shipping.core.provider.support.ProviderQuoteAccumulator;
+import com.winnguyen1905.shipping.core.provider.support.ProviderResponseCache;
+import com.winnguyen1905.shipping.core.provider.support.ProviderRouteRegistry;
 import com.winnguyen1905.shipping.core.service.ShippingQuoteService;
+import com.winnguyen1905.shipping.core.tariff.TariffEngine;
+import com.winnguyen1905.shipping.core.tariff.TariffQuote;
+import com.winnguyen1905.shipping.core.tariff.TariffShipment;
+import com.winnguyen1905.shipping.core.writebehind.ShippingQuoteWriteBehind;
+import com.winnguyen1905.shipping.persistance.entity.EShippingQuote;
 import com.winnguyen1905.shipping.secure.TAccountRequest;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,144 +45,408 @@ import java.util.stream.Collectors;
 public class ShippingQuoteServiceImpl implements ShippingQuoteService {
 
   private final List<ShippingProviderClient> shippingProviders;
-  private final RedisTemplate<String, Object> redisTemplate;
-  private final ObjectMapper objectMapper;
+  private final ShippingQuoteCache shippingQuoteCache;
+  private final QuoteRequestFingerprint quoteRequestFingerprint;
+  private final QuoteRequestCoalescer quoteRequestCoalescer;
+  private final ProviderCallExecutor providerCallExecutor;
+  private final ProviderRouteRegistry providerRouteRegistry;
+  private final ProviderHealthEngine providerHealthEngine;
+  private final ProviderResponseCache providerResponseCache;
+  private final ShippingQuoteWriteBehind shippingQuoteWriteBehind;
+  private final TariffEngine tariffEngine;
+  private final MeterRegistry meterRegistry;
 
-  private static final String CACHE_PREFIX = "shipping_quotes:";
   private static final int CACHE_TTL_MINUTES = 10;
   private static final int MAX_PROVIDERS_PARALLEL = 5;
+  private static final long STREAM_TIMEOUT_MS = 60_000;
+  private static final ProviderResultListener NO_LISTENER = (providerName, options, error) -> {
+  };
 
   @Override
   @CircuitBreaker(name = "shipping-quotes")
   @Retry(name = "shipping-quotes")
   public ShippingQuoteResponse getShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest) {
+    return getShippingQuotes(request, accountRequest, QuoteFreshness.CACHED);
+  }
+
+  @Override
+  @CircuitBreaker(name = "shipping-quotes")
+  @Retry(name = "shipping-quotes")
+  public ShippingQuoteResponse getShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest,
+      QuoteFreshness freshness) {
     log.info("Getting shipping quotes for request: {}", request);
+    long startedNanos = System.nanoTime();
 
     // Validate request
+    requireValid(request);
+
+    String cacheKey = generateCacheKey(request);
+
+    // Check cache first
+    ShippingQuoteResponse cachedResponse = serveFromCache(request, accountRequest, cacheKey, freshness,
+        startedNanos);
+    if (cachedResponse != null) {
+      return cachedResponse;
+    }
+
+    // Identical concurrent requests share one provider fan-out; FRESH requests never take a cached result.
+    // Callers whose loader did not run were handed another caller's quote
+    String[] source = {"shared"};
+    ShippingQuoteResponse response = quoteRequestCoalescer.execute(cacheKey, freshness != QuoteFreshness.FRESH, () -> {
+      if (freshness != QuoteFreshness.FRESH) {
+        // A fan-out for this key may have finished between the cache check and now
+        ShippingQuoteResponse cached = getCachedQuotes(request, accountRequest);
+        if (cached != null && !shippingQuoteCache.isPastSoftTtl(cached)) {
+          source[0] = "cache";
+          return cached;
+        }
+      }
+      source[0] = "computed";
+      return fetchAndCacheQuotes(request, accountRequest, NO_LISTENER);
+    });
+    countServed(source[0]);
+    if ("cache".equals(source[0])) {
+      auditQuote(request, accountRequest, response, startedNanos, true);
+    }
+    return response;
+  }
+
+  @Override
+  public SseEmitter streamShippingQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest) {
+    log.info("Streaming shipping quotes for request: {}", request);
+    long startedNanos = System.nanoTime();
+    requireValid(request);
+
+    SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+    QuoteEventStream stream = new QuoteEventStream(emitter);
+    // The request thread returns the emitter; the quote is computed on a fan-out thread
+    providerCallExecutor.submitFanOut(() -> {
+      ShippingQuoteResponse response = getCachedQuotes(request, accountRequest);
+      boolean cacheHit = response != null && !shippingQuoteCache.isPastSoftTtl(response);
+      if (!cacheHit) {
+        // Not coalesced: every stream needs its own provider progress
+        response = fetchAndCacheQuotes(request, accountRequest, stream::providerResult);
+      }
+      stream.complete(response);
+      countServed(cacheHit ? "cache" : "computed");
+      if (cacheHit) {
+        auditQuote(request, accountRequest, response, startedNanos, true);
+      }
+      return response;
+    }).whenComplete((response, error) -> {
+      if (error != null) {
+        stream.fail(error);
+      }
+    });
+    return emitter;
+  }
+
+  /**
+   * The cached quote the freshness allows, or null when the quote has to be computed.
+   * A stale quote served under STALE_WHILE_REVALIDATE is refreshed in the background
+   */
+  private ShippingQuoteResponse serveFromCache(ShippingQuoteRequest request, TAccountRequest accountRequest,
+      String cacheKey, QuoteFreshness freshness, long startedNanos) {
+    if (freshness == QuoteFreshness.FRESH) {
+      return null;
+    }
+    ShippingQuoteResponse cachedResponse = getCachedQuotes(request, accountRequest);
+    if (cachedResponse != null && !shippingQuoteCache.isPastSoftTtl(cachedResponse)) {
+      log.info("Returning cached quotes for request");
+      countServed("cache");
+      auditQuote(request, accountRequest, cachedResponse, startedNanos, true);
+      return cachedResponse;
+    }
+    if (cachedResponse != null && freshness == QuoteFreshness.STALE_WHILE_REVALIDATE) {
+      log.info("Returning stale cached quotes and refreshing them in the background");
+      quoteRequestCoalescer.refreshInBackground(cacheKey,
+          () -> fetchAndCacheQuotes(request, accountRequest, NO_LISTENER));
+      countServed("stale");
+      ShippingQuoteResponse staleResponse = markStale(cachedResponse);
+      auditQuote(request, accountRequest, staleResponse, startedNanos, true);
+      return staleResponse;
+    }
+    return null;
+  }
+
+  private void requireValid(ShippingQuoteRequest request) {
     ValidationResult validation = validateShippingQuoteRequest(request);
     if (!validation.isValid()) {
       log.error("Invalid shipping quote request: {}", validation.errors());
       throw new IllegalArgumentException("Invalid request: " + String.join(", ", validation.errors()));
     }
+  }
 
-    // Check cache first
-    ShippingQuoteResponse cachedResponse = getCachedQuotes(request, accountRequest);
-    if (cachedResponse != null) {
-      log.info("Returning cached quotes for request");
-      return cachedResponse;
+  /**
+   * Count a served quote by where it came from: computed by this caller, shared by a
+   * concurrent caller, or read from the cache fresh or stale
+   */
+  private void countServed(String source) {
+    meterRegistry.counter("shipping.quotes.served", "source", source).increment();
+  }
+
+  /**
+   * Queue a quote for the shipping_quotes audit table. A computed quote is written under
+   * its quote id; a cache hit is written as its own row linked to that quote through
+   * source_quote_id, and a coalesced caller adds no row. Nothing is written on the
+   * request thread
+   */
+  private void auditQuote(ShippingQuoteRequest request, TAccountRequest accountRequest,
+      ShippingQuoteResponse response, long startedNanos, boolean cacheHit) {
+    try {
+      ShippingQuoteResponse.QuoteMetadata metadata = response.getMetadata() != null ? response.getMetadata()
+          : new ShippingQuoteResponse.QuoteMetadata();
+      ShippingQuoteRequest.VendorInfo vendor = request.isSingleVendorRequest() ? request.getVendor()
+          : request.getVendorPackages().get(0).getVendor();
+      ShippingQuoteResponse.ShippingOption best = response.getRecommendedOption();
+      ShippingQuoteResponse.ShippingOption cheapest = response.getCheapestOption();
+      ShippingQuoteResponse.ShippingOption fastest = response.getFastestOption();
+
+      EShippingQuote quote = EShippingQuote.builder()
+          .externalQuoteId(cacheHit ? null : response.getQuoteId())
+          .sourceQuoteId(cacheHit ? response.getQuoteId() : null)
+          .cacheHit(cacheHit)
+          .vendorId(request.isSingleVendorRequest() ? vendor.getVendorId() : null)
+          .vendorName(request.isSingleVendorRequest() ? vendor.getName() : null)
+          .requestType(response.getRequestType() != null ? response.getRequestType() : "SINGLE_VENDOR")
+          // Multi-vendor quotes are recorded against the first vendor's origin
+          .originCountry(vendor.getAddress().getCountry())
+          .destinationCountry(request.getCustomer().getAddress().getCountry())
+          .totalWeight(metadata.getTotalWeight() != null ? metadata.getTotalWeight() : BigDecimal.ZERO)
+          .totalValue(metadata.getTotalDeclaredValue() != null ? metadata.getTotalDeclaredValue() : BigDecimal.ZERO)
+          .currency(metadata.getBaseCurrency() != null ? metadata.getBaseCurrency() : "VND")
+          .packageCount(metadata.getTotalPackages() != null ? metadata.getTotalPackages() : 1)
+          .isDomestic(Boolean.TRUE.equals(metadata.getIsDomestic()))
+          .requiresCustoms(Boolean.TRUE.equals(metadata.getRequiresCustoms()))
+          .bestOptionProvider(best != null ? best.getProvider() : null)
+          .bestOptionService(best != null ? best.getService() : null)
+          .bestOptionCost(best != null ? best.getCost() : null)
+          .bestOptionCurrency(best != null ? best.getCurrency() : null)
+          .bestOptionDeliveryDays(best != null ? best.getEstimatedDays() : null)
+          .cheapestOptionProvider(cheapest != null ? cheapest.getProvider() : null)
+          .cheapestOptionCost(cheapest != null ? cheapest.getCost() : null)
+          .fastestOptionProvider(fastest != null ? fastest.getProvider() : null)
+          .fastestOptionDeliveryDays(fastest != null ? fastest.getEstimatedDays() : null)
+          .totalOptionsCount(response.getShippingOptions() != null ? response.getShippingOptions().size() : 0)
+          .calculationMethod(metadata.getCalculationMethod())
+          .processingTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos))
+          .expiresAt(response.getExpiresAt())
+          .build();
+      shippingQuoteWriteBehind.submit(quote, request, response);
+    } catch (RuntimeException e) {
+      log.warn("Error recording shipping quote {}: {}", response.getQuoteId(), e.getMessage());
     }
+  }
 
-    // Get quotes from all providers
-    List<ShippingQuoteResponse.ShippingOption> allOptions = new ArrayList<>();
-    List<ShippingQuoteResponse.ProviderError> providerErrors = new ArrayList<>();
-    List<String> availableProviders = new ArrayList<>();
-    List<String> unavailableProviders = new ArrayList<>();
+  private ShippingQuoteResponse markStale(ShippingQuoteResponse cached) {
+    // Cached responses are shared, so the stale flag goes on a copy
+    ShippingQuoteResponse.QuoteMetadata metadata = cached.getMetadata() != null
+        ? cached.getMetadata().toBuilder().stale(true).build()
+        : ShippingQuoteResponse.QuoteMetadata.builder().stale(true).build();
+    return cached.toBuilder().metadata(metadata).build();
+  }
 
-    // Get applicable providers for this route
-    String originCountry = request.isSingleVendorRequest() ? request.getVendor().getAddress().getCountry() : "MULTI";
-    String destinationCountry = request.getCustomer().getAddress().getCountry();
+  private ShippingQuoteResponse fetchAndCacheQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest,
+      ProviderResultListener listener) {
+    return fetchAndCacheQuotes(List.of(request), accountRequest, listener).get(0);
+  }
 
-    List<ShippingProviderClient> applicableProviders = getApplicableProviders(originCountry, destinationCountry);
-
-    // Query providers in parallel with timeout
-    List<CompletableFuture<Void>> futures = applicableProviders.stream()
-        .limit(MAX_PROVIDERS_PARALLEL)
-        .map(provider -> CompletableFuture.runAsync(() -> {
-          try {
-            List<ShippingQuoteResponse.ShippingOption> options = getQuotesFromProviderWithFallback(provider, request);
-            synchronized (allOptions) {
-              allOptions.addAll(options);
-              availableProviders.add(provider.getProviderName());
-            }
-          } catch (Exception e) {
-            log.error("Error getting quotes from provider {}: {}", provider.getProviderName(), e.getMessage());
-            synchronized (providerErrors) {
-              providerErrors.add(ShippingQuoteResponse.ProviderError.builder()
-                  .provider(provider.getProviderName())
-                  .errorCode("PROVIDER_ERROR")
-                  .errorMessage(e.getMessage())
-                  .fallbackUsed("Internal calculation")
-                  .build());
-              unavailableProviders.add(provider.getProviderName());
-            }
-          }
-        }))
-        .toList();
+  /**
+   * Quote each request from the providers serving its route and cache and audit each
+   * quote under its own key. A multi-vendor request is rated as one shipment per vendor
+   * package. A provider that supports batch quotes rates all of its shipments in one
+   * call, any other provider gets one call per shipment; every call runs on the
+   * provider call executor within the provider's deadline
+   */
+  private List<ShippingQuoteResponse> fetchAndCacheQuotes(List<ShippingQuoteRequest> requests,
+      TAccountRequest accountRequest, ProviderResultListener listener) {
+    // Healthiest providers first, so a capped fan-out leaves out the slow and failing ones
+    List<ProviderQuoteAccumulator> accumulators = new ArrayList<>(requests.size());
+    List<List<ShippingQuoteRequest>> shipmentsPerRequest = new ArrayList<>(requests.size());
+    Map<ShippingProviderClient, List<Integer>> requestsByProvider = new LinkedHashMap<>();
+    for (int i = 0; i < requests.size(); i++) {
+      ShippingQuoteRequest request = requests.get(i);
+      String originCountry = request.isSingleVendorRequest() ? request.getVendor().getAddress().getCountry()
+          : "MULTI";
+      String destinationCountry = request.getCustomer().getAddress().getCountry();
+      List<ShippingProviderClient> applicableProviders = providerHealthEngine
+          .rank(getApplicableProviders(originCountry, destinationCountry)).stream()
+          .limit(MAX_PROVIDERS_PARALLEL)
+          .toList();
+      accumulators.add(new ProviderQuoteAccumulator(applicableProviders.stream()
+          .map(ShippingProviderClient::getProviderName)
+          .toList()));
+      shipmentsPerRequest.add(shipments(request));
+      for (ShippingProviderClient provider : applicableProviders) {
+        requestsByProvider.computeIfAbsent(provider, p -> new ArrayList<>()).add(i);
+      }
+    }
 
-    // Wait for all providers to complete (with timeout)
-    try {
-      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-          .get(30, TimeUnit.SECONDS);
-    } catch (Exception e) {
-      log.error("Timeout or error waiting for provider responses", e);
+    // Query providers in parallel on the provider call executor, each within its own deadline
+    long started = System.nanoTime();
+    long lastDeadline = started;
+    Map<String, Long> deadlines = new HashMap<>();
+    List<CompletableFuture<List<ShippingQuoteResponse.ShippingOption>>> futures = new ArrayList<>();
+    for (Map.Entry<ShippingProviderClient, List<Integer>> entry : requestsByProvider.entrySet()) {
+      ShippingProviderClient provider = entry.getKey();
+      String providerName = provider.getProviderName();
+      long deadline = started + TimeUnit.MILLISECONDS.toNanos(providerCallExecutor.deadlineMs(providerName));
+      deadlines.put(providerName, deadline);
+      lastDeadline = Math.max(lastDeadline, deadline);
+
+      List<CompletableFuture<List<ShippingQuoteResponse.ShippingOption>>> shipmentQuotes = submitShipments(provider,
+          entry.getValue().stream().flatMap(i -> shipmentsPerRequest.get(i).stream()).toList());
+
+      // Each request gets the provider's options once all of its shipments are rated
+      int next = 0;
+      for (int i : entry.getValue()) {
+        List<CompletableFuture<List<ShippingQuoteResponse.ShippingOption>>> legs =
+            shipmentQuotes.subList(next, next + shipmentsPerRequest.get(i).size());
+        next += legs.size();
+        ProviderQuoteAccumulator accumulator = accumulators.get(i);
+        futures.add(CompletableFuture.allOf(legs.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> legs.stream().flatMap(leg -> leg.join().stream()).toList())
+            .whenComplete((options, error) -> {
+              accumulator.record(providerName, options, error);
+              listener.onResult(providerName, options, error);
+            }));
+      }
     }
 
-    // If no external options available, use internal calculation as fallback
-    if (allOptions.isEmpty()) {
-      log.warn("No external provider options available, using internal fallback");
-      allOptions.addAll(calculateInternalFallbackRates(request));
+    // Wait until every provider has answered or the last deadline has passed
+    CompletableFuture<Void> allProviders = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    try {
+      allProviders.get(Math.max(0, lastDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      log.warn("Provider deadline reached, returning quotes from the providers that answered in time");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // Failed providers are reported individually by the accumulators
     }
 
-    // Build response
-    ShippingQuoteResponse response = buildShippingQuoteResponse(
-        request, allOptions, availableProviders, unavailableProviders, providerErrors);
+    List<ShippingQuoteResponse> responses = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      ShippingQuoteRequest request = requests.get(i);
+      ProviderQuoteAccumulator accumulator = accumulators.get(i);
+      ProviderQuoteAccumulator.Snapshot snapshot = accumulator.snapshot(deadlines);
+      ShippingQuoteResponse response = buildQuoteResponse(request, snapshot);
+      cacheQuotes(request, response, accountRequest);
+      auditQuote(request, accountRequest, response, started, false);
+
+      if (snapshot.partial()) {
+        // Late providers still complete the quote for the next caller
+        allProviders.whenComplete((ignored, error) ->
+            cacheLateResults(request, accountRequest, accumulator, snapshot, started));
+      }
 
-    // Cache the response
+      log.info("Returning {} shipping options from {} providers",
+          response.getShippingOptions().size(), snapshot.availableProviders().size());
+      responses.add(response);
+    }
+    return responses;
+  }
+
+  private void cacheLateResults(ShippingQuoteRequest request, TAccountRequest accountRequest,
+      ProviderQuoteAccumulator accumulator, ProviderQuoteAccumulator.Snapshot onTime, long startedNanos) {
+    ProviderQuoteAccumulator.Snapshot complete = accumulator.snapshot();
+    if (complete.availableProviders().size() <= onTime.availableProviders().size()) {
+      return;
+    }
+    log.info("Caching quotes with late results from {} providers",
+        complete.availableProviders().size() - onTime.availableProviders().size());
+    ShippingQuoteResponse response = buildQuoteResponse(request, complete);
     cacheQuotes(request, response, accountRequest);
+    // A new quote id, served to later callers from the cache
+    auditQuote(request, accountRequest, response, startedNanos, false);
+  }
 
-    log.info("Returning {} shipping options from {} providers",
-        allOptions.size(), availableProviders.size());
+  private ShippingQuoteResponse buildQuoteResponse(ShippingQuoteRequest request,
+      ProviderQuoteAccumulator.Snapshot snapshot) {
+    List<ShippingQuoteResponse.ShippingOption> allOptions = new ArrayList<>(snapshot.options());
 
-    return response;
+    // If no external options available, use internal calculation as fallback
+    boolean internalFallback = allOptions.isEmpty();
+    if (internalFallback) {
+      log.warn("No external provider options available, using internal fallback");
+      allOptions.addAll(calculateInternalFallbackRates(request));
+    }
+
+    return buildShippingQuoteResponse(request, allOptions, new ArrayList<>(snapshot.availableProviders()),
+        new ArrayList<>(snapshot.unavailableProviders()), new ArrayList<>(snapshot.providerErrors()),
+        internalFallback ? "INTERNAL_CALCULATION" : "EXTERNAL_API");
   }
 
   @Override
   public ShippingQuoteResponse getMultiVendorShippingQuotes(ShippingQuoteRequest request,
       TAccountRequest accountRequest) {
+    return getMultiVendorShippingQuotes(request, accountRequest, QuoteFreshness.CACHED);
+  }
+
+  @Override
+  public ShippingQuoteResponse getMultiVendorShippingQuotes(ShippingQuoteRequest request,
+      TAccountRequest accountRequest, QuoteFreshness freshness) {
     if (!request.isMultiVendorRequest()) {
       throw new IllegalArgumentException("Request must be multi-vendor");
     }
 
     log.info("Getting multi-vendor shipping quotes for {} vendors", request.getVendorPackages().size());
+    long startedNanos = System.nanoTime();
 
     Map<String, ShippingQuoteResponse> vendorQuotes = new HashMap<>();
+    List<ShippingQuoteResponse.ShippingOption> allOptions = new ArrayList<>();
     List<ShippingQuoteResponse.ProviderError> allErrors = new ArrayList<>();
 
-    // Get quotes for each vendor separately
-    for (ShippingQuoteRequest.VendorPackageInfo vendorPackage : request.getVendorPackages()) {
-      ShippingQuoteRequest singleVendorRequest = ShippingQuoteRequest.builder()
-          .customer(request.getCustomer())
-          .vendor(vendorPackage.getVendor())
-          .packageInfo(vendorPackage.getPackageInfo())
-          .requireInsurance(request.getRequireInsurance())
-          .preferredCurrency(request.getPreferredCurrency())
-          .build();
+    // Each vendor's quote is cached under its own key, so carts sharing a vendor reuse it.
+    // The vendors still to quote are quoted together: a provider gets one call for all of
+    // them when it supports batch quotes and parallel calls per vendor otherwise, at most
+    // as many at once as the provider's bulkhead allows
+    List<ShippingQuoteRequest.VendorPackageInfo> vendorPackages = request.getVendorPackages();
+    ShippingQuoteResponse[] vendorResponses = new ShippingQuoteResponse[vendorPackages.size()];
+    List<Integer> toQuote = new ArrayList<>();
+    for (int i = 0; i < vendorPackages.size(); i++) {
+      ShippingQuoteRequest vendorRequest = request.forVendorPackage(vendorPackages.get(i));
+      ValidationResult validation = validateShippingQuoteRequest(vendorRequest);
+      if (!validation.isValid()) {
+        allErrors.add(vendorError(vendorPackages.get(i),
+            "Invalid request: " + String.join(", ", validation.errors())));
+        continue;
+      }
+      vendorResponses[i] = serveFromCache(vendorRequest, accountRequest, generateCacheKey(vendorRequest), freshness,
+          startedNanos);
+      if (vendorResponses[i] == null) {
+        toQuote.add(i);
+      }
+    }
 
+    if (!toQuote.isEmpty()) {
       try {
-        ShippingQuoteResponse vendorQuote = getShippingQuotes(singleVendorRequest, accountRequest);
-        vendorQuotes.put(vendorPackage.getVendor().getVendorId(), vendorQuote);
-
-        // Mark options with vendor info
-        vendorQuote.getShippingOptions().forEach(option -> {
-          option.setVendorId(vendorPackage.getVendor().getVendorId());
-          option.setVendorName(vendorPackage.getVendor().getName());
-        });
-      } catch (Exception e) {
-        log.error("Error getting quotes for vendor {}: {}",
-            vendorPackage.getVendor().getVendorId(), e.getMessage());
-        allErrors.add(ShippingQuoteResponse.ProviderError.builder()
-            .provider("VENDOR_" + vendorPackage.getVendor().getVendorId())
-            .errorCode("VENDOR_ERROR")
-            .errorMessage(e.getMessage())
-            .build());
+        List<ShippingQuoteResponse> quoted = fetchAndCacheQuotes(toQuote.stream()
+            .map(i -> request.forVendorPackage(vendorPackages.get(i)))
+            .toList(), accountRequest, NO_LISTENER);
+        for (int k = 0; k < toQuote.size(); k++) {
+          vendorResponses[toQuote.get(k)] = quoted.get(k);
+          countServed("computed");
+        }
+      } catch (RuntimeException e) {
+        toQuote.forEach(i -> allErrors.add(vendorError(vendorPackages.get(i), e.getMessage())));
       }
     }
 
-    // Consolidate all options
-    List<ShippingQuoteResponse.ShippingOption> allOptions = vendorQuotes.values()
-        .stream()
-        .flatMap(quote -> quote.getShippingOptions().stream())
-        .toList();
+    for (int i = 0; i < vendorPackages.size(); i++) {
+      ShippingQuoteRequest.VendorPackageInfo vendorPackage = vendorPackages.get(i);
+      ShippingQuoteResponse vendorQuote = vendorResponses[i];
+      if (vendorQuote == null) {
+        continue;
+      }
+      vendorQuotes.put(vendorPackage.getVendor().getVendorId(), vendorQuote);
+
+      // Mark copies of the options with vendor info; the vendor quote may be a shared cached instance
+      vendorQuote.getShippingOptions().forEach(option -> allOptions.add(option.toBuilder()
+          .vendorId(vendorPackage.getVendor().getVendorId())
+          .vendorName(vendorPackage.getVendor().getName())
+          .build()));
+    }
 
     // Calculate metadata
     ShippingQuoteResponse.QuoteMetadata metadata = ShippingQuoteResponse.QuoteMetadata.builder()
@@ -188,6 +468,8 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
             .toList())
         .providerErrors(allErrors)
         .calculationMethod("HYBRID")
+        .stale(vendorQuotes.values().stream()
+            .anyMatch(q -> q.getMetadata() != null && Boolean.TRUE.equals(q.getMetadata().getStale())))
         .build();
 
     return ShippingQuoteResponse.builder()
@@ -203,33 +485,26 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
         .build();
   }
 
+  private ShippingQuoteResponse.ProviderError vendorError(ShippingQuoteRequest.VendorPackageInfo vendorPackage,
+      String message) {
+    log.error("Error getting quotes for vendor {}: {}", vendorPackage.getVendor().getVendorId(), message);
+    return ShippingQuoteResponse.ProviderError.builder()
+        .provider("VENDOR_" + vendorPackage.getVendor().getVendorId())
+        .errorCode("VENDOR_ERROR")
+        .errorMessage(message)
+        .build();
+  }
+
   @Override
-  @Cacheable(value = "shipping_quotes", key = "#request.hashCode()")
   public ShippingQuoteResponse getCachedQuotes(ShippingQuoteRequest request, TAccountRequest accountRequest) {
-    try {
-      String cacheKey = CACHE_PREFIX + generateCacheKey(request);
-      Object cached = redisTemplate.opsForValue().get(cacheKey);
-
-      if (cached != null) {
-        log.debug("Found cached quotes for key: {}", cacheKey);
-        return objectMapper.convertValue(cached, ShippingQuoteResponse.class);
-      }
-    } catch (Exception e) {
-      log.warn("Error retrieving cached quotes: {}", e.getMessage());
-    }
-    return null;
+    // Near-cache hits are shared instances; callers must not modify them
+    return shippingQuoteCache.get(generateCacheKey(request));
   }
 
   @Override
   public void cacheQuotes(ShippingQuoteRequest request, ShippingQuoteResponse response,
       TAccountRequest accountRequest) {
-    try {
-      String cacheKey = CACHE_PREFIX + generateCacheKey(request);
-      redisTemplate.opsForValue().set(cacheKey, response, CACHE_TTL_MINUTES, TimeUnit.MINUTES);
-      log.debug("Cached quotes for key: {}", cacheKey);
-    } catch (Exception e) {
-      log.warn("Error caching quotes: {}", e.getMessage());
-    }
+    shippingQuoteCache.put(generateCacheKey(request), response);
   }
 
   @Override
@@ -244,18 +519,29 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
       throw new IllegalArgumentException("Provider not found: " + providerName);
     }
 
-    return getQuotesFromProviderWithFallback(provider.get(), request);
+    try {
+      return submitShipments(provider.get(), shipments(request)).stream()
+          .flatMap(quotes -> quotes.join().stream())
+          .toList();
+    } catch (RuntimeException e) {
+      log.error("Error getting quotes from provider {}, using fallback", providerName, e);
+      return Collections.emptyList();
+    }
   }
 
   @Override
   public List<String> getAvailableProviders(String originCountry, String destinationCountry) {
-    return shippingProviders.stream()
+    return providerRouteRegistry.providersForRoute(originCountry, destinationCountry).stream()
         .filter(ShippingProviderClient::isAvailable)
-        .filter(provider -> provider.supportsRoute(originCountry, destinationCountry))
         .map(ShippingProviderClient::getProviderName)
         .toList();
   }
 
+  @Override
+  public Map<String, Map<String, List<String>>> getProviderRouteCoverage() {
+    return providerRouteRegistry.coverage();
+  }
+
   @Override
   public ValidationResult validateShippingQuoteRequest(ShippingQuoteRequest request) {
     List<String> errors = new ArrayList<>();
@@ -315,6 +601,7 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
       providerStatus.put("supportedCountries", provider.getSupportedCountries());
       providerStatus.put("maxWeight", provider.getMaxPackageWeight());
       providerStatus.put("maxValue", provider.getMaxDeclaredValue());
+      providerStatus.put("health", providerHealthEngine.stats(provider.getProviderName()));
 
       status.put(provider.getProviderName(), providerStatus);
     }
@@ -328,9 +615,10 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
 
     for (ShippingProviderClient provider : shippingProviders) {
       try {
-        // Simple connectivity test
+        // Simple connectivity test; ejected providers are failing or too slow to be queried
         boolean isConnected = provider.isAvailable() &&
-            !provider.getSupportedCountries().isEmpty();
+            !provider.getSupportedCountries().isEmpty() &&
+            !providerHealthEngine.stats(provider.getProviderName()).ejected();
         connectivity.put(provider.getProviderName(), isConnected);
       } catch (Exception e) {
         log.error("Error testing connectivity for provider {}: {}",
@@ -345,33 +633,83 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
   // Private helper methods
 
   private List<ShippingProviderClient> getApplicableProviders(String originCountry, String destinationCountry) {
-    return shippingProviders.stream()
+    // For multi-vendor, check if provider supports the destination
+    List<ShippingProviderClient> routeProviders = "MULTI".equals(originCountry)
+        ? providerRouteRegistry.providersForDestination(destinationCountry)
+        : providerRouteRegistry.providersForRoute(originCountry, destinationCountry);
+    return routeProviders.stream()
         .filter(ShippingProviderClient::isAvailable)
-        .filter(provider -> {
-          if ("MULTI".equals(originCountry)) {
-            // For multi-vendor, check if provider supports the destination
-            return provider.getSupportedCountries().contains(destinationCountry);
-          }
-          return provider.supportsRoute(originCountry, destinationCountry);
-        })
         .toList();
   }
 
-  private List<ShippingQuoteResponse.ShippingOption> getQuotesFromProviderWithFallback(
-      ShippingProviderClient provider, ShippingQuoteRequest request) {
+  /**
+   * The shipments a request is rated as: itself, or one per vendor package
+   */
+  private List<ShippingQuoteRequest> shipments(ShippingQuoteRequest request) {
+    return request.isSingleVendorRequest() ? List.of(request)
+        : request.getVendorPackages().stream().map(request::forVendorPackage).toList();
+  }
+
+  /**
+   * Rate shipments with one provider on the provider call executor: a provider that
+   * supports batch quotes gets them all in one call, any other provider one call per
+   * shipment, all in parallel
+   *
+   * @return Options per shipment, index-aligned with the shipments
+   */
+  private List<CompletableFuture<List<ShippingQuoteResponse.ShippingOption>>> submitShipments(
+      ShippingProviderClient provider, List<ShippingQuoteRequest> shipments) {
+    String providerName = provider.getProviderName();
+    List<List<ShippingQuoteRequest>> calls = provider.supportsBatchQuotes() ? List.of(shipments)
+        : shipments.stream().map(List::of).toList();
+    List<CompletableFuture<List<ShippingQuoteResponse.ShippingOption>>> quotes = new ArrayList<>(shipments.size());
+    for (List<ShippingQuoteRequest> batch : calls) {
+      CompletableFuture<List<List<ShippingQuoteResponse.ShippingOption>>> call = providerCallExecutor
+          .submitHedged(providerName, () -> getProviderQuotes(provider, batch))
+          .whenComplete((options, error) -> {
+            if (error != null) {
+              log.error("Error getting quotes from provider {} for {} shipments: {}",
+                  providerName, batch.size(), error.getMessage());
+            }
+          });
+      for (int i = 0; i < batch.size(); i++) {
+        int index = i;
+        quotes.add(call.thenApply(options -> options.get(index)));
+      }
+    }
+    return quotes;
+  }
+
+  private List<List<ShippingQuoteResponse.ShippingOption>> getProviderQuotes(
+      ShippingProviderClient provider, List<ShippingQuoteRequest> requests) {
+    // Requests billed the same by the carrier share one provider call
+    return providerResponseCache.getOrRate(provider, requests,
+        billableRequests -> callProvider(provider, billableRequests));
+  }
+
+  /**
+   * Call the provider and record the outcome in its health statistics; failures are
+   * rethrown so the fan-out reports the provider as unavailable
+   */
+  private List<List<ShippingQuoteResponse.ShippingOption>> callProvider(
+      ShippingProviderClient provider, List<ShippingQuoteRequest> requests) {
+    String providerName = provider.getProviderName();
+    long started = System.nanoTime();
     try {
-      if (request.isSingleVendorRequest()) {
-        return provider.getShippingQuotes(request);
-      } else {
-        Map<String, List<ShippingQuoteResponse.ShippingOption>> multiVendorQuotes = provider
-            .getMultiVendorQuotes(request);
-        return multiVendorQuotes.values().stream()
-            .flatMap(List::stream)
-            .toList();
+      List<List<ShippingQuoteResponse.ShippingOption>> options = requests.size() == 1
+          ? List.of(provider.getShippingQuotes(requests.get(0)))
+          : provider.getShippingQuotesBatch(requests);
+      if (options.size() != requests.size()) {
+        throw new IllegalStateException(providerName + " returned " + options.size() + " results for "
+            + requests.size() + " shipments");
       }
-    } catch (Exception e) {
-      log.error("Error getting quotes from provider {}, using fallback", provider.getProviderName(), e);
-      return Collections.emptyList();
+      providerHealthEngine.record(providerName, System.nanoTime() - started, false,
+          providerCallExecutor.deadlineMs(providerName));
+      return options;
+    } catch (RuntimeException e) {
+      providerHealthEngine.record(providerName, System.nanoTime() - started, true,
+          providerCallExecutor.deadlineMs(providerName));
+      throw e;
     }
   }
 
@@ -380,7 +718,7 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
 
     List<ShippingQuoteResponse.ShippingOption> fallbackOptions = new ArrayList<>();
 
-    // Simple internal calculation based on weight and distance
+    // Priced from the "Internal" rate card on the total weight
     BigDecimal weight = request.isSingleVendorRequest() ? request.getPackageInfo().getWeight()
         : request.getVendorPackages().stream()
             .map(vp -> vp.getPackageInfo().getWeight())
@@ -389,35 +727,23 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
     String originCountry = request.isSingleVendorRequest() ? request.getVendor().getAddress().getCountry() : "MULTI";
     String destinationCountry = request.getCustomer().getAddress().getCountry();
 
-    boolean isDomestic = originCountry.equals(destinationCountry);
-
-    // Standard delivery
-    BigDecimal standardRate = calculateStandardRate(weight, isDomestic);
-    fallbackOptions.add(createFallbackOption("Standard", standardRate,
-        isDomestic ? 3 : 7, "INTERNAL_STANDARD"));
-
-    // Express delivery
-    BigDecimal expressRate = standardRate.multiply(new BigDecimal("1.5"));
-    fallbackOptions.add(createFallbackOption("Express", expressRate,
-        isDomestic ? 1 : 3, "INTERNAL_EXPRESS"));
+    TariffShipment shipment = new TariffShipment(originCountry, destinationCountry, weight, false,
+        false, false, false);
+    for (TariffQuote quote : tariffEngine.rate("Internal", shipment)) {
+      fallbackOptions.add(createFallbackOption(quote.serviceName(), quote.cost(), quote.currency(),
+          quote.deliveryDays(), quote.serviceCode()));
+    }
 
     return fallbackOptions;
   }
 
-  private BigDecimal calculateStandardRate(BigDecimal weight, boolean isDomestic) {
-    BigDecimal baseRate = isDomestic ? new BigDecimal("50000") : new BigDecimal("200000"); // VND
-    BigDecimal perKgRate = isDomestic ? new BigDecimal("10000") : new BigDecimal("50000"); // VND
-
-    return baseRate.add(weight.multiply(perKgRate));
-  }
-
   private ShippingQuoteResponse.ShippingOption createFallbackOption(String service, BigDecimal cost,
-      int deliveryDays, String serviceCode) {
+      String currency, int deliveryDays, String serviceCode) {
     return ShippingQuoteResponse.ShippingOption.builder()
         .provider("Internal")
         .service(service)
         .cost(cost)
-        .currency("VND")
+        .currency(currency)
         .estimatedDays(deliveryDays)
         .estimatedDeliveryDate(java.time.LocalDate.now().plusDays(deliveryDays))
         .serviceCode(serviceCode)
@@ -440,7 +766,8 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
       List<ShippingQuoteResponse.ShippingOption> allOptions,
       List<String> availableProviders,
       List<String> unavailableProviders,
-      List<ShippingQuoteResponse.ProviderError> providerErrors) {
+      List<ShippingQuoteResponse.ProviderError> providerErrors,
+      String calculationMethod) {
 
     // Sort options by cost for better presentation
     allOptions.sort(Comparator.comparing(ShippingQuoteResponse.ShippingOption::getCost));
@@ -466,7 +793,7 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
         .availableProviders(availableProviders)
         .unavailableProviders(unavailableProviders)
         .providerErrors(providerErrors)
-        .calculationMethod(availableProviders.isEmpty() ? "INTERNAL_CALCULATION" : "EXTERNAL_API")
+        .calculationMethod(calculationMethod)
         .build();
 
     return ShippingQuoteResponse.builder()
@@ -512,24 +839,116 @@ public class ShippingQuoteServiceImpl implements ShippingQuoteService {
   }
 
   private String generateCacheKey(ShippingQuoteRequest request) {
-    try {
-      // Create a simplified version for caching
-      Map<String, Object> cacheData = new HashMap<>();
-      cacheData.put("customer", request.getCustomer().getAddress());
-
-      if (request.isSingleVendorRequest()) {
-        cacheData.put("vendor", request.getVendor().getAddress());
-        cacheData.put("package", request.getPackageInfo());
-      } else {
-        cacheData.put("vendors", request.getVendorPackages().stream()
-            .map(vp -> Map.of("vendor", vp.getVendor().getAddress(), "package", vp.getPackageInfo()))
-            .toList());
+    return quoteRequestFingerprint.fingerprint(request);
+  }
+
+  /**
+   * Receives each provider's outcome as soon as its call completes, on the provider thread
+   */
+  @FunctionalInterface
+  private interface ProviderResultListener {
+    void onResult(String providerName, List<ShippingQuoteResponse.ShippingOption> options, Throwable error);
+  }
+
+  /**
+   * Sends quote progress as Server-Sent Events: an {@code options} or {@code provider-error}
+   * event per provider, a {@code best} event whenever the picks change and a final
+   * {@code summary}, or an {@code error} if the quote could not be computed. Events
+   * arriving after the summary are dropped, as are all events once the client has gone
+   * away or the emitter has timed out.
+   */
+  private final class QuoteEventStream {
+
+    private final SseEmitter emitter;
+    private final List<ShippingQuoteResponse.ShippingOption> received = new ArrayList<>();
+    private final Set<String> streamedProviders = new HashSet<>();
+    private BestOptionsEvent best;
+    private boolean closed;
+
+    QuoteEventStream(SseEmitter emitter) {
+      this.emitter = emitter;
+      emitter.onTimeout(() -> {
+        close();
+        emitter.complete();
+      });
+      emitter.onError(error -> close());
+    }
+
+    synchronized void providerResult(String providerName, List<ShippingQuoteResponse.ShippingOption> options,
+        Throwable error) {
+      if (closed) {
+        return;
+      }
+      if (error != null) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        send("provider-error", new ProviderErrorEvent(providerName, cause.getMessage()));
+        return;
       }
+      streamedProviders.add(providerName);
+      send("options", new ProviderOptionsEvent(providerName, options));
+      received.addAll(options);
+      sendBest(new BestOptionsEvent(findBestOption(received, "CHEAPEST"), findBestOption(received, "FASTEST"),
+          findBestOption(received, "BALANCED")));
+    }
+
+    synchronized void complete(ShippingQuoteResponse response) {
+      // Options not streamed yet: cached quotes or the internal fallback calculation
+      Map<String, List<ShippingQuoteResponse.ShippingOption>> remaining = response.getShippingOptions().stream()
+          .filter(option -> !streamedProviders.contains(option.getProvider()))
+          .collect(Collectors.groupingBy(ShippingQuoteResponse.ShippingOption::getProvider, LinkedHashMap::new,
+              Collectors.toList()));
+      remaining.forEach((provider, options) -> send("options", new ProviderOptionsEvent(provider, options)));
+      sendBest(new BestOptionsEvent(response.getCheapestOption(), response.getFastestOption(),
+          response.getRecommendedOption()));
+      send("summary", response.toBuilder().shippingOptions(null).build());
+      finish();
+    }
 
-      return Integer.toString(cacheData.hashCode());
-    } catch (Exception e) {
-      log.error("Error generating cache key", e);
-      return UUID.randomUUID().toString();
+    synchronized void fail(Throwable error) {
+      log.error("Error streaming shipping quotes", error);
+      send("error", Map.of("error", "Internal server error", "message", "An unexpected error occurred"));
+      finish();
     }
+
+    private synchronized void close() {
+      closed = true;
+    }
+
+    private void finish() {
+      if (!closed) {
+        closed = true;
+        emitter.complete();
+      }
+    }
+
+    private void sendBest(BestOptionsEvent candidate) {
+      if (!candidate.equals(best)) {
+        best = candidate;
+        send("best", candidate);
+      }
+    }
+
+    private void send(String event, Object data) {
+      if (closed) {
+        return;
+      }
+      try {
+        emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+      } catch (IOException | IllegalStateException e) {
+        log.debug("Quote stream client disconnected: {}", e.getMessage());
+        closed = true;
+      }
+    }
+  }
+
+  private record ProviderOptionsEvent(String provider, List<ShippingQuoteResponse.ShippingOption> options) {
+  }
+
+  private record ProviderErrorEvent(String provider, String errorMessage) {
+  }
+
+  private record BestOptionsEvent(ShippingQuoteResponse.ShippingOption cheapestOption,
+      ShippingQuoteResponse.ShippingOption fastestOption,
+      ShippingQuoteResponse.ShippingOption recommendedOption) {
   }
 }
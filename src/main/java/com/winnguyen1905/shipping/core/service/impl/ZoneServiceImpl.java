@@ -6,6 +6,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.winnguyen1905.shipping.core.model.request.CreateZoneRequest;
 import com.winnguyen1905.shipping.core.model.response.ZoneResponse;
 import com.winnguyen1905.shipping.core.service.ZoneService;
+import com.winnguyen1905.shipping.core.zone.ZoneChangedEvent;
+import com.winnguyen1905.shipping.core.zone.ZoneIndex;
 import com.winnguyen1905.shipping.exception.BadRequestException;
 import com.winnguyen1905.shipping.exception.BusinessLogicException;
 import com.winnguyen1905.shipping.exception.ResourceNotFoundException;
@@ -17,6 +19,7 @@ import com.winnguyen1905.shipping.util.ShippingValidationUtils;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +28,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,6 +40,8 @@ public class ZoneServiceImpl implements ZoneService {
     private final ShippingZoneRepository zoneRepository;
     private final ShippingMethodRepository shippingMethodRepository;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ZoneIndex zoneIndex;
 
     @Override
     public ZoneResponse createZone(CreateZoneRequest request, TAccountRequest accountRequest) {
@@ -65,6 +71,7 @@ public class ZoneServiceImpl implements ZoneService {
                 .build();
         
         zone = zoneRepository.save(zone);
+        eventPublisher.publishEvent(new ZoneChangedEvent(zone.getZoneId(), "created"));
         
         log.info("Zone created successfully with ID: {}", zone.getZoneId());
         return mapToZoneResponse(zone);
@@ -112,6 +119,7 @@ public class ZoneServiceImpl implements ZoneService {
         zone.setIsActive(request.getIsActive() != null ? request.getIsActive() : zone.getIsActive());
         
         zone = zoneRepository.save(zone);
+        eventPublisher.publishEvent(new ZoneChangedEvent(zone.getZoneId(), "updated"));
         
         log.info("Zone updated successfully with ID: {}", zone.getZoneId());
         return mapToZoneResponse(zone);
@@ -133,6 +141,7 @@ public class ZoneServiceImpl implements ZoneService {
         // Soft delete by deactivating
         zone.setIsActive(false);
         zoneRepository.save(zone);
+        eventPublisher.publishEvent(new ZoneChangedEvent(id, "deactivated"));
         
         log.info("Zone deactivated successfully with ID: {}", id);
     }
@@ -219,24 +228,21 @@ public class ZoneServiceImpl implements ZoneService {
             throw new BadRequestException("Country cannot be null or empty");
         }
         
-        List<EShippingZone> zones = zoneRepository.findAllActiveZones();
-        
-        // Find zones that match the criteria
-        List<EShippingZone> matchingZones = zones.stream()
-                .filter(zone -> isZoneMatchingAddress(zone, country, state, postalCode))
-                .collect(Collectors.toList());
-        
-        if (matchingZones.isEmpty()) {
-            throw new ResourceNotFoundException("No zone found for the given address");
-        }
-        
-        // Return the most specific match (prioritize zones with specific postal codes)
-        EShippingZone bestMatch = findBestMatchingZone(matchingZones, country, state, postalCode);
+        // Resolve the most specific match (longest postal prefix, then state, then single country)
+        EShippingZone bestMatch = zoneIndex.findBestZone(country, state, postalCode)
+                .orElseThrow(() -> new ResourceNotFoundException("No zone found for the given address"));
         
         log.info("Found zone: {} for address", bestMatch.getZoneName());
         return mapToZoneResponse(bestMatch);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getResolutionStats(TAccountRequest accountRequest) {
+        log.info("Getting zone resolution stats for account: {}", accountRequest.username());
+        return zoneIndex.getStats();
+    }
+
     private void validateCreateZoneRequest(CreateZoneRequest request) {
         ShippingValidationUtils.validateNotNull(request, "Zone request cannot be null");
         ShippingValidationUtils.validateNotBlank(request.getZoneName(), "Zone name cannot be blank");
@@ -255,121 +261,6 @@ public class ZoneServiceImpl implements ZoneService {
         }
     }
 
-    private boolean isZoneMatchingAddress(EShippingZone zone, String country, String state, String postalCode) {
-        // Check if country matches
-        List<String> zoneCountries = convertJsonToList(zone.getCountries());
-        boolean countryMatch = zoneCountries.stream()
-                .anyMatch(c -> c.equalsIgnoreCase(country));
-        
-        if (!countryMatch) {
-            return false;
-        }
-        
-        // Check if state matches (if specified)
-        if (state != null && !state.trim().isEmpty()) {
-            List<String> zoneStates = convertJsonToList(zone.getStatesProvinces());
-            if (!zoneStates.isEmpty()) {
-                boolean stateMatch = zoneStates.stream()
-                        .anyMatch(s -> s.equalsIgnoreCase(state));
-                if (!stateMatch) {
-                    return false;
-                }
-            }
-        }
-        
-        // Check if postal code matches (if specified)
-        if (postalCode != null && !postalCode.trim().isEmpty()) {
-            List<String> zoneZipCodes = convertJsonToList(zone.getZipCodes());
-            if (!zoneZipCodes.isEmpty()) {
-                boolean zipMatch = zoneZipCodes.stream()
-                        .anyMatch(zip -> isPostalCodeMatching(zip, postalCode));
-                if (!zipMatch) {
-                    return false;
-                }
-            }
-        }
-        
-        return true;
-    }
-
-    private boolean isPostalCodeMatching(String zoneZip, String postalCode) {
-        // Simple postal code matching logic
-        // This could be enhanced with more sophisticated pattern matching
-        
-        // Exact match
-        if (zoneZip.equalsIgnoreCase(postalCode)) {
-            return true;
-        }
-        
-        // Range matching (e.g., "10000-19999")
-        if (zoneZip.contains("-")) {
-            String[] parts = zoneZip.split("-");
-            if (parts.length == 2) {
-                try {
-                    int zipStart = Integer.parseInt(parts[0]);
-                    int zipEnd = Integer.parseInt(parts[1]);
-                    int postal = Integer.parseInt(postalCode);
-                    return postal >= zipStart && postal <= zipEnd;
-                } catch (NumberFormatException e) {
-                    // If parsing fails, fall back to string comparison
-                    return postalCode.startsWith(parts[0]);
-                }
-            }
-        }
-        
-        // Prefix matching (e.g., "100*" matches "10001", "10002", etc.)
-        if (zoneZip.endsWith("*")) {
-            String prefix = zoneZip.substring(0, zoneZip.length() - 1);
-            return postalCode.startsWith(prefix);
-        }
-        
-        return false;
-    }
-
-    private EShippingZone findBestMatchingZone(List<EShippingZone> zones, String country, String state, String postalCode) {
-        // Scoring system to find the best match
-        // Higher score = better match
-        
-        EShippingZone bestMatch = zones.get(0);
-        int bestScore = 0;
-        
-        for (EShippingZone zone : zones) {
-            int score = 0;
-            
-            // Base score for country match
-            score += 10;
-            
-            // Bonus for state match
-            if (state != null && !state.trim().isEmpty()) {
-                List<String> zoneStates = convertJsonToList(zone.getStatesProvinces());
-                if (zoneStates.stream().anyMatch(s -> s.equalsIgnoreCase(state))) {
-                    score += 20;
-                }
-            }
-            
-            // Bonus for postal code match
-            if (postalCode != null && !postalCode.trim().isEmpty()) {
-                List<String> zoneZipCodes = convertJsonToList(zone.getZipCodes());
-                if (zoneZipCodes.stream().anyMatch(zip -> isPostalCodeMatching(zip, postalCode))) {
-                    score += 30;
-                }
-            }
-            
-            // Bonus for more specific zones (fewer countries)
-            List<String> zoneCountries = convertJsonToList(zone.getCountries());
-            if (zoneCountries.size() == 1) {
-                score += 5;
-            }
-            
-            if (score > bestScore) {
-                bestScore = score;
-                bestMatch = zone;
-            }
-        }
-        
-        return bestMatch;
-    }
-
     private String convertListToJson(List<String> list) {
         if (list == null || list.isEmpty()) {
             return "[]";
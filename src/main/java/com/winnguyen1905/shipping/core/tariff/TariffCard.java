@@ -0,0 +1,274 @@
+package com.winnguyen1905.shipping.core.tariff;
+
+import com.winnguyen1905.shipping.core.tariff.TariffCardDefinition.TariffCondition;
+import com.winnguyen1905.shipping.core.tariff.TariffCardDefinition.TariffScope;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compiled form of a carrier rate card.
+ *
+ * Amounts are held as {@code long} minor units at the card's currency scale, weights as
+ * grams and multipliers and percentages as basis points, all in primitive arrays. Zones
+ * are looked up through a 676-slot table indexed by the two letters of the ISO country
+ * code. Rating a service is a binary search over its weight breaks and one interpolation;
+ * every division rounds HALF_UP to the currency's minor unit and billable weight is
+ * rounded up to the next gram.
+ */
+public final class TariffCard {
+
+    private static final int LETTERS = 26;
+    private static final long BPS_ONE = 10_000L;
+    private static final long GRAMS_PER_KG = 1_000L;
+
+    private final String carrier;
+    private final String version;
+    private final String currency;
+    private final int currencyScale;
+    private final short[] zoneBySlot;
+    private final long[] zoneMultiplierBps;
+    private final long defaultZoneMultiplierBps;
+    private final Service[] services;
+    private final TariffCondition[] surchargeConditions;
+    private final long[] surchargeBps;
+    private final long[] surchargeFlatMinor;
+
+    private TariffCard(TariffCardDefinition definition) {
+        this.carrier = require(definition.getCarrier(), "carrier");
+        this.version = require(definition.getVersion(), "version");
+        this.currency = require(definition.getCurrency(), "currency");
+        this.currencyScale = definition.getCurrencyScale();
+
+        Map<String, List<String>> zones = present(definition.getZones(), "zones");
+        Map<String, BigDecimal> zoneMultipliers = present(definition.getZoneMultipliers(), "zoneMultipliers");
+        List<String> zoneNames = new ArrayList<>(zones.keySet());
+        this.zoneBySlot = new short[LETTERS * LETTERS];
+        Arrays.fill(zoneBySlot, (short) -1);
+        this.zoneMultiplierBps = new long[zoneNames.size()];
+        for (int zone = 0; zone < zoneNames.size(); zone++) {
+            String name = zoneNames.get(zone);
+            BigDecimal multiplier = zoneMultipliers.get(name);
+            if (multiplier == null) {
+                throw new IllegalArgumentException("Zone " + name + " has no multiplier");
+            }
+            zoneMultiplierBps[zone] = bps(multiplier);
+            for (String country : present(zones.get(name), "countries for zone " + name)) {
+                if (!isCountryCode(country)) {
+                    throw new IllegalArgumentException("Invalid country code " + country + " in zone " + name);
+                }
+                zoneBySlot[slot(country)] = (short) zone;
+            }
+        }
+        this.defaultZoneMultiplierBps = bps(present(definition.getDefaultZoneMultiplier(), "defaultZoneMultiplier"));
+
+        this.services = present(definition.getServices(), "services").stream()
+                .map(service -> new Service(present(service, "service"), currencyScale))
+                .toArray(Service[]::new);
+
+        List<TariffCardDefinition.SurchargeDefinition> surcharges = present(definition.getSurcharges(), "surcharges");
+        this.surchargeConditions = new TariffCondition[surcharges.size()];
+        this.surchargeBps = new long[surcharges.size()];
+        this.surchargeFlatMinor = new long[surcharges.size()];
+        for (int i = 0; i < surcharges.size(); i++) {
+            TariffCardDefinition.SurchargeDefinition surcharge = present(surcharges.get(i), "surcharge");
+            String field = " for surcharge " + surcharge.getCode();
+            surchargeConditions[i] = present(surcharge.getWhen(), "condition" + field);
+            surchargeBps[i] = bps(present(surcharge.getPercent(), "percent" + field).movePointLeft(2));
+            surchargeFlatMinor[i] = minor(present(surcharge.getFlat(), "flat" + field), currencyScale);
+        }
+    }
+
+    /**
+     * Compile a rate card, validating it
+     *
+     * @throws IllegalArgumentException if the card is incomplete or inconsistent
+     */
+    public static TariffCard compile(TariffCardDefinition definition) {
+        return new TariffCard(definition);
+    }
+
+    public String getCarrier() {
+        return carrier;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Price every service of the card that applies to the shipment, in card order
+     */
+    public List<TariffQuote> rate(TariffShipment shipment) {
+        boolean domestic = shipment.originCountry() != null
+                && shipment.originCountry().equals(shipment.destinationCountry());
+        long grams = billableGrams(shipment.weightKg());
+        long zoneBps = domestic ? BPS_ONE : zoneMultiplierBps(shipment.destinationCountry());
+
+        List<TariffQuote> quotes = new ArrayList<>(services.length);
+        for (Service service : services) {
+            if (!service.appliesTo(domestic, shipment.sameCity())) {
+                continue;
+            }
+            long price = applyBps(applyBps(service.weightPrice(grams), service.multiplierBps), zoneBps);
+            long total = price;
+            for (int i = 0; i < surchargeConditions.length; i++) {
+                if (matches(surchargeConditions[i], shipment)) {
+                    total += applyBps(price, surchargeBps[i]) + surchargeFlatMinor[i];
+                }
+            }
+            quotes.add(new TariffQuote(service.code, service.name, BigDecimal.valueOf(total, currencyScale),
+                    currency, service.deliveryDays));
+        }
+        return quotes;
+    }
+
+    private long zoneMultiplierBps(String country) {
+        if (!isCountryCode(country)) {
+            return defaultZoneMultiplierBps;
+        }
+        int zone = zoneBySlot[slot(country)];
+        return zone < 0 ? defaultZoneMultiplierBps : zoneMultiplierBps[zone];
+    }
+
+    private static boolean matches(TariffCondition condition, TariffShipment shipment) {
+        return switch (condition) {
+            case ALWAYS -> true;
+            case FRAGILE -> shipment.fragile();
+            case LIQUID -> shipment.liquid();
+            case HAZARDOUS -> shipment.hazardous();
+        };
+    }
+
+    private static long billableGrams(BigDecimal weightKg) {
+        if (weightKg == null || weightKg.signum() <= 0) {
+            return 0;
+        }
+        return weightKg.movePointRight(3).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+
+    private static long applyBps(long amount, long bps) {
+        return bps == BPS_ONE ? amount : divideHalfUp(Math.multiplyExact(amount, bps), BPS_ONE);
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = Math.floorDiv(dividend, divisor);
+        long remainder = Math.floorMod(dividend, divisor);
+        return remainder * 2 >= divisor ? quotient + 1 : quotient;
+    }
+
+    private static long bps(BigDecimal multiplier) {
+        return multiplier.movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static long minor(BigDecimal amount, int scale) {
+        return amount.movePointRight(scale).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static boolean isCountryCode(String country) {
+        return country != null && country.length() == 2
+                && country.charAt(0) >= 'A' && country.charAt(0) <= 'Z'
+                && country.charAt(1) >= 'A' && country.charAt(1) <= 'Z';
+    }
+
+    private static int slot(String country) {
+        return (country.charAt(0) - 'A') * LETTERS + (country.charAt(1) - 'A');
+    }
+
+    private static String require(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Rate card has no " + field);
+        }
+        return value;
+    }
+
+    /**
+     * Explicit JSON nulls override the definition's defaults, so every value read is checked
+     */
+    private static <T> T present(T value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("Rate card has no " + field);
+        }
+        return value;
+    }
+
+    private static final class Service {
+
+        private final String code;
+        private final String name;
+        private final TariffScope scope;
+        private final boolean sameCityOnly;
+        private final int deliveryDays;
+        private final long[] breakGrams;
+        private final long[] breakPriceMinor;
+        private final long perKgAfterMinor;
+        private final long multiplierBps;
+
+        Service(TariffCardDefinition.ServiceDefinition definition, int currencyScale) {
+            this.code = require(definition.getCode(), "service code");
+            this.name = require(definition.getName(), "name for service " + code);
+            this.scope = present(definition.getScope(), "scope for service " + code);
+            this.sameCityOnly = definition.isSameCityOnly();
+            this.deliveryDays = definition.getDeliveryDays();
+            this.perKgAfterMinor = minor(present(definition.getPerKgAfter(), "perKgAfter for service " + code),
+                    currencyScale);
+            this.multiplierBps = bps(present(definition.getMultiplier(), "multiplier for service " + code));
+
+            List<TariffCardDefinition.WeightBreak> breaks = present(definition.getWeightBreaks(),
+                    "weight breaks for service " + code);
+            if (breaks.isEmpty()) {
+                throw new IllegalArgumentException("Service " + code + " has no weight breaks");
+            }
+            this.breakGrams = new long[breaks.size()];
+            this.breakPriceMinor = new long[breaks.size()];
+            for (int i = 0; i < breaks.size(); i++) {
+                TariffCardDefinition.WeightBreak weightBreak = present(breaks.get(i), "weight break for service " + code);
+                breakGrams[i] = present(weightBreak.getKg(), "kg for a weight break of service " + code)
+                        .movePointRight(3).setScale(0, RoundingMode.CEILING).longValueExact();
+                breakPriceMinor[i] = minor(present(weightBreak.getPrice(),
+                        "price for a weight break of service " + code), currencyScale);
+                if (i > 0 && breakGrams[i] <= breakGrams[i - 1]) {
+                    throw new IllegalArgumentException("Weight breaks of service " + code + " must increase");
+                }
+            }
+        }
+
+        boolean appliesTo(boolean domestic, boolean sameCity) {
+            if (sameCityOnly && !(domestic && sameCity)) {
+                return false;
+            }
+            return scope == TariffScope.ANY || (scope == TariffScope.DOMESTIC) == domestic;
+        }
+
+        /**
+         * Price at the weight: the first break's price below it, interpolated between breaks, per kg beyond the last
+         */
+        long weightPrice(long grams) {
+            int last = breakGrams.length - 1;
+            if (grams <= breakGrams[0]) {
+                return breakPriceMinor[0];
+            }
+            if (grams >= breakGrams[last]) {
+                return breakPriceMinor[last]
+                        + divideHalfUp(Math.multiplyExact(perKgAfterMinor, grams - breakGrams[last]), GRAMS_PER_KG);
+            }
+            int index = Arrays.binarySearch(breakGrams, grams);
+            if (index >= 0) {
+                return breakPriceMinor[index];
+            }
+            int upper = -index - 1;
+            int lower = upper - 1;
+            long span = breakGrams[upper] - breakGrams[lower];
+            long rise = breakPriceMinor[upper] - breakPriceMinor[lower];
+            return breakPriceMinor[lower] + divideHalfUp(Math.multiplyExact(rise, grams - breakGrams[lower]), span);
+        }
+    }
+}
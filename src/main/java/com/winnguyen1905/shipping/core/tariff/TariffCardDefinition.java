@@ -0,0 +1,70 @@
+package com.winnguyen1905.shipping.core.tariff;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A carrier rate card as stored in a tariff file; compiled into a {@link TariffCard} for rating.
+ *
+ * Prices are in {@code currency} units and weights in kg. Each service prices a shipment
+ * by linear interpolation between its weight breaks and {@code perKgAfter} beyond the
+ * last break, times its {@code multiplier}; international routes are then multiplied by
+ * the destination zone's multiplier, and matching surcharges are added last.
+ */
+@Data
+@NoArgsConstructor
+public class TariffCardDefinition {
+
+    private String carrier;
+    private String version;
+    private String currency;
+    private int currencyScale;
+    private Map<String, List<String>> zones = new LinkedHashMap<>(); // Zone name -> ISO country codes
+    private Map<String, BigDecimal> zoneMultipliers = new LinkedHashMap<>();
+    private BigDecimal defaultZoneMultiplier = BigDecimal.ONE; // Countries in no zone
+    private List<ServiceDefinition> services = new ArrayList<>();
+    private List<SurchargeDefinition> surcharges = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class ServiceDefinition {
+        private String code;
+        private String name;
+        private TariffScope scope = TariffScope.ANY;
+        private boolean sameCityOnly;
+        private int deliveryDays;
+        private List<WeightBreak> weightBreaks = new ArrayList<>();
+        private BigDecimal perKgAfter = BigDecimal.ZERO;
+        private BigDecimal multiplier = BigDecimal.ONE;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class WeightBreak {
+        private BigDecimal kg;
+        private BigDecimal price;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class SurchargeDefinition {
+        private String code;
+        private TariffCondition when = TariffCondition.ALWAYS;
+        private BigDecimal percent = BigDecimal.ZERO; // Of the service price
+        private BigDecimal flat = BigDecimal.ZERO;
+    }
+
+    public enum TariffScope {
+        DOMESTIC, INTERNATIONAL, ANY
+    }
+
+    public enum TariffCondition {
+        ALWAYS, FRAGILE, LIQUID, HAZARDOUS
+    }
+}
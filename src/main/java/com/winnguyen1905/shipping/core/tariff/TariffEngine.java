@@ -0,0 +1,183 @@
+package com.winnguyen1905.shipping.core.tariff;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Carrier rate cards loaded from versioned tariff files.
+ *
+ * Every {@code *.json} file under {@code shipping.tariffs.location} holds one
+ * {@link TariffCardDefinition}; each is compiled into an immutable {@link TariffCard}
+ * and the set is published with a single reference swap, so a rating call always
+ * sees one consistent set of tariffs. The files are re-read every
+ * {@code shipping.tariffs.reload-interval-ms} and swapped in when their content
+ * changed, as detected by a SHA-256 digest of the files; with a {@code file:} location
+ * new tariffs go live without a redeploy. A set that fails to load or compile, is empty,
+ * or drops a carrier that has a card in use is rejected as a whole: at startup the
+ * engine fails to construct, on a reload the previous tariffs stay in use. Retiring a
+ * carrier's card takes a restart.
+ */
+@Component
+@Slf4j
+public class TariffEngine {
+
+    private final ResourcePatternResolver resourcePatternResolver;
+    private final ObjectMapper objectMapper;
+    private final String location;
+    private final Counter reloads;
+    private final Counter reloadFailures;
+
+    private volatile Tariffs tariffs = new Tariffs(Map.of(), "");
+
+    public TariffEngine(ResourcePatternResolver resourcePatternResolver, ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${shipping.tariffs.location:classpath:tariffs/}") String location) {
+        this.resourcePatternResolver = resourcePatternResolver;
+        this.objectMapper = objectMapper;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.reloads = Counter.builder("shipping.tariffs.reloads")
+                .description("Rate card sets swapped in")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.reloadFailures = Counter.builder("shipping.tariffs.reloads")
+                .description("Rate card sets swapped in")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        // Without rate cards VNPost and the internal fallback would quote nothing
+        try {
+            load();
+        } catch (IOException | IllegalStateException e) {
+            reloadFailures.increment();
+            throw new IllegalStateException("Error loading rate cards from " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Price the shipment with every applicable service of the carrier's rate card;
+     * empty when the carrier has no card
+     */
+    public List<TariffQuote> rate(String carrier, TariffShipment shipment) {
+        TariffCard card = tariffs.cards().get(key(carrier));
+        return card == null ? List.of() : card.rate(shipment);
+    }
+
+    public Optional<TariffCard> card(String carrier) {
+        return Optional.ofNullable(tariffs.cards().get(key(carrier)));
+    }
+
+    /**
+     * Carrier -> version of the rate cards in use
+     */
+    public Map<String, String> versions() {
+        Map<String, String> versions = new LinkedHashMap<>();
+        tariffs.cards().values().forEach(card -> versions.put(card.getCarrier(), card.getVersion()));
+        return versions;
+    }
+
+    /**
+     * Re-read the tariff files and swap them in if they changed
+     */
+    @Scheduled(fixedDelayString = "${shipping.tariffs.reload-interval-ms:60000}",
+            initialDelayString = "${shipping.tariffs.reload-interval-ms:60000}")
+    public void reload() {
+        try {
+            load();
+        } catch (IOException | IllegalStateException e) {
+            reloadFailures.increment();
+            log.error("Error loading rate cards from {}, keeping the current ones: {}", location, e.getMessage());
+        }
+    }
+
+    /**
+     * Swap in the tariff files if they changed, throwing when the set is rejected
+     */
+    private void load() throws IOException {
+        Resource[] resources = resourcePatternResolver.getResources(location + "*.json");
+        Arrays.sort(resources, (a, b) -> String.valueOf(a.getFilename()).compareTo(String.valueOf(b.getFilename())));
+
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                contents.put(resource.getDescription(), in.readAllBytes());
+            }
+        }
+        String fingerprint = fingerprint(contents);
+        if (fingerprint.equals(tariffs.fingerprint())) {
+            return;
+        }
+
+        Map<String, TariffCard> cards = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            TariffCard card;
+            try {
+                card = TariffCard.compile(objectMapper.readValue(entry.getValue(), TariffCardDefinition.class));
+            } catch (IOException | RuntimeException e) {
+                throw new IllegalStateException("Invalid rate card " + entry.getKey() + ": " + e.getMessage(), e);
+            }
+            if (cards.put(key(card.getCarrier()), card) != null) {
+                throw new IllegalStateException("More than one rate card for carrier " + card.getCarrier());
+            }
+        }
+
+        if (cards.isEmpty()) {
+            throw new IllegalStateException("No rate cards found");
+        }
+        for (TariffCard current : tariffs.cards().values()) {
+            if (!cards.containsKey(key(current.getCarrier()))) {
+                throw new IllegalStateException("No rate card for carrier " + current.getCarrier());
+            }
+        }
+
+        tariffs = new Tariffs(Map.copyOf(cards), fingerprint);
+        reloads.increment();
+        log.info("Loaded rate cards from {}: {}", location, versions());
+    }
+
+    private static String fingerprint(Map<String, byte[]> contents) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            // Length-prefixed so bytes cannot move between a file name and its content
+            digest.update(ByteBuffer.allocate(2 * Integer.BYTES)
+                    .putInt(name.length).putInt(entry.getValue().length).array());
+            digest.update(name);
+            digest.update(entry.getValue());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String key(String carrier) {
+        return carrier == null ? "" : carrier.toUpperCase(Locale.ROOT);
+    }
+
+    private record Tariffs(Map<String, TariffCard> cards, String fingerprint) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.winnguyen1905.shipping.core.tariff;
+
+import java.math.BigDecimal;
+
+/**
+ * The price of one rate card service for a shipment
+ */
+public record TariffQuote(String serviceCode, String serviceName, BigDecimal cost, String currency,
+                          int deliveryDays) {
+}
@@ -0,0 +1,12 @@
+package com.winnguyen1905.shipping.core.tariff;
+
+import java.math.BigDecimal;
+
+/**
+ * The shipment attributes a rate card prices on
+ *
+ * @param sameCity Origin and destination are in the same city, for same-city services
+ */
+public record TariffShipment(String originCountry, String destinationCountry, BigDecimal weightKg, boolean sameCity,
+                             boolean fragile, boolean liquid, boolean hazardous) {
+}
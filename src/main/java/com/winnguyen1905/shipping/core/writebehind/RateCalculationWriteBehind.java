@@ -0,0 +1,209 @@
+package com.winnguyen1905.shipping.core.writebehind;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.winnguyen1905.shipping.core.model.response.RateCalculationResponse;
+import com.winnguyen1905.shipping.persistance.entity.EShippingRateCalculation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind persistence of {@link EShippingRateCalculation} audit records.
+ *
+ * A calculation gets its ID and creation time when it is submitted, so the response
+ * can reference it straight away; the rate list is serialized and the row inserted
+ * later by the background flusher in JDBC batches. IDs are allocated by the entity's
+ * own Hibernate generator, so calculations saved through JPA draw from the same pooled
+ * sequence blocks. Until its row is written, or has finally failed, a calculation can
+ * still be read through {@link #findPending(Long)}.
+ */
+@Component
+@Slf4j
+public class RateCalculationWriteBehind {
+
+    private static final String INSERT_SQL = "INSERT INTO shipping_rate_calculations "
+            + "(calculation_id, order_id, from_zip, to_zip, total_weight, total_value, package_count, "
+            + "requested_service_type, calculated_rates, selected_method_id, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS JSON), ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final SessionFactoryImplementor sessionFactory;
+    private final IdentifierGenerator idGenerator;
+    private final WriteBehindBuffer<PendingCalculation> buffer;
+    private final Map<Long, PendingCalculation> pending = new ConcurrentHashMap<>();
+
+    public RateCalculationWriteBehind(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                      EntityManagerFactory entityManagerFactory,
+                                      @Value("${shipping.rates.audit.write-behind.enabled:true}") boolean enabled,
+                                      @Value("${shipping.rates.audit.write-behind.queue-capacity:10000}") int capacity,
+                                      @Value("${shipping.rates.audit.write-behind.batch-size:200}") int batchSize,
+                                      @Value("${shipping.rates.audit.write-behind.flush-interval-ms:500}") long flushIntervalMs,
+                                      @Value("${shipping.rates.audit.write-behind.offer-timeout-ms:50}") long offerTimeoutMs,
+                                      @Value("${shipping.rates.audit.write-behind.drain-timeout-seconds:10}") long drainTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Generator generator = sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(EShippingRateCalculation.class)
+                .getGenerator();
+        if (!(generator instanceof IdentifierGenerator identifierGenerator)) {
+            throw new IllegalStateException("Rate calculation IDs must be generated before insert, not by " + generator);
+        }
+        this.idGenerator = identifierGenerator;
+        this.buffer = new WriteBehindBuffer<>("rate-calculations",
+                new WriteBehindBuffer.Settings(enabled, capacity, batchSize, Duration.ofMillis(flushIntervalMs),
+                        Duration.ofMillis(offerTimeoutMs), false, Duration.ofSeconds(drainTimeoutSeconds)),
+                this::insertBatch, meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        buffer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        buffer.stop();
+    }
+
+    /**
+     * Assign an ID and creation time to the calculation and queue it for insertion
+     */
+    public EShippingRateCalculation submit(EShippingRateCalculation calculation,
+                                           List<RateCalculationResponse.ShippingRate> calculatedRates) {
+        assignIds(List.of(calculation));
+        calculation.setCreatedAt(Instant.now());
+
+        PendingCalculation entry = new PendingCalculation(calculation, calculatedRates);
+        pending.put(calculation.getCalculationId(), entry);
+        buffer.submit(entry);
+        return calculation;
+    }
+
+    /**
+     * Submit several calculations at once; {@code calculatedRates} is index-aligned with
+     * {@code calculations}
+     */
+    public List<EShippingRateCalculation> submitAll(List<EShippingRateCalculation> calculations,
+                                                    List<List<RateCalculationResponse.ShippingRate>> calculatedRates) {
+        assignIds(calculations);
+        Instant createdAt = Instant.now();
+        for (int i = 0; i < calculations.size(); i++) {
+            EShippingRateCalculation calculation = calculations.get(i);
+            calculation.setCreatedAt(createdAt);
+            PendingCalculation entry = new PendingCalculation(calculation, calculatedRates.get(i));
+            pending.put(calculation.getCalculationId(), entry);
+            buffer.submit(entry);
+        }
+        return calculations;
+    }
+
+    /**
+     * A submitted calculation that has not been written yet
+     */
+    public Optional<EShippingRateCalculation> findPending(Long calculationId) {
+        PendingCalculation entry = calculationId != null ? pending.get(calculationId) : null;
+        if (entry == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(entry.materialize(objectMapper));
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing pending rate calculation {}", calculationId, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The generator's optimizer hands out IDs from its current block and only needs the
+     * session to fetch the next one
+     */
+    private void assignIds(List<EShippingRateCalculation> calculations) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            for (EShippingRateCalculation calculation : calculations) {
+                Object id = idGenerator.generate((SharedSessionContractImplementor) session, calculation);
+                calculation.setCalculationId(((Number) id).longValue());
+            }
+        }
+    }
+
+    private void insertBatch(List<PendingCalculation> batch) {
+        List<EShippingRateCalculation> rows = new ArrayList<>(batch.size());
+        for (PendingCalculation entry : batch) {
+            try {
+                rows.add(entry.materialize(objectMapper));
+            } catch (JsonProcessingException e) {
+                log.error("Error serializing rate calculation {}, dropping it",
+                        entry.calculation().getCalculationId(), e);
+                pending.remove(entry.calculation().getCalculationId());
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                ps.setLong(1, row.getCalculationId());
+                ps.setObject(2, row.getOrderId(), Types.BIGINT);
+                ps.setString(3, row.getFromZip());
+                ps.setString(4, row.getToZip());
+                ps.setBigDecimal(5, row.getTotalWeight());
+                ps.setBigDecimal(6, row.getTotalValue());
+                ps.setObject(7, row.getPackageCount(), Types.INTEGER);
+                ps.setString(8, row.getRequestedServiceType());
+                ps.setString(9, row.getCalculatedRates());
+                ps.setObject(10, row.getSelectedMethodId(), Types.INTEGER);
+                ps.setTimestamp(11, Timestamp.from(row.getCreatedAt()));
+            });
+        } catch (RuntimeException e) {
+            // The buffer retries a failed batch row by row; only a failed single row is final
+            if (batch.size() == 1) {
+                pending.remove(rows.get(0).getCalculationId());
+            }
+            throw e;
+        }
+        for (EShippingRateCalculation row : rows) {
+            pending.remove(row.getCalculationId());
+        }
+    }
+
+    /**
+     * A queued calculation; the rate list is serialized on first use, normally by the flusher
+     */
+    private record PendingCalculation(EShippingRateCalculation calculation,
+                                      List<RateCalculationResponse.ShippingRate> calculatedRates) {
+
+        EShippingRateCalculation materialize(ObjectMapper objectMapper) throws JsonProcessingException {
+            synchronized (calculation) {
+                if (calculation.getCalculatedRates() == null) {
+                    calculation.setCalculatedRates(objectMapper.writeValueAsString(calculatedRates));
+                }
+                return calculation;
+            }
+        }
+    }
+}
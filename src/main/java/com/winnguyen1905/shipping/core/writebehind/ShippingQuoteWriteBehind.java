@@ -0,0 +1,176 @@
+package com.winnguyen1905.shipping.core.writebehind;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+import com.winnguyen1905.shipping.persistance.entity.EShippingQuote;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write-behind audit of computed shipping quotes into {@code shipping_quotes}.
+ *
+ * A computed quote gets one row under its quote id. Each time it is served again from the
+ * cache another row is written with {@code cache_hit} set, no external quote id of its own
+ * and {@code source_quote_id} pointing at the computed quote, so external quote ids stay
+ * unique. The request thread only builds the {@link EShippingQuote} summary columns and
+ * queues it together with the request and response; the flusher serializes the JSON
+ * columns and inserts the rows in JDBC batches. Quote rows are never read back by the request path, so nothing
+ * needs to track records that are still queued, and when the queue stays full past
+ * {@code offer-timeout-ms} rows are dropped (counted as {@code dropped}) rather than
+ * inserted on the request thread.
+ */
+@Component
+@Slf4j
+public class ShippingQuoteWriteBehind {
+
+    private static final String INSERT_SQL = "INSERT INTO shipping_quotes "
+            + "(external_quote_id, customer_id, vendor_id, vendor_name, request_type, origin_country, "
+            + "destination_country, total_weight, total_value, currency, package_count, is_domestic, "
+            + "requires_customs, request_data, response_data, best_option_provider, best_option_service, "
+            + "best_option_cost, best_option_currency, best_option_delivery_days, cheapest_option_provider, "
+            + "cheapest_option_cost, fastest_option_provider, fastest_option_delivery_days, total_options_count, "
+            + "providers_queried, providers_responded, provider_errors, calculation_method, cache_hit, "
+            + "source_quote_id, processing_time_ms, expires_at, is_used, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS JSON), CAST(? AS JSON), ?, ?, ?, ?, ?, ?, "
+            + "?, ?, ?, ?, CAST(? AS JSON), CAST(? AS JSON), CAST(? AS JSON), ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final WriteBehindBuffer<PendingQuote> buffer;
+    private final boolean includePayloads;
+
+    public ShippingQuoteWriteBehind(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                    @Value("${shipping.quotes.audit.enabled:true}") boolean enabled,
+                                    @Value("${shipping.quotes.audit.include-payloads:true}") boolean includePayloads,
+                                    @Value("${shipping.quotes.audit.queue-capacity:20000}") int capacity,
+                                    @Value("${shipping.quotes.audit.batch-size:500}") int batchSize,
+                                    @Value("${shipping.quotes.audit.flush-interval-ms:1000}") long flushIntervalMs,
+                                    @Value("${shipping.quotes.audit.offer-timeout-ms:0}") long offerTimeoutMs,
+                                    @Value("${shipping.quotes.audit.drop-when-full:true}") boolean dropWhenFull,
+                                    @Value("${shipping.quotes.audit.drain-timeout-seconds:10}") long drainTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.includePayloads = includePayloads;
+        this.buffer = new WriteBehindBuffer<>("shipping-quotes",
+                new WriteBehindBuffer.Settings(enabled, capacity, batchSize, Duration.ofMillis(flushIntervalMs),
+                        Duration.ofMillis(offerTimeoutMs), dropWhenFull, Duration.ofSeconds(drainTimeoutSeconds)),
+                this::insertBatch, meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        buffer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        buffer.stop();
+    }
+
+    /**
+     * Queue the audit row for a newly computed quote, or for a quote served from the cache
+     */
+    public void submit(EShippingQuote quote, ShippingQuoteRequest request, ShippingQuoteResponse response) {
+        quote.setCreatedAt(Instant.now());
+        buffer.submit(new PendingQuote(quote, request, response));
+    }
+
+    void insertBatch(List<PendingQuote> batch) {
+        List<EShippingQuote> rows = new ArrayList<>(batch.size());
+        for (PendingQuote entry : batch) {
+            try {
+                rows.add(entry.materialize(objectMapper, includePayloads));
+            } catch (JsonProcessingException e) {
+                log.error("Error serializing shipping quote {}, dropping it", entry.quote().getExternalQuoteId(), e);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.getExternalQuoteId());
+            ps.setObject(2, row.getCustomerId(), Types.BIGINT);
+            ps.setString(3, row.getVendorId());
+            ps.setString(4, row.getVendorName());
+            ps.setString(5, row.getRequestType());
+            ps.setString(6, row.getOriginCountry());
+            ps.setString(7, row.getDestinationCountry());
+            ps.setBigDecimal(8, row.getTotalWeight());
+            ps.setBigDecimal(9, row.getTotalValue());
+            ps.setString(10, row.getCurrency());
+            ps.setInt(11, row.getPackageCount());
+            ps.setBoolean(12, row.getIsDomestic());
+            ps.setBoolean(13, row.getRequiresCustoms());
+            ps.setString(14, row.getRequestData());
+            ps.setString(15, row.getResponseData());
+            ps.setString(16, row.getBestOptionProvider());
+            ps.setString(17, row.getBestOptionService());
+            ps.setBigDecimal(18, row.getBestOptionCost());
+            ps.setString(19, row.getBestOptionCurrency());
+            ps.setObject(20, row.getBestOptionDeliveryDays(), Types.INTEGER);
+            ps.setString(21, row.getCheapestOptionProvider());
+            ps.setBigDecimal(22, row.getCheapestOptionCost());
+            ps.setString(23, row.getFastestOptionProvider());
+            ps.setObject(24, row.getFastestOptionDeliveryDays(), Types.INTEGER);
+            ps.setInt(25, row.getTotalOptionsCount());
+            ps.setString(26, row.getProvidersQueried());
+            ps.setString(27, row.getProvidersResponded());
+            ps.setString(28, row.getProviderErrors());
+            ps.setString(29, row.getCalculationMethod());
+            ps.setBoolean(30, row.getCacheHit());
+            ps.setString(31, row.getSourceQuoteId());
+            ps.setObject(32, row.getProcessingTimeMs(), Types.BIGINT);
+            ps.setTimestamp(33, row.getExpiresAt() != null ? Timestamp.from(row.getExpiresAt()) : null);
+            ps.setBoolean(34, row.getIsUsed());
+            ps.setTimestamp(35, Timestamp.from(row.getCreatedAt()));
+            ps.setTimestamp(36, Timestamp.from(row.getCreatedAt()));
+        });
+    }
+
+    /**
+     * A queued quote; the JSON columns are filled in by the flusher. A cache hit stores only
+     * its request, the response and provider results are on the computed quote's row
+     */
+    record PendingQuote(EShippingQuote quote, ShippingQuoteRequest request, ShippingQuoteResponse response) {
+
+        EShippingQuote materialize(ObjectMapper objectMapper, boolean includePayloads) throws JsonProcessingException {
+            ShippingQuoteResponse.QuoteMetadata metadata = response.getMetadata();
+            if (includePayloads) {
+                quote.setRequestData(objectMapper.writeValueAsString(request));
+                if (!quote.getCacheHit()) {
+                    quote.setResponseData(objectMapper.writeValueAsString(response));
+                }
+            }
+            if (metadata != null && !quote.getCacheHit()) {
+                // Providers are only queried on a cache miss
+                List<String> queried = new ArrayList<>();
+                if (metadata.getAvailableProviders() != null) {
+                    queried.addAll(metadata.getAvailableProviders());
+                }
+                if (metadata.getUnavailableProviders() != null) {
+                    queried.addAll(metadata.getUnavailableProviders());
+                }
+                quote.setProvidersQueried(objectMapper.writeValueAsString(queried));
+                quote.setProvidersResponded(objectMapper.writeValueAsString(metadata.getAvailableProviders()));
+                quote.setProviderErrors(objectMapper.writeValueAsString(metadata.getProviderErrors()));
+            }
+            return quote;
+        }
+    }
+}
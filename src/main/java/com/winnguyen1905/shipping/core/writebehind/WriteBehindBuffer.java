@@ -0,0 +1,229 @@
+package com.winnguyen1905.shipping.core.writebehind;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-process write-behind buffer drained by a single background flusher.
+ *
+ * Records are flushed once {@code batchSize} of them have accumulated or
+ * {@code flushInterval} after the first one arrived, whichever comes first. When the
+ * queue is full a producer waits up to {@code offerTimeout} and then writes its record
+ * itself, so a slow database slows callers down instead of losing records; with
+ * {@code dropWhenFull} the record is dropped and counted instead, for records that
+ * are not worth holding up a caller. On
+ * {@link #stop()} new records are written inline and the queue is drained for at most
+ * {@code drainTimeout}; a record that raced into the queue after the flusher's last
+ * poll is written by whichever of the producer and {@code stop()} takes it out. A failed batch is retried one record at a time so a single bad
+ * row does not take the rest of the batch with it.
+ */
+@Slf4j
+public class WriteBehindBuffer<T> {
+
+    /**
+     * Persists one batch, typically as a single JDBC batch statement
+     */
+    @FunctionalInterface
+    public interface BatchWriter<T> {
+        void write(List<T> batch);
+    }
+
+    public record Settings(boolean enabled, int capacity, int batchSize, Duration flushInterval,
+                           Duration offerTimeout, boolean dropWhenFull, Duration drainTimeout) {
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final BatchWriter<T> writer;
+    private final BlockingQueue<T> queue;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+    private final Counter inlineCounter;
+    private final Counter droppedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private volatile boolean dropping;
+    private Thread flusher;
+
+    public WriteBehindBuffer(String name, Settings settings, BatchWriter<T> writer, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.settings = settings;
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.capacity()));
+        Gauge.builder("shipping.writebehind.queue.size", queue, BlockingQueue::size)
+                .description("Records waiting in the write-behind queue")
+                .tag("buffer", name)
+                .register(meterRegistry);
+        this.writtenCounter = recordCounter(meterRegistry, "written");
+        this.failedCounter = recordCounter(meterRegistry, "failed");
+        this.inlineCounter = recordCounter(meterRegistry, "inline");
+        this.droppedCounter = recordCounter(meterRegistry, "dropped");
+        this.flushTimer = Timer.builder("shipping.writebehind.flush")
+                .description("Write-behind batch flush latency")
+                .tag("buffer", name)
+                .register(meterRegistry);
+    }
+
+    public synchronized void start() {
+        if (!settings.enabled() || running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "write-behind-" + name);
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind buffer '{}' started (capacity {}, batch {}, interval {} ms)", name,
+                settings.capacity(), settings.batchSize(), settings.flushInterval().toMillis());
+    }
+
+    /**
+     * Queue a record, writing it on the calling thread when the buffer is disabled or
+     * stopped; a record that still does not fit after the offer timeout is written
+     * inline, or dropped with {@code dropWhenFull}
+     */
+    public void submit(T record) {
+        if (running) {
+            try {
+                if (queue.offer(record, settings.offerTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    dropping = false;
+                    // stop() may have drained the queue after the check above; whoever removes the record writes it
+                    if (!running && queue.remove(record)) {
+                        inlineCounter.increment();
+                        write(List.of(record));
+                    }
+                    return;
+                }
+                if (settings.dropWhenFull()) {
+                    droppedCounter.increment();
+                    if (!dropping) {
+                        // Once per overflow episode; the counter has the rest
+                        dropping = true;
+                        log.warn("Write-behind buffer '{}' is full, dropping records", name);
+                    }
+                    return;
+                }
+                log.warn("Write-behind buffer '{}' is full, writing record inline", name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        inlineCounter.increment();
+        write(List.of(record));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting records and flush what is queued, waiting at most the drain timeout;
+     * records queued after the flusher exited are written on the calling thread
+     */
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            current = flusher;
+        }
+        try {
+            current.join(settings.drainTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!current.isAlive()) {
+            // A producer that saw the buffer running may have queued after the flusher's last poll
+            List<T> batch = new ArrayList<>(Math.max(1, settings.batchSize()));
+            while (queue.drainTo(batch, Math.max(1, settings.batchSize())) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (current.isAlive() || !queue.isEmpty()) {
+            log.warn("Write-behind buffer '{}' stopped with {} records not flushed", name, queue.size());
+        } else {
+            log.info("Write-behind buffer '{}' drained", name);
+        }
+    }
+
+    private void flushLoop() {
+        long intervalNanos = settings.flushInterval().toNanos();
+        int batchSize = Math.max(1, settings.batchSize());
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(intervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + intervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                // Only stop() ends the loop; keep draining
+                Thread.interrupted();
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in write-behind buffer '{}'", name, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            writer.write(batch);
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failedCounter.increment();
+                log.error("Write-behind buffer '{}' failed to write record", name, e);
+            } else {
+                log.warn("Write-behind buffer '{}' failed to write batch of {}, retrying individually: {}",
+                        name, batch.size(), e.getMessage());
+                for (T record : batch) {
+                    write(List.of(record));
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Counter recordCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("shipping.writebehind.records")
+                .description("Records handled by the write-behind buffer")
+                .tag("buffer", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
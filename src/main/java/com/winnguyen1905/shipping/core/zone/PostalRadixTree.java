@@ -0,0 +1,265 @@
+package com.winnguyen1905.shipping.core.zone;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compressed prefix (radix) tree over normalized postal codes.
+ *
+ * Each entry attaches a zone ordinal to a prefix. Entries derived from numeric
+ * ranges such as {@code 10000-19999} also carry the exact digit count a postal code
+ * must have, so {@code 1} compiled from that range does not match {@code 123}.
+ * A lookup walks at most one edge per character of the postal code.
+ */
+final class PostalRadixTree {
+
+    /**
+     * Receives every entry matched by a lookup together with its specificity, the
+     * length of the matched prefix plus one (zero for zones without postal rules)
+     */
+    @FunctionalInterface
+    interface MatchSink {
+        void accept(int ordinal, int specificity);
+    }
+
+    private final Node root = new Node("");
+    private final BitSet allOrdinals = new BitSet();
+    private int prefixCount;
+    private int nodeCount = 1;
+
+    /**
+     * Normalize a postal code or zone prefix for matching: upper-case, no whitespace
+     */
+    static String normalize(String postalCode) {
+        if (postalCode == null) {
+            return null;
+        }
+        StringBuilder normalized = null;
+        for (int i = 0; i < postalCode.length(); i++) {
+            char c = postalCode.charAt(i);
+            if (Character.isWhitespace(c) || Character.isLowerCase(c)) {
+                if (normalized == null) {
+                    normalized = new StringBuilder(postalCode.length()).append(postalCode, 0, i);
+                }
+                if (!Character.isWhitespace(c)) {
+                    normalized.append(Character.toUpperCase(c));
+                }
+            } else if (normalized != null) {
+                normalized.append(c);
+            }
+        }
+        return normalized != null ? normalized.toString() : postalCode;
+    }
+
+    /**
+     * Length of the leading run of ASCII digits, used for range-derived entries
+     */
+    static int leadingDigits(String postalCode) {
+        int i = 0;
+        while (i < postalCode.length() && postalCode.charAt(i) >= '0' && postalCode.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Register a zone under its postal patterns. An empty list means the zone covers
+     * every postal code. Supported patterns are plain prefixes ({@code 100}), wildcard
+     * prefixes ({@code 100*}) and numeric ranges ({@code 10000-19999}).
+     */
+    void insert(List<String> patterns, int ordinal) {
+        allOrdinals.set(ordinal);
+        if (patterns.isEmpty()) {
+            root.add(ordinal, 0);
+            return;
+        }
+        for (String pattern : patterns) {
+            if (pattern == null) {
+                continue;
+            }
+            String normalized = normalize(pattern);
+            if (normalized.endsWith("*")) {
+                insertPrefix(normalized.substring(0, normalized.length() - 1), ordinal, 0);
+            } else if (!insertRange(normalized, ordinal)) {
+                insertPrefix(normalized, ordinal, 0);
+            }
+        }
+    }
+
+    /**
+     * Report every entry whose prefix the postal code starts with. A {@code null}
+     * postal code is treated as unknown and matches every zone in the tree.
+     */
+    void match(String normalizedPostal, MatchSink sink) {
+        if (normalizedPostal == null) {
+            for (int i = allOrdinals.nextSetBit(0); i >= 0; i = allOrdinals.nextSetBit(i + 1)) {
+                sink.accept(i, 0);
+            }
+            return;
+        }
+
+        int digits = leadingDigits(normalizedPostal);
+        Node node = root;
+        int depth = 0;
+        while (true) {
+            node.emit(depth, digits, sink);
+            if (depth == normalizedPostal.length()) {
+                return;
+            }
+            Node child = node.child(normalizedPostal.charAt(depth));
+            if (child == null || !normalizedPostal.startsWith(child.label, depth)) {
+                return;
+            }
+            depth += child.label.length();
+            node = child;
+        }
+    }
+
+    int prefixCount() {
+        return prefixCount;
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    private boolean insertRange(String pattern, int ordinal) {
+        int dash = pattern.indexOf('-');
+        if (dash <= 0 || dash != pattern.lastIndexOf('-') || dash == pattern.length() - 1) {
+            return false;
+        }
+        String low = pattern.substring(0, dash);
+        String high = pattern.substring(dash + 1);
+        if (leadingDigits(low) != low.length() || leadingDigits(high) != high.length()
+                || low.length() > 18 || high.length() > 18) {
+            return false;
+        }
+        long from = Long.parseLong(low);
+        long to = Long.parseLong(high);
+        if (from > to) {
+            return false;
+        }
+
+        // Decompose [from, to] into aligned decimal blocks, one width at a time
+        for (int width = low.length(); width <= high.length(); width++) {
+            long widthFrom = width == low.length() ? from : pow10(width - 1);
+            long widthTo = width == high.length() ? to : pow10(width) - 1;
+            long cursor = widthFrom;
+            while (cursor <= widthTo) {
+                int freeDigits = 0;
+                while (freeDigits < width && cursor % pow10(freeDigits + 1) == 0
+                        && cursor + pow10(freeDigits + 1) - 1 <= widthTo) {
+                    freeDigits++;
+                }
+                String padded = String.format("%0" + width + "d", cursor);
+                insertPrefix(padded.substring(0, width - freeDigits), ordinal, width);
+                cursor += pow10(freeDigits);
+            }
+        }
+        return true;
+    }
+
+    private void insertPrefix(String prefix, int ordinal, int requiredDigits) {
+        prefixCount++;
+        Node node = root;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            char next = prefix.charAt(depth);
+            Node child = node.child(next);
+            if (child == null) {
+                child = new Node(prefix.substring(depth));
+                node.addChild(child);
+                nodeCount++;
+                node = child;
+                depth = prefix.length();
+                break;
+            }
+            int common = commonPrefixLength(child.label, prefix, depth);
+            if (common < child.label.length()) {
+                node = node.split(child, common);
+                nodeCount++;
+            } else {
+                node = child;
+            }
+            depth += common;
+        }
+        node.add(ordinal, requiredDigits);
+    }
+
+    private static int commonPrefixLength(String label, String prefix, int offset) {
+        int max = Math.min(label.length(), prefix.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == prefix.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static long pow10(int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    private static final class Node {
+
+        private String label;
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int[] ordinals = new int[0];
+        private int[] requiredDigits = new int[0];
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node child) {
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = child.label.charAt(0);
+            children[children.length - 1] = child;
+        }
+
+        /**
+         * Split {@code child} after {@code at} characters, returning the new middle node
+         */
+        Node split(Node child, int at) {
+            Node middle = new Node(child.label.substring(0, at));
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    children[i] = middle;
+                }
+            }
+            child.label = child.label.substring(at);
+            middle.addChild(child);
+            return middle;
+        }
+
+        void add(int ordinal, int digits) {
+            ordinals = Arrays.copyOf(ordinals, ordinals.length + 1);
+            requiredDigits = Arrays.copyOf(requiredDigits, requiredDigits.length + 1);
+            ordinals[ordinals.length - 1] = ordinal;
+            requiredDigits[requiredDigits.length - 1] = digits;
+        }
+
+        void emit(int depth, int postalDigits, MatchSink sink) {
+            for (int i = 0; i < ordinals.length; i++) {
+                if (requiredDigits[i] == 0 || requiredDigits[i] == postalDigits) {
+                    sink.accept(ordinals[i], depth == 0 && requiredDigits[i] == 0 ? 0 : depth + 1);
+                }
+            }
+        }
+    }
+}
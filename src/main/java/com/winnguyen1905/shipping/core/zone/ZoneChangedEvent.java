@@ -0,0 +1,8 @@
+package com.winnguyen1905.shipping.core.zone;
+
+/**
+ * Published whenever a shipping zone is created, updated or deactivated so
+ * that in-memory zone structures can be rebuilt once the change is committed.
+ */
+public record ZoneChangedEvent(Integer zoneId, String action) {
+}
@@ -0,0 +1,301 @@
+package com.winnguyen1905.shipping.core.zone;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.winnguyen1905.shipping.persistance.entity.EShippingZone;
+import com.winnguyen1905.shipping.persistance.repository.ShippingZoneRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiled, in-memory view of the active shipping zones, shared by rate calculation
+ * and zone lookup.
+ *
+ * The JSON columns of every active {@link EShippingZone} are parsed once into a
+ * country -> state -> {@link PostalRadixTree} structure, so resolving a destination
+ * costs O(length of postal code) with no database round trip and no JSON parsing.
+ * The index is rebuilt after a zone change is committed and, to pick up changes
+ * made by other nodes, whenever it is older than
+ * {@code shipping.zones.index.max-age-seconds}.
+ *
+ * Matching rules: countries and states compare case-insensitively; zones that list
+ * states only match those states; zones that list postal patterns only match postal
+ * codes starting with one of them. A blank state or postal code is treated as
+ * unknown and does not exclude any zone.
+ */
+@Component
+@Slf4j
+public class ZoneIndex {
+
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+
+    private final ShippingZoneRepository zoneRepository;
+    private final ObjectMapper objectMapper;
+    private final Timer applicableZonesTimer;
+    private final Timer bestZoneTimer;
+    private final Counter matchCounter;
+    private final LongAdder lookupsSinceRebuild = new LongAdder();
+
+    @Value("${shipping.zones.index.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    private volatile Snapshot snapshot;
+
+    public ZoneIndex(ShippingZoneRepository zoneRepository, ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry) {
+        this.zoneRepository = zoneRepository;
+        this.objectMapper = objectMapper;
+        this.applicableZonesTimer = Timer.builder("shipping.zone.resolution")
+                .description("Zone resolution latency")
+                .tag("operation", "all")
+                .register(meterRegistry);
+        this.bestZoneTimer = Timer.builder("shipping.zone.resolution")
+                .description("Zone resolution latency")
+                .tag("operation", "best")
+                .register(meterRegistry);
+        this.matchCounter = Counter.builder("shipping.zone.resolution.matches")
+                .description("Zones matched by zone resolution")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Find every active zone covering the destination, in repository order
+     */
+    public List<EShippingZone> findApplicableZones(String country, String state, String postalCode) {
+        long started = System.nanoTime();
+        Snapshot current = currentSnapshot();
+        CountryNode countryNode = lookupCountry(current, country);
+        if (countryNode == null) {
+            record(applicableZonesTimer, started, 0);
+            return Collections.emptyList();
+        }
+
+        BitSet matches = new BitSet(current.zones().length);
+        countryNode.match(normalizeState(state), normalizePostal(postalCode),
+                (ordinal, specificity, stateRestricted) -> matches.set(ordinal));
+
+        List<EShippingZone> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(current.zones()[i]);
+        }
+        record(applicableZonesTimer, started, result.size());
+        return result;
+    }
+
+    /**
+     * Find the most specific active zone for the destination. Longer matched postal
+     * prefixes win, then state-restricted zones, then single-country zones; remaining
+     * ties go to the zone listed first.
+     */
+    public Optional<EShippingZone> findBestZone(String country, String state, String postalCode) {
+        long started = System.nanoTime();
+        Snapshot current = currentSnapshot();
+        CountryNode countryNode = lookupCountry(current, country);
+        if (countryNode == null) {
+            record(bestZoneTimer, started, 0);
+            return Optional.empty();
+        }
+
+        int[] best = {-1, -1};
+        countryNode.match(normalizeState(state), normalizePostal(postalCode), (ordinal, specificity, stateRestricted) -> {
+            int score = specificity * 4 + (stateRestricted ? 2 : 0) + (current.singleCountry().get(ordinal) ? 1 : 0);
+            if (score > best[1] || (score == best[1] && ordinal < best[0])) {
+                best[0] = ordinal;
+                best[1] = score;
+            }
+        });
+
+        record(bestZoneTimer, started, best[0] >= 0 ? 1 : 0);
+        return best[0] >= 0 ? Optional.of(current.zones()[best[0]]) : Optional.empty();
+    }
+
+    /**
+     * Number of active zones in the current index
+     */
+    public int size() {
+        return currentSnapshot().zones().length;
+    }
+
+    /**
+     * Size and throughput figures for the compiled index
+     */
+    public Map<String, Object> getStats() {
+        Snapshot current = currentSnapshot();
+        long lookups = applicableZonesTimer.count() + bestZoneTimer.count();
+        double busySeconds = applicableZonesTimer.totalTime(TimeUnit.SECONDS) + bestZoneTimer.totalTime(TimeUnit.SECONDS);
+        double secondsSinceRebuild = (System.nanoTime() - current.builtAtNanos()) / 1_000_000_000.0;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeZones", current.zones().length);
+        stats.put("countries", current.countries().size());
+        stats.put("postalPrefixes", current.prefixCount());
+        stats.put("radixNodes", current.nodeCount());
+        stats.put("lookups", lookups);
+        stats.put("matches", (long) matchCounter.count());
+        stats.put("meanLookupNanos", lookups > 0 ? busySeconds * 1_000_000_000.0 / lookups : 0.0);
+        stats.put("lookupsPerSecondCapacity", busySeconds > 0 ? lookups / busySeconds : 0.0);
+        stats.put("lookupsPerSecondObserved",
+                secondsSinceRebuild > 0 ? lookupsSinceRebuild.sum() / secondsSinceRebuild : 0.0);
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onZoneChanged(ZoneChangedEvent event) {
+        log.info("Zone {} {}, rebuilding zone index", event.zoneId(), event.action());
+        rebuild();
+    }
+
+    /**
+     * Reload the active zones and atomically replace the compiled index
+     */
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        List<EShippingZone> activeZones = zoneRepository.findAllActiveZones();
+
+        EShippingZone[] zones = activeZones.toArray(new EShippingZone[0]);
+        Map<String, CountryNode> countries = new HashMap<>();
+        BitSet singleCountry = new BitSet(zones.length);
+
+        for (int ordinal = 0; ordinal < zones.length; ordinal++) {
+            EShippingZone zone = zones[ordinal];
+            try {
+                List<String> zoneCountries = parseList(zone.getCountries());
+                List<String> zoneStates = parseList(zone.getStatesProvinces());
+                List<String> zonePostalPatterns = parseList(zone.getZipCodes());
+
+                if (zoneCountries.size() == 1) {
+                    singleCountry.set(ordinal);
+                }
+                for (String zoneCountry : zoneCountries) {
+                    if (zoneCountry == null || zoneCountry.isBlank()) {
+                        continue;
+                    }
+                    CountryNode countryNode = countries.computeIfAbsent(zoneCountry.trim().toUpperCase(),
+                            key -> new CountryNode(new PostalRadixTree(), new HashMap<>()));
+                    if (zoneStates.isEmpty()) {
+                        countryNode.anyState().insert(zonePostalPatterns, ordinal);
+                    } else {
+                        for (String zoneState : zoneStates) {
+                            if (zoneState != null) {
+                                countryNode.byState().computeIfAbsent(normalizeState(zoneState),
+                                        key -> new PostalRadixTree()).insert(zonePostalPatterns, ordinal);
+                            }
+                        }
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                log.error("Error parsing zone data for zone ID: {}, excluding it from the zone index",
+                        zone.getZoneId(), e);
+            }
+        }
+
+        int prefixCount = 0;
+        int nodeCount = 0;
+        for (CountryNode countryNode : countries.values()) {
+            prefixCount += countryNode.anyState().prefixCount();
+            nodeCount += countryNode.anyState().nodeCount();
+            for (PostalRadixTree stateTree : countryNode.byState().values()) {
+                prefixCount += stateTree.prefixCount();
+                nodeCount += stateTree.nodeCount();
+            }
+        }
+
+        snapshot = new Snapshot(zones, countries, singleCountry, prefixCount, nodeCount, System.nanoTime());
+        lookupsSinceRebuild.reset();
+        log.info("Zone index rebuilt with {} active zones, {} postal prefixes in {} ms",
+                zones.length, prefixCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || isExpired(current)) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || isExpired(current)) {
+                    rebuild();
+                    current = snapshot;
+                }
+            }
+        }
+        return current;
+    }
+
+    private boolean isExpired(Snapshot current) {
+        return maxAgeSeconds > 0
+                && System.nanoTime() - current.builtAtNanos() > TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+    }
+
+    private void record(Timer timer, long startedNanos, int matches) {
+        timer.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        matchCounter.increment(matches);
+        lookupsSinceRebuild.increment();
+    }
+
+    private static CountryNode lookupCountry(Snapshot current, String country) {
+        if (country == null || country.isBlank()) {
+            return null;
+        }
+        return current.countries().get(country.trim().toUpperCase());
+    }
+
+    private static String normalizeState(String state) {
+        return state == null || state.isBlank() ? null : state.trim().toUpperCase();
+    }
+
+    private static String normalizePostal(String postalCode) {
+        return postalCode == null || postalCode.isBlank() ? null : PostalRadixTree.normalize(postalCode);
+    }
+
+    private List<String> parseList(String json) throws JsonProcessingException {
+        if (json == null || json.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> values = objectMapper.readValue(json, STRING_LIST);
+        return values != null ? values : Collections.emptyList();
+    }
+
+    @FunctionalInterface
+    private interface ZoneMatchSink {
+        void accept(int ordinal, int specificity, boolean stateRestricted);
+    }
+
+    private record Snapshot(EShippingZone[] zones, Map<String, CountryNode> countries, BitSet singleCountry,
+                            int prefixCount, int nodeCount, long builtAtNanos) {
+    }
+
+    private record CountryNode(PostalRadixTree anyState, Map<String, PostalRadixTree> byState) {
+
+        void match(String state, String postalCode, ZoneMatchSink sink) {
+            anyState.match(postalCode, (ordinal, specificity) -> sink.accept(ordinal, specificity, false));
+            if (state != null) {
+                PostalRadixTree stateTree = byState.get(state);
+                if (stateTree != null) {
+                    stateTree.match(postalCode, (ordinal, specificity) -> sink.accept(ordinal, specificity, true));
+                }
+            } else {
+                // Unknown state: state-restricted zones still apply but earn no state bonus
+                for (PostalRadixTree stateTree : byState.values()) {
+                    stateTree.match(postalCode, (ordinal, specificity) -> sink.accept(ordinal, specificity, false));
+                }
+            }
+        }
+    }
+}
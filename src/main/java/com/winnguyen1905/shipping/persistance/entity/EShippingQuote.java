@@ -26,7 +26,7 @@ public class EShippingQuote {
     @Column(name = "external_quote_id", length = 100)
     private String externalQuoteId;
 
-    @Column(name = "customer_id", nullable = false)
+    @Column(name = "customer_id")
     private Long customerId;
 
     @Column(name = "vendor_id", length = 50)
@@ -118,6 +118,9 @@ public class EShippingQuote {
     @Builder.Default
     private Boolean cacheHit = false;
 
+    @Column(name = "source_quote_id", length = 100)
+    private String sourceQuoteId; // For a cache hit, the external quote id of the computed quote that was served
+
     @Column(name = "processing_time_ms")
     private Long processingTimeMs;
 
@@ -25,7 +25,8 @@ import lombok.experimental.SuperBuilder;
 public class EShippingRateCalculation {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rate_calculation_id")
+    @SequenceGenerator(name = "rate_calculation_id", sequenceName = "shipping_rate_calculations_seq", allocationSize = 50)
     @Column(name = "calculation_id")
     private Long calculationId;
     
@@ -1,6 +1,7 @@
 package com.winnguyen1905.shipping.persistance.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +43,18 @@ public interface ShippingMethodRepository extends JpaRepository<EShippingMethod,
         @Param("value") BigDecimal value
     );
     
+    @Query("SELECT m FROM EShippingMethod m JOIN FETCH m.carrier c JOIN FETCH m.zone z WHERE z.zoneId IN :zoneIds AND m.isActive = true AND (:carrierId IS NULL OR c.carrierId = :carrierId) AND (:serviceType IS NULL OR m.serviceType = :serviceType) AND (m.minWeight IS NULL OR m.minWeight <= :weight) AND (m.maxWeight IS NULL OR m.maxWeight >= :weight) AND (m.minOrderValue IS NULL OR m.minOrderValue <= :value) AND (m.maxOrderValue IS NULL OR m.maxOrderValue >= :value)")
+    List<EShippingMethod> findCandidateMethods(
+        @Param("zoneIds") Collection<Integer> zoneIds,
+        @Param("carrierId") Integer carrierId,
+        @Param("serviceType") ServiceType serviceType,
+        @Param("weight") BigDecimal weight,
+        @Param("value") BigDecimal value
+    );
+    
+    @Query("SELECT m FROM EShippingMethod m JOIN FETCH m.carrier JOIN FETCH m.zone z WHERE z.zoneId IN :zoneIds AND m.isActive = true")
+    List<EShippingMethod> findActiveByZoneIdsWithCarrierAndZone(@Param("zoneIds") Collection<Integer> zoneIds);
+    
     @Query("SELECT m FROM EShippingMethod m WHERE m.isActive = true ORDER BY m.baseRate ASC")
     List<EShippingMethod> findAllOrderByBaseRateAsc();
     
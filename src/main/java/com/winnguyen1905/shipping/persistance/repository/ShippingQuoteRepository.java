@@ -46,9 +46,12 @@ public interface ShippingQuoteRepository extends JpaRepository<EShippingQuote, L
     @Query("SELECT sq FROM EShippingQuote sq WHERE sq.createdAt BETWEEN :startDate AND :endDate")
     List<EShippingQuote> findByCreatedAtBetween(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
 
-    // Find quotes with cache hits
+    // Find quotes with cache hits; each cache hit is its own row linked to the computed quote
     List<EShippingQuote> findByCacheHit(Boolean cacheHit);
 
+    // Find the cache hits served from a computed quote
+    List<EShippingQuote> findBySourceQuoteId(String sourceQuoteId);
+
     // Find quotes by customer and time range
     @Query("SELECT sq FROM EShippingQuote sq WHERE sq.customerId = :customerId AND sq.createdAt >= :since ORDER BY sq.createdAt DESC")
     List<EShippingQuote> findRecentQuotesByCustomer(@Param("customerId") Long customerId, @Param("since") Instant since);
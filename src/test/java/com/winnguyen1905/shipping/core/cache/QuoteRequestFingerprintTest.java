@@ -0,0 +1,242 @@
+package com.winnguyen1905.shipping.core.cache;
+
+import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuoteRequestFingerprintTest {
+
+  private final QuoteRequestFingerprint fingerprint =
+      new QuoteRequestFingerprint(new BigDecimal("0.001"), new BigDecimal("0.1"));
+
+  @Test
+  void keyIsVersionedAnd128Bits() {
+    String key = fingerprint.fingerprint(request());
+    assertTrue(key.matches("v2:[0-9a-f]{32}"), key);
+  }
+
+  @Test
+  void textIsTrimmedCollapsedAndCaseInsensitive() {
+    ShippingQuoteRequest request = request();
+    request.getCustomer().getAddress().setCity("  ho   chi minh  ");
+    request.getCustomer().getAddress().setCountry("vn");
+    request.getVendor().getAddress().setStreet("12  Le   Loi ");
+    request.setPreferredCurrency(" vnd");
+
+    ShippingQuoteRequest normalized = request();
+    normalized.getCustomer().getAddress().setCity("HO CHI MINH");
+    normalized.getCustomer().getAddress().setCountry("VN");
+    normalized.getVendor().getAddress().setStreet("12 LE LOI");
+    normalized.setPreferredCurrency("VND");
+
+    assertEquals(fingerprint.fingerprint(normalized), fingerprint.fingerprint(request));
+  }
+
+  @Test
+  void postalCodesIgnoreSpacesAndDashes() {
+    ShippingQuoteRequest request = request();
+    request.getCustomer().getAddress().setZip("sw1a 1-aa");
+    ShippingQuoteRequest normalized = request();
+    normalized.getCustomer().getAddress().setZip("SW1A1AA");
+
+    assertEquals(fingerprint.fingerprint(normalized), fingerprint.fingerprint(request));
+  }
+
+  @Test
+  void decimalsAreComparedByValue() {
+    ShippingQuoteRequest request = request();
+    request.getPackageInfo().setWeight(new BigDecimal("1.5"));
+    request.getPackageInfo().setDeclaredValue(new BigDecimal("100"));
+    request.getPackageInfo().getDimensions().setLength(new BigDecimal("20"));
+    ShippingQuoteRequest trailingZeros = request();
+    trailingZeros.getPackageInfo().setWeight(new BigDecimal("1.500"));
+    trailingZeros.getPackageInfo().setDeclaredValue(new BigDecimal("100.00"));
+    trailingZeros.getPackageInfo().getDimensions().setLength(new BigDecimal("20.0"));
+
+    assertEquals(fingerprint.fingerprint(request), fingerprint.fingerprint(trailingZeros));
+  }
+
+  @Test
+  void weightsAndDimensionsAreRoundedUpToTheGranularity() {
+    assertEquals(fingerprintWithWeight("1.5001"), fingerprintWithWeight("1.501"));
+    assertEquals(fingerprintWithWeight("1.5009"), fingerprintWithWeight("1.501"));
+    assertNotEquals(fingerprintWithWeight("1.500"), fingerprintWithWeight("1.5001"));
+
+    ShippingQuoteRequest request = request();
+    request.getPackageInfo().getDimensions().setHeight(new BigDecimal("10.01"));
+    ShippingQuoteRequest rounded = request();
+    rounded.getPackageInfo().getDimensions().setHeight(new BigDecimal("10.1"));
+    assertEquals(fingerprint.fingerprint(rounded), fingerprint.fingerprint(request));
+  }
+
+  @Test
+  void weightsBilledToTheGramKeepSeparateEntries() {
+    // Rate cards bill per gram, so carts a few grams apart can be priced differently
+    assertNotEquals(fingerprintWithWeight("1.501"), fingerprintWithWeight("1.509"));
+    assertNotEquals(fingerprintWithWeight("1.501"), fingerprintWithWeight("1.502"));
+  }
+
+  @Test
+  void namesContactsAndInstructionsAreIgnored() {
+    ShippingQuoteRequest request = request();
+    request.getCustomer().setName("Someone Else");
+    request.getCustomer().setEmail("other@example.com");
+    request.getCustomer().setPhone("+84999999999");
+    request.getVendor().setName("Another Shop");
+    request.getVendor().setContactEmail("shop@example.com");
+    request.getPackageInfo().setSpecialInstructions("Leave at the door");
+    request.getPackageInfo().setContentDescription("Books");
+
+    assertEquals(fingerprint.fingerprint(request()), fingerprint.fingerprint(request));
+  }
+
+  @Test
+  void pricedFieldsChangeTheKey() {
+    String base = fingerprint.fingerprint(request());
+
+    ShippingQuoteRequest fragile = request();
+    fragile.getPackageInfo().setIsFragile(true);
+    ShippingQuoteRequest insured = request();
+    insured.setRequireInsurance(true);
+    ShippingQuoteRequest otherType = request();
+    otherType.getPackageInfo().setType("envelope");
+    ShippingQuoteRequest otherState = request();
+    otherState.getVendor().getAddress().setState("HN");
+
+    for (ShippingQuoteRequest changed : List.of(fragile, insured, otherType, otherState)) {
+      assertNotEquals(base, fingerprint.fingerprint(changed));
+    }
+  }
+
+  @Test
+  void shiftingTextAcrossFieldBoundariesDoesNotCollide() {
+    ShippingQuoteRequest request = request();
+    request.getCustomer().getAddress().setCity("AB");
+    request.getCustomer().getAddress().setZip("C");
+    ShippingQuoteRequest shifted = request();
+    shifted.getCustomer().getAddress().setCity("A");
+    shifted.getCustomer().getAddress().setZip("BC");
+    assertNotEquals(fingerprint.fingerprint(request), fingerprint.fingerprint(shifted));
+
+    ShippingQuoteRequest separator = request();
+    separator.getCustomer().getAddress().setStreet("1|2");
+    ShippingQuoteRequest split = request();
+    split.getCustomer().getAddress().setStreet("1");
+    split.getCustomer().getAddress().setAddressLine2("2");
+    assertNotEquals(fingerprint.fingerprint(separator), fingerprint.fingerprint(split));
+  }
+
+  @Test
+  void missingAndEmptyFieldsShareAKeyButDifferFromATilde() {
+    ShippingQuoteRequest missing = request();
+    missing.getCustomer().getAddress().setAddressLine2(null);
+    ShippingQuoteRequest empty = request();
+    empty.getCustomer().getAddress().setAddressLine2("");
+    ShippingQuoteRequest tilde = request();
+    tilde.getCustomer().getAddress().setAddressLine2("~");
+
+    assertNull(missing.getCustomer().getAddress().getAddressLine2());
+    assertEquals(fingerprint.fingerprint(missing), fingerprint.fingerprint(empty));
+    assertNotEquals(fingerprint.fingerprint(missing), fingerprint.fingerprint(tilde));
+  }
+
+  @Test
+  void multiVendorKeysDependOnVendorIdentityAndOrder() {
+    ShippingQuoteRequest.VendorPackageInfo first = vendorPackage("V1", "1.00");
+    ShippingQuoteRequest.VendorPackageInfo second = vendorPackage("V2", "2.00");
+    ShippingQuoteRequest request = request().toBuilder().vendor(null).packageInfo(null)
+        .vendorPackages(List.of(first, second)).build();
+    ShippingQuoteRequest swapped = request.toBuilder().vendorPackages(List.of(second, first)).build();
+    ShippingQuoteRequest renamed = request.toBuilder()
+        .vendorPackages(List.of(vendorPackage("V3", "1.00"), second)).build();
+
+    String key = fingerprint.fingerprint(request);
+    assertNotEquals(fingerprint.fingerprint(request()), key);
+    assertNotEquals(key, fingerprint.fingerprint(swapped));
+    assertNotEquals(key, fingerprint.fingerprint(renamed));
+    assertEquals(key, fingerprint.fingerprint(request.toBuilder().build()));
+  }
+
+  @Test
+  void distinctRequestsGetDistinctKeys() {
+    Random random = new Random(1010L);
+    Map<String, String> canonicalByKey = new HashMap<>();
+    for (int i = 0; i < 20_000; i++) {
+      ShippingQuoteRequest request = request();
+      request.getCustomer().getAddress().setZip(String.valueOf(10_000 + random.nextInt(90_000)));
+      request.getVendor().getAddress().setZip(String.valueOf(10_000 + random.nextInt(90_000)));
+      request.getPackageInfo().setWeight(BigDecimal.valueOf(1 + random.nextInt(100_000), 2));
+      request.getPackageInfo().setDeclaredValue(BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2));
+
+      // Identity of a request as far as pricing is concerned, after normalization
+      String canonical = request.getCustomer().getAddress().getZip() + "/" + request.getVendor().getAddress().getZip()
+          + "/" + request.getPackageInfo().getWeight() + "/" + request.getPackageInfo().getDeclaredValue();
+      String previous = canonicalByKey.putIfAbsent(fingerprint.fingerprint(request), canonical);
+      assertTrue(previous == null || previous.equals(canonical), canonical + " collides with " + previous);
+    }
+  }
+
+  private String fingerprintWithWeight(String weight) {
+    ShippingQuoteRequest request = request();
+    request.getPackageInfo().setWeight(new BigDecimal(weight));
+    return fingerprint.fingerprint(request);
+  }
+
+  private static ShippingQuoteRequest.VendorPackageInfo vendorPackage(String vendorId, String weight) {
+    ShippingQuoteRequest request = request();
+    request.getVendor().setVendorId(vendorId);
+    request.getPackageInfo().setWeight(new BigDecimal(weight));
+    return ShippingQuoteRequest.VendorPackageInfo.builder()
+        .vendor(request.getVendor())
+        .packageInfo(request.getPackageInfo())
+        .build();
+  }
+
+  private static ShippingQuoteRequest request() {
+    return ShippingQuoteRequest.builder()
+        .customer(ShippingQuoteRequest.CustomerInfo.builder()
+            .name("Nguyen Van A")
+            .email("customer@example.com")
+            .address(address("VN", "Ho Chi Minh", "700000", "1 Nguyen Hue"))
+            .build())
+        .vendor(ShippingQuoteRequest.VendorInfo.builder()
+            .name("Shop")
+            .vendorId("V1")
+            .address(address("VN", "Ha Noi", "100000", "12 Le Loi"))
+            .build())
+        .packageInfo(ShippingQuoteRequest.PackageInfo.builder()
+            .weight(new BigDecimal("1.50"))
+            .dimensions(ShippingQuoteRequest.DimensionsInfo.builder()
+                .length(new BigDecimal("20"))
+                .width(new BigDecimal("15"))
+                .height(new BigDecimal("10"))
+                .build())
+            .type("box")
+            .declaredValue(new BigDecimal("250000"))
+            .currency("VND")
+            .build())
+        .requireInsurance(false)
+        .preferredCurrency("VND")
+        .build();
+  }
+
+  private static ShippingQuoteRequest.AddressInfo address(String country, String city, String zip, String street) {
+    return ShippingQuoteRequest.AddressInfo.builder()
+        .country(country)
+        .city(city)
+        .zip(zip)
+        .street(street)
+        .build();
+  }
+}
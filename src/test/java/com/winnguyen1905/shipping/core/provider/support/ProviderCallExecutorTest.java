@@ -0,0 +1,127 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProviderCallExecutorTest {
+
+  private static final String PROVIDER = "DHL";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger attempts = new AtomicInteger();
+  private ProviderCallExecutor executor;
+
+  @BeforeEach
+  void createExecutor() {
+    ProviderHealthEngine healthEngine = new ProviderHealthEngine(List.of(), meterRegistry, 100, 0.2, 5, 0.5, 1.0,
+        30_000);
+    for (int i = 0; i < 5; i++) {
+      // Calls slower than the 20 ms p95 are hedged
+      healthEngine.record(PROVIDER, TimeUnit.MILLISECONDS.toNanos(20), false, 1_000);
+    }
+    MockEnvironment environment = new MockEnvironment()
+        .withProperty("shipping.providers.dhl.hedging.enabled", "true")
+        .withProperty("shipping.providers.dhl.hedging.budget-ratio", "1.0");
+    executor = new ProviderCallExecutor(List.of(), environment, meterRegistry, healthEngine,
+        false, 4, 16, 10, 500, 5_000, 0.05, 10, 0.95, 20);
+  }
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void hedgeThatAnswersFirstWins() throws Exception {
+    CompletableFuture<String> result = executor.submitHedged(PROVIDER, attempts(
+        () -> sleepThen(1_000, "original"),
+        () -> "hedge"));
+
+    assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+    // The win is counted just after the result completes
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    while (hedgeWins() == 0.0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(1.0, hedgeWins(), 0.0);
+  }
+
+  @Test
+  void fastFailureLosesToASlowerAnswer() throws Exception {
+    CompletableFuture<String> result = executor.submitHedged(PROVIDER, attempts(
+        () -> sleepThen(200, "original"),
+        () -> {
+          throw new IllegalStateException("hedge failed");
+        }));
+
+    assertEquals("original", result.get(5, TimeUnit.SECONDS));
+    assertEquals(2, attempts.get());
+    assertEquals(0.0, hedgeWins(), 0.0);
+  }
+
+  @Test
+  void resultFailsOnlyOnceEveryAttemptHasFailed() {
+    CompletableFuture<String> result = executor.submitHedged(PROVIDER, attempts(
+        () -> {
+          sleepThen(200, null);
+          throw new IllegalStateException("original failed");
+        },
+        () -> {
+          throw new IllegalStateException("hedge failed");
+        }));
+
+    ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    assertEquals("original failed", failure.getCause().getMessage());
+    assertEquals(2, attempts.get());
+    assertEquals(0.0, hedgeWins(), 0.0);
+  }
+
+  @Test
+  void noHedgeIsSentAfterTheOriginalCallFailed() throws Exception {
+    CompletableFuture<String> result = executor.submitHedged(PROVIDER, attempts(
+        () -> {
+          throw new IllegalStateException("original failed");
+        },
+        () -> "hedge"));
+
+    assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    assertEquals(1, attempts.get());
+    assertEquals(0.0, meterRegistry.get("shipping.providers.hedge.calls").tag("provider", PROVIDER)
+        .tag("type", "hedge").counter().count(), 0.0);
+  }
+
+  /**
+   * Runs the original call on the first attempt and the hedge on every later one
+   */
+  @SafeVarargs
+  private Supplier<String> attempts(Supplier<String>... calls) {
+    return () -> calls[Math.min(attempts.getAndIncrement(), calls.length - 1)].get();
+  }
+
+  private double hedgeWins() {
+    return meterRegistry.get("shipping.providers.hedge.wins").tag("provider", PROVIDER).counter().count();
+  }
+
+  private static String sleepThen(long millis, String value) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return value;
+  }
+}
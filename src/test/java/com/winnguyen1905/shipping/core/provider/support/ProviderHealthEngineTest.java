@@ -0,0 +1,131 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderHealthEngineTest {
+
+  private static final long DEADLINE_MS = 1_000;
+  private static final long EJECTION_MS = 50;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ShippingProviderClient dhl = new StubProvider("DHL");
+  private final ShippingProviderClient ups = new StubProvider("UPS");
+  private final ShippingProviderClient vnpost = new StubProvider("VNPost");
+  // Window of 20, 10 samples before ejecting, at a 50% failure rate or an EWMA above half the deadline
+  private final ProviderHealthEngine engine = new ProviderHealthEngine(List.of(dhl, ups, vnpost), meterRegistry,
+      20, 0.2, 10, 0.5, 0.5, EJECTION_MS);
+
+  @Test
+  void providersAreRankedByExpectedTimeToASuccessfulAnswer() {
+    record(dhl, 10, 100, false);
+    record(ups, 10, 20, false);
+    record(vnpost, 5, 20, false);
+    record(vnpost, 4, 20, true);
+
+    // VNPost answers as fast as UPS but fails 4 calls in 9
+    assertEquals(List.of(ups, vnpost, dhl), engine.rank(List.of(dhl, ups, vnpost)));
+  }
+
+  @Test
+  void failingProviderIsEjectedOnceItHasEnoughSamples() {
+    record(dhl, 9, 20, true);
+    assertFalse(engine.stats("DHL").ejected(), "9 samples are below min-samples");
+
+    record(dhl, 1, 20, true);
+
+    assertTrue(engine.stats("DHL").ejected());
+    assertEquals(1.0, ejections("DHL"), 0.0);
+    assertEquals(List.of(ups), engine.rank(List.of(dhl, ups)));
+  }
+
+  @Test
+  void timeoutsCountAsFailures() {
+    record(dhl, 5, 20, false);
+    record(dhl, 5, DEADLINE_MS + 1, false);
+
+    assertEquals(0.5, engine.stats("DHL").timeoutRate(), 1e-9);
+    assertTrue(engine.stats("DHL").ejected());
+  }
+
+  @Test
+  void slowProviderIsEjected() {
+    record(dhl, 10, 600, false);
+
+    assertEquals(0.0, engine.stats("DHL").errorRate(), 0.0);
+    assertTrue(engine.stats("DHL").ejected(), "EWMA latency above deadline * slow-latency-ratio");
+  }
+
+  @Test
+  void ejectedProviderGetsOneProbePerPeriodAndIsReadmittedWhenItSucceeds() throws InterruptedException {
+    record(dhl, 10, 20, true);
+    assertEquals(List.of(ups), engine.rank(List.of(dhl, ups)));
+
+    Thread.sleep(EJECTION_MS + 20);
+    assertEquals(List.of(ups, dhl), engine.rank(List.of(dhl, ups)), "probe");
+    assertEquals(List.of(ups), engine.rank(List.of(dhl, ups)), "one probe per period");
+
+    record(dhl, 1, 20, false);
+
+    ProviderHealthEngine.Stats stats = engine.stats("DHL");
+    assertFalse(stats.ejected());
+    assertEquals(0, stats.samples(), "window cleared on readmission");
+    assertEquals(List.of(ups, dhl), engine.rank(List.of(dhl, ups)));
+    assertEquals(List.of(ups, dhl), engine.rank(List.of(dhl, ups)), "no longer limited to one probe");
+    assertEquals(1.0, ejections("DHL"), 0.0);
+  }
+
+  @Test
+  void failedProbeKeepsTheProviderEjected() throws InterruptedException {
+    record(dhl, 10, 20, true);
+    Thread.sleep(EJECTION_MS + 20);
+    assertTrue(engine.rank(List.of(dhl, ups)).contains(dhl));
+
+    record(dhl, 1, 20, true);
+
+    assertTrue(engine.stats("DHL").ejected());
+    assertEquals(List.of(ups), engine.rank(List.of(dhl, ups)));
+  }
+
+  @Test
+  void healthiestProviderIsKeptWhenAllAreEjected() {
+    record(dhl, 10, 20, true);
+    record(ups, 10, 700, false);
+
+    assertTrue(engine.stats("DHL").ejected());
+    assertTrue(engine.stats("UPS").ejected());
+    // DHL scores 20 ms / 5% (the success rate floor) = 400, UPS 700
+    assertEquals(List.of(dhl), engine.rank(List.of(dhl, ups)));
+  }
+
+  @Test
+  void latencyPercentileIgnoresErrorsAndNeedsMinSamples() {
+    record(dhl, 9, 100, false);
+    assertEquals(-1, engine.latencyPercentileMs("DHL", 0.95));
+
+    record(dhl, 1, 300, false);
+    record(dhl, 5, 5, true);
+
+    assertEquals(300, engine.latencyPercentileMs("DHL", 0.95));
+    assertEquals(100, engine.latencyPercentileMs("DHL", 0.5));
+  }
+
+  private void record(ShippingProviderClient provider, int calls, long latencyMs, boolean failed) {
+    for (int i = 0; i < calls; i++) {
+      engine.record(provider.getProviderName(), TimeUnit.MILLISECONDS.toNanos(latencyMs), failed, DEADLINE_MS);
+    }
+  }
+
+  private double ejections(String providerName) {
+    return meterRegistry.get("shipping.providers.health.ejections").tag("provider", providerName).counter().count();
+  }
+}
@@ -0,0 +1,143 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Throughput of concurrent {@code postJson} calls against a local stub of a provider
+ * rate API, per {@code max-connections} and HTTP version.
+ *
+ * Not part of the regular test run (Surefire only picks up {@code *Test}); run it with
+ * {@code mvn test -Dtest=ProviderHttpClientBenchmark}. The stub answers every request
+ * with a gzipped rate after a fixed delay standing in for carrier latency. Each variant
+ * is warmed up before it is timed, and results are printed as requests per second with
+ * the protocol that was actually negotiated: the JDK stub server speaks HTTP/1.1 only,
+ * so the HTTP/2 client falls back to it after offering an h2c upgrade.
+ */
+class ProviderHttpClientBenchmark {
+
+  private static final TypeReference<Map<String, Object>> JSON = new TypeReference<>() {
+  };
+  private static final int[] MAX_CONNECTIONS = {1, 4, 16, 64};
+  private static final HttpClient.Version[] VERSIONS = {HttpClient.Version.HTTP_1_1, HttpClient.Version.HTTP_2};
+  private static final int CALLERS = 64;
+  private static final int WARMUP_REQUESTS_PER_CALLER = 20;
+  private static final int MEASURED_REQUESTS_PER_CALLER = 50;
+  private static final long SERVER_LATENCY_MS = 2;
+
+  private HttpServer server;
+  private ExecutorService serverThreads;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    byte[] json = "{\"rate\":12.5,\"currency\":\"USD\"}".getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(json);
+    }
+    byte[] body = compressed.toByteArray();
+
+    serverThreads = Executors.newVirtualThreadPerTaskExecutor();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1_024);
+    server.setExecutor(serverThreads);
+    server.createContext("/rates", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      try {
+        Thread.sleep(SERVER_LATENCY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+    serverThreads.shutdownNow();
+  }
+
+  @Test
+  void compareConnectionLimitsAndHttpVersions() throws Exception {
+    URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/rates");
+    Map<String, Object> request = Map.of("weight", 2, "from", "700000", "to", "100000");
+
+    for (HttpClient.Version version : VERSIONS) {
+      for (int maxConnections : MAX_CONNECTIONS) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(version)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        ProviderHttpClient client = new ProviderHttpClient("benchmark", httpClient, new ObjectMapper(), meterRegistry,
+            Duration.ofSeconds(30), maxConnections, 60_000);
+
+        run(client, uri, request, WARMUP_REQUESTS_PER_CALLER);
+        long started = System.nanoTime();
+        run(client, uri, request, MEASURED_REQUESTS_PER_CALLER);
+        long elapsed = System.nanoTime() - started;
+
+        double requestsPerSecond = (double) CALLERS * MEASURED_REQUESTS_PER_CALLER * 1e9 / elapsed;
+        System.out.printf("%-8s max-connections %3d: %8.0f requests/s (negotiated %s)%n",
+            version, maxConnections, requestsPerSecond, negotiated(meterRegistry));
+      }
+    }
+  }
+
+  private static void run(ProviderHttpClient client, URI uri, Map<String, Object> request, int requestsPerCaller)
+      throws Exception {
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> futures = new ArrayList<>(CALLERS);
+      for (int i = 0; i < CALLERS; i++) {
+        futures.add(callers.submit(() -> {
+          for (int n = 0; n < requestsPerCaller; n++) {
+            client.postJson(uri, Map.of(), request, JSON);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+  }
+
+  private static String negotiated(SimpleMeterRegistry meterRegistry) {
+    return meterRegistry.find("shipping.providers.http.requests").meters().stream()
+        .map(Meter::getId)
+        .map(id -> id.getTag("protocol"))
+        .distinct()
+        .sorted()
+        .collect(Collectors.joining(", "));
+  }
+}
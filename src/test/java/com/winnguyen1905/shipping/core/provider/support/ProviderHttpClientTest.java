@@ -0,0 +1,176 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the client against a local HTTP server standing in for a provider API
+ */
+class ProviderHttpClientTest {
+
+  private static final TypeReference<Map<String, Object>> JSON = new TypeReference<>() {
+  };
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicReference<String> lastBody = new AtomicReference<>();
+  private final AtomicReference<String> lastAcceptEncoding = new AtomicReference<>();
+  private HttpServer server;
+  private HttpClient httpClient;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/rates", exchange -> {
+      record(exchange);
+      byte[] json = "{\"rate\":12.5,\"currency\":\"USD\"}".getBytes(StandardCharsets.UTF_8);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+        gzip.write(json);
+      }
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      respond(exchange, 200, compressed.toByteArray());
+    });
+    server.createContext("/plain", exchange -> {
+      record(exchange);
+      respond(exchange, 200, "{\"rate\":7}".getBytes(StandardCharsets.UTF_8));
+    });
+    server.createContext("/down", exchange -> {
+      record(exchange);
+      respond(exchange, 503, "carrier maintenance".getBytes(StandardCharsets.UTF_8));
+    });
+    server.createContext("/slow", exchange -> {
+      record(exchange);
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      respond(exchange, 200, "{}".getBytes(StandardCharsets.UTF_8));
+    });
+    server.start();
+    httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  @AfterEach
+  void stopServer() {
+    release.countDown();
+    server.stop(0);
+  }
+
+  @Test
+  void gzipResponsesAreDecoded() {
+    ProviderHttpClient client = client(4, 1_000);
+
+    Map<String, Object> response = client.postJson(uri("/rates"), Map.of("X-Api-Key", "secret"),
+        Map.of("weight", 2), JSON);
+
+    assertEquals(12.5, response.get("rate"));
+    assertEquals("USD", response.get("currency"));
+    assertEquals("{\"weight\":2}", lastBody.get());
+    assertEquals("gzip", lastAcceptEncoding.get());
+  }
+
+  @Test
+  void uncompressedResponsesAreReadAsIs() {
+    ProviderHttpClient client = client(4, 1_000);
+
+    assertEquals(7, client.getJson(uri("/plain"), Map.of(), JSON).get("rate"));
+    assertEquals(1.0, requestCount("200"), 0.0);
+  }
+
+  @Test
+  void errorStatusFailsWithTheStatusAndBody() {
+    ProviderHttpClient client = client(4, 1_000);
+
+    ProviderHttpClient.ProviderHttpException failure = assertThrows(ProviderHttpClient.ProviderHttpException.class,
+        () -> client.getJson(uri("/down"), Map.of(), JSON));
+
+    assertEquals(503, failure.getStatus());
+    assertEquals("test", failure.getProviderName());
+    assertTrue(failure.getMessage().contains("carrier maintenance"), failure.getMessage());
+    assertEquals(1.0, requestCount("503"), 0.0);
+  }
+
+  @Test
+  void requestsBeyondMaxConnectionsFailAfterTheAcquireTimeoutWithoutBeingSent() throws Exception {
+    ProviderHttpClient client = client(1, 50);
+    CompletableFuture<Map<String, Object>> slow = CompletableFuture.supplyAsync(
+        () -> client.getJson(uri("/slow"), Map.of(), JSON));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (requests.get() == 0) {
+      assertTrue(System.nanoTime() < deadline, "slow request never arrived");
+      Thread.sleep(5);
+    }
+
+    long started = System.nanoTime();
+    ProviderHttpClient.ProviderHttpException failure = assertThrows(ProviderHttpClient.ProviderHttpException.class,
+        () -> client.getJson(uri("/plain"), Map.of(), JSON));
+
+    assertEquals(0, failure.getStatus());
+    assertTrue(failure.getMessage().contains("No connection slot within 50 ms"), failure.getMessage());
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) >= 50);
+    assertEquals(1, requests.get());
+
+    release.countDown();
+    slow.get(5, TimeUnit.SECONDS);
+    assertEquals(7, client.getJson(uri("/plain"), Map.of(), JSON).get("rate"), "slot released");
+  }
+
+  private ProviderHttpClient client(int maxConnections, long acquireTimeoutMs) {
+    return new ProviderHttpClient("test", httpClient, new ObjectMapper(), meterRegistry, Duration.ofSeconds(5),
+        maxConnections, acquireTimeoutMs);
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+  }
+
+  private double requestCount(String status) {
+    return meterRegistry.get("shipping.providers.http.requests").tag("status", status).timer().count();
+  }
+
+  private void record(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    lastBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+    lastAcceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+  }
+
+  private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
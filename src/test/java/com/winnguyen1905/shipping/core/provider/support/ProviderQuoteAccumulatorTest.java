@@ -0,0 +1,118 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderQuoteAccumulatorTest {
+
+  private final ProviderQuoteAccumulator accumulator = new ProviderQuoteAccumulator(List.of("DHL", "UPS", "VNPost"));
+
+  @Test
+  void onTimeResultsAreListedInProviderOrder() {
+    accumulator.record("VNPost", List.of(option("VNPost", "Standard")), null);
+    accumulator.record("DHL", List.of(option("DHL", "Express"), option("DHL", "Economy")), null);
+    accumulator.record("UPS", List.of(option("UPS", "Ground")), null);
+
+    ProviderQuoteAccumulator.Snapshot snapshot = accumulator.snapshot(deadlines(later()));
+
+    assertEquals(List.of("DHL", "UPS", "VNPost"), snapshot.availableProviders());
+    assertEquals(List.of("Express", "Economy", "Ground", "Standard"),
+        snapshot.options().stream().map(ShippingQuoteResponse.ShippingOption::getService).toList());
+    assertTrue(snapshot.unavailableProviders().isEmpty());
+    assertTrue(snapshot.providerErrors().isEmpty());
+    assertFalse(snapshot.partial());
+  }
+
+  @Test
+  void providersWithoutAnOutcomeAtTheDeadlineTimeOut() {
+    accumulator.record("DHL", List.of(option("DHL", "Express")), null);
+
+    ProviderQuoteAccumulator.Snapshot snapshot = accumulator.snapshot(deadlines(later()));
+
+    assertTrue(snapshot.partial());
+    assertEquals(List.of("DHL"), snapshot.availableProviders());
+    assertEquals(List.of("UPS", "VNPost"), snapshot.unavailableProviders());
+    assertEquals(List.of("PROVIDER_TIMEOUT", "PROVIDER_TIMEOUT"), errorCodes(snapshot));
+  }
+
+  @Test
+  void resultsArrivingAfterTheDeadlineOnlyAppearInTheCompleteSnapshot() {
+    long later = later();
+    Map<String, Long> deadlines = Map.of("DHL", later, "UPS", System.nanoTime() - 1, "VNPost", later);
+    accumulator.record("DHL", List.of(option("DHL", "Express")), null);
+    accumulator.record("UPS", List.of(option("UPS", "Ground")), null);
+    accumulator.record("VNPost", List.of(option("VNPost", "Standard")), null);
+
+    ProviderQuoteAccumulator.Snapshot onTime = accumulator.snapshot(deadlines);
+    assertTrue(onTime.partial());
+    assertEquals(List.of("DHL", "VNPost"), onTime.availableProviders());
+    assertEquals(List.of("UPS"), onTime.unavailableProviders());
+    assertEquals(List.of("PROVIDER_TIMEOUT"), errorCodes(onTime));
+
+    ProviderQuoteAccumulator.Snapshot complete = accumulator.snapshot();
+    assertFalse(complete.partial());
+    assertEquals(List.of("DHL", "UPS", "VNPost"), complete.availableProviders());
+    assertEquals(3, complete.options().size());
+  }
+
+  @Test
+  void failedProvidersAreUnavailableWithTheirError() {
+    accumulator.record("DHL", null, new CompletionException(new IllegalStateException("DHL returned 503")));
+    accumulator.record("UPS", null, new RejectedExecutionException("UPS bulkhead full"));
+    accumulator.record("VNPost", List.of(option("VNPost", "Standard")), null);
+
+    ProviderQuoteAccumulator.Snapshot snapshot = accumulator.snapshot(deadlines(later()));
+
+    assertFalse(snapshot.partial());
+    assertEquals(List.of("VNPost"), snapshot.availableProviders());
+    assertEquals(List.of("DHL", "UPS"), snapshot.unavailableProviders());
+    assertEquals(List.of("PROVIDER_ERROR", "PROVIDER_BUSY"), errorCodes(snapshot));
+    assertEquals("DHL returned 503", snapshot.providerErrors().get(0).getErrorMessage());
+  }
+
+  @Test
+  void onlyTheFirstOutcomePerProviderCounts() {
+    accumulator.record("DHL", null, new IllegalStateException("timeout"));
+    accumulator.record("DHL", List.of(option("DHL", "Express")), null);
+
+    ProviderQuoteAccumulator.Snapshot snapshot = accumulator.snapshot();
+
+    assertEquals(List.of("DHL", "UPS", "VNPost"), snapshot.unavailableProviders());
+    assertEquals(List.of("PROVIDER_ERROR", "PROVIDER_TIMEOUT", "PROVIDER_TIMEOUT"), errorCodes(snapshot));
+    assertTrue(snapshot.options().isEmpty());
+  }
+
+  private static long later() {
+    return System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+  }
+
+  private static Map<String, Long> deadlines(long deadline) {
+    return Map.of("DHL", deadline, "UPS", deadline, "VNPost", deadline);
+  }
+
+  private static List<String> errorCodes(ProviderQuoteAccumulator.Snapshot snapshot) {
+    return snapshot.providerErrors().stream().map(ShippingQuoteResponse.ProviderError::getErrorCode).toList();
+  }
+
+  private static ShippingQuoteResponse.ShippingOption option(String provider, String service) {
+    return ShippingQuoteResponse.ShippingOption.builder()
+        .provider(provider)
+        .service(service)
+        .cost(new BigDecimal("10.00"))
+        .currency("USD")
+        .estimatedDays(3)
+        .build();
+  }
+}
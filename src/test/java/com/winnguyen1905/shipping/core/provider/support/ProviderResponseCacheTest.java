@@ -0,0 +1,248 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderResponseCacheTest {
+
+  private final MockEnvironment environment = new MockEnvironment();
+  private final List<ShippingQuoteRequest> rated = new ArrayList<>();
+  // Prices each request at its rated weight, so a rounded weight shows in the price
+  private final ShippingProviderClient provider = new StubProvider("DHL",
+      request -> List.of(option(request.getPackageInfo().getWeight())));
+
+  @BeforeEach
+  void enableForTestProviders() {
+    // The cache is opt-in per provider
+    environment.setProperty("shipping.providers.dhl.rate-cache.ttl-seconds", "300");
+    environment.setProperty("shipping.providers.ups.rate-cache.ttl-seconds", "300");
+  }
+
+  @Test
+  void providersWithoutAnOverrideAreNotCached() {
+    ShippingProviderClient other = new StubProvider("GHN", request -> {
+      rated.add(request);
+      return List.of(option(request.getPackageInfo().getWeight()));
+    });
+    ProviderResponseCache cache = cache();
+
+    // Rated as requested, not at a rounded billable weight
+    assertEquals(new BigDecimal("1.2341"), rate(cache, other, request(r -> weight(r, "1.2341"))).get(0).getCost());
+    assertEquals(new BigDecimal("1.2341"), rate(cache, other, request(r -> weight(r, "1.2341"))).get(0).getCost());
+
+    assertEquals(2, rated.size());
+  }
+
+  @Test
+  void defaultWeightStepKeepsGramPrecision() {
+    ProviderResponseCache cache = cache();
+
+    assertEquals(new BigDecimal("1.234"), cost(cache, request(r -> weight(r, "1.234"))));
+    assertEquals(new BigDecimal("1.235"), cost(cache, request(r -> weight(r, "1.235"))));
+    assertEquals(new BigDecimal("1.235"), cost(cache, request(r -> weight(r, "1.2341"))));
+
+    assertEquals(2, rated.size());
+  }
+
+  @Test
+  void coarserWeightStepNeedsAProviderOverride() {
+    environment.setProperty("shipping.providers.dhl.rate-cache.weight-step-kg", "0.5");
+    ProviderResponseCache cache = cache();
+
+    assertEquals(new BigDecimal("1.5"), cost(cache, request(r -> weight(r, "1.01"))));
+    assertEquals(new BigDecimal("1.5"), cost(cache, request(r -> weight(r, "1.5"))));
+    assertEquals(new BigDecimal("2"), cost(cache, request(r -> weight(r, "1.6"))));
+
+    assertEquals(2, rated.size());
+  }
+
+  @Test
+  void dimensionalWeightIsBilledWhenLarger() {
+    ProviderResponseCache cache = cache();
+
+    // 40 x 25 x 10 cm / 5000 = 2 kg
+    assertEquals(new BigDecimal("2"), cost(cache, request(r -> {
+      weight(r, "0.8");
+      r.getPackageInfo().getDimensions().setLength(new BigDecimal("40"));
+      r.getPackageInfo().getDimensions().setWidth(new BigDecimal("25"));
+    })));
+    assertEquals(new BigDecimal("2"), cost(cache, request(r -> weight(r, "2"))));
+
+    assertEquals(1, rated.size());
+  }
+
+  @Test
+  void fieldsTheCarrierDoesNotBillOnShareAnEntry() {
+    ProviderResponseCache cache = cache();
+    cost(cache, request(r -> {
+    }));
+
+    cost(cache, request(r -> r.getVendor().getAddress().setStreet("99 Tran Hung Dao")));
+    cost(cache, request(r -> r.getCustomer().setName("Tran Thi B")));
+    cost(cache, request(r -> r.getCustomer().getAddress().setZip("700 123")));
+    cost(cache, request(r -> r.getPackageInfo().setDeclaredValue(new BigDecimal("990000"))));
+
+    assertEquals(1, rated.size());
+  }
+
+  @Test
+  void everyBilledFieldIsPartOfTheKey() {
+    ProviderResponseCache cache = cache();
+    List<Consumer<ShippingQuoteRequest>> changes = List.of(
+        r -> {
+        },
+        r -> r.getVendor().getAddress().setCountry("TH"),
+        r -> r.getVendor().getAddress().setZip("110000"),
+        r -> r.getCustomer().getAddress().setCountry("SG"),
+        r -> r.getCustomer().getAddress().setZip("710000"),
+        r -> r.getCustomer().getAddress().setCity("Ha Noi"),
+        r -> weight(r, "1.501"),
+        r -> r.getPackageInfo().setIsFragile(true),
+        r -> r.getPackageInfo().setIsLiquid(true),
+        r -> r.getPackageInfo().setIsHazardous(true),
+        r -> r.setRequireInsurance(true),
+        r -> {
+          r.setRequireInsurance(true);
+          r.getPackageInfo().setDeclaredValue(new BigDecimal("250001"));
+        },
+        r -> r.setPreferredCurrency("USD"));
+
+    changes.forEach(change -> cost(cache, request(change)));
+    changes.forEach(change -> cost(cache, request(change)));
+
+    assertEquals(changes.size(), rated.size());
+  }
+
+  @Test
+  void batchRatesEachMissingKeyOnceInOneCall() {
+    ProviderResponseCache cache = cache();
+    ShippingQuoteRequest cached = request(r -> weight(r, "3"));
+    cost(cache, cached);
+    List<List<ShippingQuoteRequest>> batches = new ArrayList<>();
+
+    List<List<ShippingQuoteResponse.ShippingOption>> results = cache.getOrRate(provider, List.of(
+        request(r -> weight(r, "1")),
+        cached,
+        request(r -> weight(r, "2")),
+        request(r -> weight(r, "1"))), requests -> {
+          batches.add(requests);
+          return requests.stream().map(provider::getShippingQuotes).toList();
+        });
+
+    assertEquals(List.of(new BigDecimal("1"), new BigDecimal("3"), new BigDecimal("2"), new BigDecimal("1")),
+        results.stream().map(options -> options.get(0).getCost()).toList());
+    assertEquals(1, batches.size());
+    assertEquals(2, batches.get(0).size());
+    assertSame(results.get(0), results.get(3));
+  }
+
+  @Test
+  void emptyResultsAndDisabledProvidersAreNotCached() {
+    ShippingProviderClient empty = new StubProvider("UPS", request -> {
+      rated.add(request);
+      return List.of();
+    });
+    ShippingProviderClient disabled = new StubProvider("VNPost", request -> {
+      rated.add(request);
+      return List.of(option(request.getPackageInfo().getWeight()));
+    });
+    ProviderResponseCache cache = cache();
+
+    for (int i = 0; i < 2; i++) {
+      assertTrue(rate(cache, empty, request(r -> {
+      })).isEmpty());
+      assertEquals(new BigDecimal("1.5"), rate(cache, disabled, request(r -> {
+      })).get(0).getCost());
+    }
+
+    assertEquals(4, rated.size());
+  }
+
+  private ProviderResponseCache cache() {
+    return new ProviderResponseCache(environment, new SimpleMeterRegistry(), 0, 1_000, new BigDecimal("0.001"), 3);
+  }
+
+  private BigDecimal cost(ProviderResponseCache cache, ShippingQuoteRequest request) {
+    return rate(cache, provider, request).get(0).getCost();
+  }
+
+  private List<ShippingQuoteResponse.ShippingOption> rate(ProviderResponseCache cache,
+      ShippingProviderClient client, ShippingQuoteRequest request) {
+    return cache.getOrRate(client, List.of(request), requests -> requests.stream()
+        .map(billable -> {
+          if (client == provider) {
+            rated.add(billable);
+          }
+          return client.getShippingQuotes(billable);
+        })
+        .toList()).get(0);
+  }
+
+  private static void weight(ShippingQuoteRequest request, String kg) {
+    request.getPackageInfo().setWeight(new BigDecimal(kg));
+  }
+
+  private static ShippingQuoteResponse.ShippingOption option(BigDecimal weight) {
+    return ShippingQuoteResponse.ShippingOption.builder()
+        .provider("DHL")
+        .service("Express")
+        .cost(weight)
+        .currency("VND")
+        .estimatedDays(2)
+        .build();
+  }
+
+  private static ShippingQuoteRequest request(Consumer<ShippingQuoteRequest> change) {
+    ShippingQuoteRequest request = ShippingQuoteRequest.builder()
+        .customer(ShippingQuoteRequest.CustomerInfo.builder()
+            .name("Nguyen Van A")
+            .email("customer@example.com")
+            .address(address("VN", "Ho Chi Minh", "700000", "1 Nguyen Hue"))
+            .build())
+        .vendor(ShippingQuoteRequest.VendorInfo.builder()
+            .name("Shop")
+            .vendorId("V1")
+            .address(address("VN", "Ha Noi", "100000", "12 Le Loi"))
+            .build())
+        .packageInfo(ShippingQuoteRequest.PackageInfo.builder()
+            .weight(new BigDecimal("1.5"))
+            .dimensions(ShippingQuoteRequest.DimensionsInfo.builder()
+                .length(new BigDecimal("10"))
+                .width(new BigDecimal("10"))
+                .height(new BigDecimal("10"))
+                .build())
+            .type("box")
+            .declaredValue(new BigDecimal("250000"))
+            .currency("VND")
+            .build())
+        .requireInsurance(false)
+        .preferredCurrency("VND")
+        .build();
+    change.accept(request);
+    return request;
+  }
+
+  private static ShippingQuoteRequest.AddressInfo address(String country, String city, String zip, String street) {
+    return ShippingQuoteRequest.AddressInfo.builder()
+        .country(country)
+        .city(city)
+        .zip(zip)
+        .street(street)
+        .build();
+  }
+}
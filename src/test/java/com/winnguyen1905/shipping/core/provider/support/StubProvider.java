@@ -0,0 +1,79 @@
+package com.winnguyen1905.shipping.core.provider.support;
+
+import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+import com.winnguyen1905.shipping.core.provider.ShippingProviderClient;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Provider that accepts every route and package and answers with the given function
+ */
+class StubProvider implements ShippingProviderClient {
+
+  private final String name;
+  private final Function<ShippingQuoteRequest, List<ShippingQuoteResponse.ShippingOption>> quotes;
+
+  StubProvider(String name) {
+    this(name, request -> List.of());
+  }
+
+  StubProvider(String name, Function<ShippingQuoteRequest, List<ShippingQuoteResponse.ShippingOption>> quotes) {
+    this.name = name;
+    this.quotes = quotes;
+  }
+
+  @Override
+  public List<ShippingQuoteResponse.ShippingOption> getShippingQuotes(ShippingQuoteRequest request) {
+    return quotes.apply(request);
+  }
+
+  @Override
+  public boolean supportsRoute(String originCountry, String destinationCountry) {
+    return true;
+  }
+
+  @Override
+  public boolean supportsPackage(BigDecimal weight, ShippingQuoteRequest.DimensionsInfo dimensions,
+      BigDecimal declaredValue) {
+    return true;
+  }
+
+  @Override
+  public String getProviderName() {
+    return name;
+  }
+
+  @Override
+  public List<String> getSupportedCountries() {
+    return List.of();
+  }
+
+  @Override
+  public BigDecimal getMaxPackageWeight() {
+    return null;
+  }
+
+  @Override
+  public BigDecimal getMaxDeclaredValue() {
+    return null;
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return true;
+  }
+
+  @Override
+  public Map<String, Object> getProviderConfiguration() {
+    return Map.of();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,76 @@
+package com.winnguyen1905.shipping.core.rating;
+
+import com.winnguyen1905.shipping.core.model.response.RateCalculationResponse;
+import com.winnguyen1905.shipping.persistance.entity.EShippingCarrier;
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateComparisonEngineTest {
+
+    private static final long CARRIER_TIMEOUT_MS = 200;
+
+    // One worker and one queue slot, so a third carrier is rejected
+    private final RateComparisonEngine engine = new RateComparisonEngine(new SimpleMeterRegistry(), 1, 1,
+            CARRIER_TIMEOUT_MS);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Set<String> ratingThreads = ConcurrentHashMap.newKeySet();
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        engine.shutdown();
+    }
+
+    @Test
+    void rejectedCarrierIsReportedAsFailedWithoutRunningOnTheCaller() {
+        List<EShippingMethod> candidates = List.of(method(1, "Slow"), method(2, "Queued"), method(3, "Rejected"));
+
+        long started = System.nanoTime();
+        RateComparisonEngine.Comparison comparison = engine.compare(candidates, method -> {
+            ratingThreads.add(Thread.currentThread().getName());
+            if (method.getCarrier().getCarrierId() == 1) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return RateCalculationResponse.ShippingRate.builder()
+                    .methodId(method.getMethodId())
+                    .totalRate(BigDecimal.TEN)
+                    .isAvailable(true)
+                    .build();
+        });
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue(elapsedMs < CARRIER_TIMEOUT_MS + 1_000, "waited " + elapsedMs + " ms");
+        assertTrue(comparison.partial());
+        assertEquals(List.of(RateComparisonEngine.STATUS_TIMED_OUT, RateComparisonEngine.STATUS_TIMED_OUT,
+                        RateComparisonEngine.STATUS_FAILED),
+                comparison.carrierResults().stream().map(RateCalculationResponse.CarrierResult::getStatus).toList());
+        assertTrue(comparison.carrierResults().get(2).getErrorMessage().contains("busy"));
+        assertFalse(ratingThreads.contains(Thread.currentThread().getName()), "rated on the request thread");
+    }
+
+    private static EShippingMethod method(int carrierId, String carrierName) {
+        return EShippingMethod.builder()
+                .methodId(carrierId * 10)
+                .carrier(EShippingCarrier.builder().carrierId(carrierId).carrierName(carrierName).build())
+                .methodName(carrierName + " Ground")
+                .build();
+    }
+}
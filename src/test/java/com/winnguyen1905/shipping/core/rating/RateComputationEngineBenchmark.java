@@ -0,0 +1,83 @@
+package com.winnguyen1905.shipping.core.rating;
+
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Throughput of fixed-point against decimal rate computation.
+ *
+ * Not part of the regular test run (Surefire only picks up {@code *Test}); run it with
+ * {@code mvn test -Dtest=RateComputationEngineBenchmark}. Each variant is warmed up
+ * before it is timed, and results are printed as nanoseconds per rate.
+ */
+class RateComputationEngineBenchmark {
+
+    private static final int METHODS = 64;
+    private static final int SHIPMENTS = 1_024;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    private static volatile long blackhole; // Keeps the computed rates from being optimized away
+
+    @Test
+    void compareFixedPointWithDecimal() {
+        RateComputationEngine engine = new RateComputationEngine(new SimpleMeterRegistry(), 0.0);
+        Random random = new Random(42L);
+
+        EShippingMethod[] methods = new EShippingMethod[METHODS];
+        for (int i = 0; i < METHODS; i++) {
+            methods[i] = new EShippingMethod();
+            methods[i].setMethodId(i);
+            methods[i].setBaseRate(BigDecimal.valueOf(random.nextInt(100_000), 2));
+            methods[i].setPerKgRate(BigDecimal.valueOf(random.nextInt(10_000), 2));
+            methods[i].setPerItemRate(BigDecimal.valueOf(random.nextInt(1_000), 2));
+        }
+        RateComputationEngine.Shipment[] shipments = new RateComputationEngine.Shipment[SHIPMENTS];
+        for (int i = 0; i < SHIPMENTS; i++) {
+            shipments[i] = engine.prepare(BigDecimal.valueOf(1 + random.nextInt(50_000), 3),
+                    BigDecimal.valueOf(random.nextInt(1_000_000), 2), 1 + random.nextInt(5));
+        }
+
+        double fixedPoint = measure(methods, shipments, shipment -> method -> engine.compute(method, shipment));
+        double decimal = measure(methods, shipments,
+                shipment -> method -> RateComputationEngine.computeReference(method, shipment));
+
+        System.out.printf("fixed-point: %.1f ns/rate, decimal: %.1f ns/rate, speedup %.2fx%n",
+                fixedPoint, decimal, decimal / fixedPoint);
+    }
+
+    private static double measure(EShippingMethod[] methods, RateComputationEngine.Shipment[] shipments,
+                                  Function<RateComputationEngine.Shipment,
+                                          Function<EShippingMethod, RateComputationEngine.ComputedRate>> rater) {
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += run(methods, shipments, rater);
+        }
+        long started = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += run(methods, shipments, rater);
+        }
+        long elapsed = System.nanoTime() - started;
+        blackhole = sink;
+        return (double) elapsed / ((long) MEASURED_ROUNDS * METHODS * SHIPMENTS);
+    }
+
+    private static long run(EShippingMethod[] methods, RateComputationEngine.Shipment[] shipments,
+                            Function<RateComputationEngine.Shipment,
+                                    Function<EShippingMethod, RateComputationEngine.ComputedRate>> rater) {
+        long sink = 0;
+        for (RateComputationEngine.Shipment shipment : shipments) {
+            Function<EShippingMethod, RateComputationEngine.ComputedRate> rate = rater.apply(shipment);
+            for (EShippingMethod method : methods) {
+                sink += rate.apply(method).totalRate().unscaledValue().longValue();
+            }
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,107 @@
+package com.winnguyen1905.shipping.core.rating;
+
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+import com.winnguyen1905.shipping.util.ShippingValidationUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Property test: the fixed-point engine must agree, value and scale, with the decimal
+ * reference and with the arithmetic the rate service used before the engine existed
+ */
+class RateComputationEngineTest {
+
+    private static final int SAMPLES = 50_000;
+
+    private final RateComputationEngine engine = new RateComputationEngine(new SimpleMeterRegistry(), 0.0);
+
+    @Test
+    void fixedPointMatchesDecimalReferenceForRandomInputs() {
+        Random random = new Random(20240501L);
+        for (int i = 0; i < SAMPLES; i++) {
+            EShippingMethod method = method(i % 64, random);
+            BigDecimal weight = decimal(random, 4, 3);
+            BigDecimal value = decimal(random, 6, 2);
+            int packages = 1 + random.nextInt(20);
+
+            RateComputationEngine.Shipment shipment = engine.prepare(weight, value, packages);
+            RateComputationEngine.ComputedRate computed = engine.compute(method, shipment);
+
+            String inputs = "base=" + method.getBaseRate() + " perKg=" + method.getPerKgRate()
+                    + " perItem=" + method.getPerItemRate() + " weight=" + weight + " value=" + value
+                    + " packages=" + packages;
+            assertEquals(RateComputationEngine.computeReference(method, shipment), computed, inputs);
+            assertEquals(legacyTotal(method, weight, value, packages), computed.totalRate(), inputs);
+        }
+    }
+
+    @Test
+    void inputsOutsideFixedPointFallBackToTheReference() {
+        Random random = new Random(7L);
+        for (int i = 0; i < 1_000; i++) {
+            EShippingMethod method = method(i, random);
+            method.setPerKgRate(new BigDecimal("0.0000000001").add(decimal(random, 3, 2)));
+            BigDecimal weight = new BigDecimal("92233720368547758.07").add(decimal(random, 2, 2));
+            BigDecimal value = decimal(random, 6, 2);
+
+            RateComputationEngine.Shipment shipment = engine.prepare(weight, value, 3);
+            assertEquals(RateComputationEngine.computeReference(method, shipment), engine.compute(method, shipment));
+        }
+    }
+
+    @Test
+    void changedMethodRatesAreRecompiled() {
+        EShippingMethod method = new EShippingMethod();
+        method.setMethodId(1);
+        method.setBaseRate(new BigDecimal("5.00"));
+        method.setPerKgRate(new BigDecimal("1.25"));
+        method.setPerItemRate(BigDecimal.ZERO);
+        RateComputationEngine.Shipment shipment = engine.prepare(new BigDecimal("2.000"), new BigDecimal("50.00"), 1);
+        assertEquals(new BigDecimal("8.25"), engine.compute(method, shipment).totalRate());
+
+        method.setBaseRate(new BigDecimal("6.00"));
+        assertEquals(new BigDecimal("9.35"), engine.compute(method, shipment).totalRate());
+    }
+
+    /**
+     * Rate arithmetic as RateCalculationServiceImpl evaluated it before RateComputationEngine
+     */
+    private static BigDecimal legacyTotal(EShippingMethod method, BigDecimal weight, BigDecimal value, int packages) {
+        BigDecimal subtotal = method.getBaseRate()
+                .add(method.getPerKgRate().multiply(weight))
+                .add(method.getPerItemRate().multiply(BigDecimal.valueOf(packages)));
+        BigDecimal total = subtotal;
+        if (ShippingValidationUtils.requiresInsurance(value)) {
+            total = total.add(value.multiply(new BigDecimal("0.01")));
+        }
+        total = total.add(subtotal.multiply(new BigDecimal("0.10")));
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static EShippingMethod method(int methodId, Random random) {
+        EShippingMethod method = new EShippingMethod();
+        method.setMethodId(methodId);
+        method.setBaseRate(decimal(random, 3, random.nextInt(5)));
+        method.setPerKgRate(decimal(random, 2, random.nextInt(5)));
+        method.setPerItemRate(random.nextInt(4) == 0 ? BigDecimal.ZERO : decimal(random, 2, random.nextInt(3)));
+        return method;
+    }
+
+    /**
+     * Random non-negative decimal with up to {@code integerDigits} integer digits at the given scale
+     */
+    private static BigDecimal decimal(Random random, int integerDigits, int scale) {
+        long bound = 1;
+        for (int i = 0; i < integerDigits + scale; i++) {
+            bound *= 10;
+        }
+        return BigDecimal.valueOf(Math.floorMod(random.nextLong(), bound), scale);
+    }
+}
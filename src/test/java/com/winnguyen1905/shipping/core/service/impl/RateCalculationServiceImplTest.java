@@ -0,0 +1,159 @@
+package com.winnguyen1905.shipping.core.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.winnguyen1905.shipping.common.enums.RateErrorCode;
+import com.winnguyen1905.shipping.common.enums.ServiceType;
+import com.winnguyen1905.shipping.core.model.request.CalculateRateRequest;
+import com.winnguyen1905.shipping.core.model.response.BulkRateCalculationResponse;
+import com.winnguyen1905.shipping.core.model.response.RateCalculationResponse;
+import com.winnguyen1905.shipping.core.rating.BulkRatingEngine;
+import com.winnguyen1905.shipping.core.rating.RateComparisonEngine;
+import com.winnguyen1905.shipping.core.rating.RateComputationEngine;
+import com.winnguyen1905.shipping.core.rating.ShippingMethodCatalog;
+import com.winnguyen1905.shipping.core.writebehind.RateCalculationWriteBehind;
+import com.winnguyen1905.shipping.core.zone.ZoneIndex;
+import com.winnguyen1905.shipping.persistance.entity.EShippingCarrier;
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+import com.winnguyen1905.shipping.persistance.entity.EShippingRateCalculation;
+import com.winnguyen1905.shipping.persistance.entity.EShippingZone;
+import com.winnguyen1905.shipping.persistance.repository.ShippingRateCalculationRepository;
+import com.winnguyen1905.shipping.secure.TAccountRequest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk rating of a chunk in which one method or one request fails
+ */
+class RateCalculationServiceImplTest {
+
+    private static final TAccountRequest ACCOUNT = TAccountRequest.builder().username("test").build();
+
+    private final ZoneIndex zoneIndex = mock(ZoneIndex.class);
+    private final ShippingMethodCatalog catalog = mock(ShippingMethodCatalog.class);
+    private final RateComputationEngine computationEngine = mock(RateComputationEngine.class);
+    private final RateCalculationWriteBehind writeBehind = mock(RateCalculationWriteBehind.class);
+    private final BulkRatingEngine bulkRatingEngine = new BulkRatingEngine(1, 100, 4);
+
+    private final EShippingZone zone = EShippingZone.builder().zoneId(1).zoneName("West").zoneCode("W").build();
+    private final EShippingCarrier carrier = EShippingCarrier.builder().carrierId(1).carrierName("UPS")
+            .carrierCode("UPS").build();
+    private final EShippingMethod ground = method(1, "Ground");
+    private final EShippingMethod express = method(2, "Express");
+
+    private RateCalculationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        when(zoneIndex.findApplicableZones(any(), any(), any())).thenReturn(List.of(zone));
+        when(catalog.findActiveMethodsByZone(anyCollection())).thenReturn(Map.of(1, List.of(ground, express)));
+        when(computationEngine.compute(eq(ground), any()))
+                .thenReturn(new RateComputationEngine.ComputedRate(new BigDecimal("2.00"), new BigDecimal("12.00")));
+        // The calculation id is the order id, so a result paired with another request's calculation shows
+        when(writeBehind.submitAll(anyList(), anyList())).thenAnswer(invocation -> {
+            List<EShippingRateCalculation> calculations = invocation.getArgument(0);
+            List<?> rates = invocation.getArgument(1);
+            assertEquals(calculations.size(), rates.size(), "one rate list per calculation");
+            calculations.forEach(calculation -> calculation.setCalculationId(calculation.getOrderId()));
+            return calculations;
+        });
+
+        service = new RateCalculationServiceImpl(mock(ShippingRateCalculationRepository.class), writeBehind, catalog,
+                computationEngine, mock(RateComparisonEngine.class), bulkRatingEngine, zoneIndex, new ObjectMapper());
+    }
+
+    @AfterEach
+    void shutdown() {
+        bulkRatingEngine.shutdown();
+    }
+
+    @Test
+    void failedMethodIsListedLastAndTheRequestStillSucceeds() {
+        when(computationEngine.compute(eq(express), any())).thenThrow(new IllegalStateException("no tariff"));
+
+        BulkRateCalculationResponse response = service.bulkCalculateRates(
+                List.of(request(10L, "2"), request(11L, "3")), ACCOUNT);
+
+        assertEquals(2, response.getSucceeded());
+        for (int i = 0; i < 2; i++) {
+            RateCalculationResponse result = response.getResults().get(i).getResult();
+            assertEquals(10L + i, result.getCalculationId());
+            List<RateCalculationResponse.ShippingRate> rates = result.getAvailableRates();
+            assertEquals(List.of(1, 2), rates.stream().map(RateCalculationResponse.ShippingRate::getMethodId).toList());
+            assertFalse(rates.get(1).getIsAvailable());
+            assertNull(rates.get(1).getTotalRate());
+            assertEquals(1, result.getCheapestRate().getMethodId());
+            assertEquals(1, result.getFastestRate().getMethodId());
+        }
+    }
+
+    @Test
+    void failedRequestDoesNotShiftTheRestOfTheChunk() {
+        when(computationEngine.compute(eq(express), any()))
+                .thenReturn(new RateComputationEngine.ComputedRate(new BigDecimal("4.00"), new BigDecimal("20.00")));
+        when(computationEngine.prepare(eq(new BigDecimal("3")), any(), any()))
+                .thenThrow(new IllegalStateException("cannot prepare shipment"));
+
+        BulkRateCalculationResponse response = service.bulkCalculateRates(
+                List.of(request(10L, "2"), request(11L, "3"), request(12L, "4")), ACCOUNT);
+
+        assertEquals(2, response.getSucceeded());
+        BulkRateCalculationResponse.Item failed = response.getResults().get(1);
+        assertFalse(failed.getSuccess());
+        assertEquals(RateErrorCode.CALCULATION_FAILED, failed.getErrorCode());
+        assertTrue(response.getResults().get(0).getSuccess());
+        assertEquals(10L, response.getResults().get(0).getResult().getCalculationId());
+        assertTrue(response.getResults().get(2).getSuccess());
+        assertEquals(12L, response.getResults().get(2).getResult().getCalculationId());
+    }
+
+    private EShippingMethod method(int id, String name) {
+        return EShippingMethod.builder()
+                .methodId(id)
+                .carrier(carrier)
+                .zone(zone)
+                .methodName(name)
+                .methodCode(name.toUpperCase())
+                .serviceType(ServiceType.STANDARD)
+                .estimatedDaysMin(id)
+                .estimatedDaysMax(id + 1)
+                .build();
+    }
+
+    private static CalculateRateRequest request(Long orderId, String weight) {
+        CalculateRateRequest request = new CalculateRateRequest();
+        request.setOrderId(orderId);
+        request.setFromAddress(address("10001"));
+        request.setToAddress(address("94105"));
+        request.setTotalWeight(new BigDecimal(weight));
+        request.setTotalValue(new BigDecimal("100"));
+        request.setPackageCount(1);
+        return request;
+    }
+
+    private static CalculateRateRequest.AddressRequest address(String postalCode) {
+        CalculateRateRequest.AddressRequest address = new CalculateRateRequest.AddressRequest();
+        address.setCountry("US");
+        address.setState("CA");
+        address.setCity("City");
+        address.setAddressLine1("1 Main St");
+        address.setPostalCode(postalCode);
+        return address;
+    }
+}
@@ -0,0 +1,176 @@
+package com.winnguyen1905.shipping.core.tariff;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The shipped rate cards must price like the hard-coded VNPost and internal fallback rates
+ * they replaced, rounded to the whole dong
+ */
+class TariffCardTest {
+
+    private static final int SAMPLES = 20_000;
+    private static final List<String> DESTINATIONS = List.of(
+            "TH", "SG", "KH", "CN", "JP", "KR", "AU", "NZ", "US", "CA", "GB", "DE", "FR", "BR", "ZA", "IN");
+
+    private final TariffCard vnpost = load("vnpost");
+    private final TariffCard internal = load("internal");
+
+    @Test
+    void vnpostDomesticMatchesTheLegacyRates() {
+        Random random = new Random(20240601L);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal weight = weight(random);
+            boolean sameCity = random.nextBoolean();
+
+            Map<String, BigDecimal> quotes = costs(vnpost.rate(shipment("VN", weight, sameCity)));
+
+            String inputs = "weight=" + weight + " sameCity=" + sameCity;
+            assertEquals(sameCity ? List.of("VNP_EXPRESS", "VNP_STANDARD", "VNP_ECONOMY")
+                    : List.of("VNP_STANDARD", "VNP_ECONOMY"), List.copyOf(quotes.keySet()), inputs);
+            if (sameCity) {
+                assertEquals(legacyVnpost(weight, "25000", "8000", "1.0"), quotes.get("VNP_EXPRESS"), inputs);
+            }
+            assertEquals(legacyVnpost(weight, "15000", "5000", "1.0"), quotes.get("VNP_STANDARD"), inputs);
+            assertEquals(legacyVnpost(weight, "10000", "3000", "1.0"), quotes.get("VNP_ECONOMY"), inputs);
+        }
+    }
+
+    @Test
+    void vnpostInternationalMatchesTheLegacyRatesPerZone() {
+        Random random = new Random(20240602L);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal weight = weight(random);
+            String destination = DESTINATIONS.get(random.nextInt(DESTINATIONS.size()));
+            String zoneMultiplier = legacyZoneMultiplier(destination);
+
+            Map<String, BigDecimal> quotes = costs(vnpost.rate(shipment(destination, weight, false)));
+
+            String inputs = "weight=" + weight + " destination=" + destination;
+            assertEquals(List.of("VNP_EMS_INTL", "VNP_REG_INTL"), List.copyOf(quotes.keySet()), inputs);
+            assertEquals(legacyVnpost(weight, "200000", "50000", zoneMultiplier), quotes.get("VNP_EMS_INTL"), inputs);
+            assertEquals(legacyVnpost(weight, "80000", "20000", zoneMultiplier), quotes.get("VNP_REG_INTL"), inputs);
+        }
+    }
+
+    @Test
+    void internalFallbackMatchesTheLegacyRates() {
+        Random random = new Random(20240603L);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal weight = weight(random);
+            boolean domestic = random.nextBoolean();
+
+            List<TariffQuote> quotes = internal.rate(shipment(domestic ? "VN" : "US", weight, false));
+
+            String inputs = "weight=" + weight + " domestic=" + domestic;
+            BigDecimal standard = domestic
+                    ? new BigDecimal("50000").add(weight.multiply(new BigDecimal("10000")))
+                    : new BigDecimal("200000").add(weight.multiply(new BigDecimal("50000")));
+            assertEquals(2, quotes.size(), inputs);
+            assertEquals("Standard", quotes.get(0).serviceName(), inputs);
+            assertEquals(dong(standard), quotes.get(0).cost(), inputs);
+            assertEquals(domestic ? 3 : 7, quotes.get(0).deliveryDays(), inputs);
+            assertEquals("Express", quotes.get(1).serviceName(), inputs);
+            assertEquals(dong(standard.multiply(new BigDecimal("1.5"))), quotes.get(1).cost(), inputs);
+            assertEquals(domestic ? 1 : 3, quotes.get(1).deliveryDays(), inputs);
+        }
+    }
+
+    @Test
+    void explicitNullsAreRejectedAsInvalidCards() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (String pointer : List.of("/zones", "/zoneMultipliers", "/defaultZoneMultiplier", "/zones/ASEAN",
+                "/services", "/surcharges", "/services/0", "/services/0/scope", "/services/0/weightBreaks",
+                "/services/0/perKgAfter", "/services/0/multiplier", "/services/0/weightBreaks/0",
+                "/services/0/weightBreaks/0/kg", "/services/0/weightBreaks/0/price")) {
+            JsonNode card;
+            try (InputStream in = resource("vnpost")) {
+                card = objectMapper.readTree(in);
+            }
+            JsonPointer path = JsonPointer.compile(pointer);
+            JsonNode parent = card.at(path.head());
+            if (parent instanceof ArrayNode array) {
+                array.set(path.last().getMatchingIndex(), NullNode.getInstance());
+            } else {
+                ((ObjectNode) parent).putNull(path.last().getMatchingProperty());
+            }
+            TariffCardDefinition definition = objectMapper.treeToValue(card, TariffCardDefinition.class);
+
+            IllegalArgumentException failure = assertThrows(IllegalArgumentException.class,
+                    () -> TariffCard.compile(definition), pointer);
+            assertTrue(failure.getMessage().startsWith("Rate card has no"), pointer + ": " + failure.getMessage());
+        }
+    }
+
+    private static TariffShipment shipment(String destination, BigDecimal weight, boolean sameCity) {
+        return new TariffShipment("VN", destination, weight, sameCity, false, false, false);
+    }
+
+    private static Map<String, BigDecimal> costs(List<TariffQuote> quotes) {
+        return quotes.stream().collect(Collectors.toMap(TariffQuote::serviceCode, TariffQuote::cost,
+                (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Weights to the gram, which is what the cards bill on
+     */
+    private static BigDecimal weight(Random random) {
+        return BigDecimal.valueOf(1 + random.nextInt(50_000), 3);
+    }
+
+    /**
+     * The base rate covers the first kg, then per kg, times the zone multiplier
+     */
+    private static BigDecimal legacyVnpost(BigDecimal weight, String base, String perKg, String zoneMultiplier) {
+        BigDecimal additionalWeight = weight.subtract(BigDecimal.ONE).max(BigDecimal.ZERO);
+        return dong(new BigDecimal(base).add(additionalWeight.multiply(new BigDecimal(perKg)))
+                .multiply(new BigDecimal(zoneMultiplier)));
+    }
+
+    private static String legacyZoneMultiplier(String country) {
+        return switch (country) {
+            case "TH", "SG", "MY", "ID", "PH", "KH", "LA" -> "1.0";
+            case "CN", "TW", "HK", "JP", "KR" -> "1.2";
+            case "AU", "NZ" -> "1.5";
+            case "US", "CA" -> "1.8";
+            case "GB", "DE", "FR" -> "2.0";
+            default -> "2.5";
+        };
+    }
+
+    private static BigDecimal dong(BigDecimal amount) {
+        return amount.setScale(0, RoundingMode.HALF_UP);
+    }
+
+    private static TariffCard load(String carrier) {
+        try (InputStream in = resource(carrier)) {
+            return TariffCard.compile(new ObjectMapper().readValue(in, TariffCardDefinition.class));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static InputStream resource(String carrier) {
+        return TariffCardTest.class.getResourceAsStream("/tariffs/" + carrier + ".json");
+    }
+}
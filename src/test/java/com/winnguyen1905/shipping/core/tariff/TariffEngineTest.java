@@ -0,0 +1,134 @@
+package com.winnguyen1905.shipping.core.tariff;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TariffEngineTest {
+
+    private static final TariffShipment SHIPMENT = new TariffShipment("VN", "VN", new BigDecimal("2"), false,
+            false, false, false);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void changedCardsAreSwappedInAndUnchangedOnesAreNotReloaded() throws IOException {
+        write("vnpost", card("VNPost", "1", "15000"));
+        TariffEngine engine = engine();
+        engine.reload();
+        assertEquals(1.0, reloads("success"), 0.0, "unchanged files are not reloaded");
+
+        write("vnpost", card("VNPost", "2", "16000"));
+        engine.reload();
+
+        assertEquals(Map.of("VNPost", "2"), engine.versions());
+        assertEquals(new BigDecimal("21000"), engine.rate("vnpost", SHIPMENT).get(0).cost());
+        assertEquals(2.0, reloads("success"), 0.0);
+    }
+
+    @Test
+    void explicitNullFieldKeepsTheCurrentCards() throws IOException {
+        write("vnpost", card("VNPost", "1", "15000"));
+        TariffEngine engine = engine();
+
+        write("vnpost", card("VNPost", "2", "null"));
+        engine.reload();
+
+        assertEquals(Map.of("VNPost", "1"), engine.versions());
+        assertEquals(1.0, reloads("failure"), 0.0);
+    }
+
+    @Test
+    void invalidCardsAtStartupFailTheEngine() throws IOException {
+        write("vnpost", card("VNPost", "1", "null"));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, this::engine);
+
+        assertTrue(error.getMessage().contains("vnpost.json"), error.getMessage());
+        assertEquals(1.0, reloads("failure"), 0.0);
+    }
+
+    @Test
+    void noCardsAtStartupFailTheEngine() {
+        assertThrows(IllegalStateException.class, this::engine);
+    }
+
+    @Test
+    void emptySetIsRejected() throws IOException {
+        write("vnpost", card("VNPost", "1", "15000"));
+        TariffEngine engine = engine();
+
+        Files.delete(directory.resolve("vnpost.json"));
+        engine.reload();
+
+        assertEquals(Map.of("VNPost", "1"), engine.versions());
+        assertEquals(1.0, reloads("failure"), 0.0);
+    }
+
+    @Test
+    void setMissingALoadedCarrierIsRejected() throws IOException {
+        write("internal", card("Internal", "1", "50000"));
+        write("vnpost", card("VNPost", "1", "15000"));
+        TariffEngine engine = engine();
+
+        Files.delete(directory.resolve("internal.json"));
+        write("vnpost", card("VNPost", "2", "16000"));
+        engine.reload();
+
+        assertEquals(Map.of("Internal", "1", "VNPost", "1"), engine.versions());
+        assertEquals(1.0, reloads("failure"), 0.0);
+
+        write("internal", card("Internal", "1", "50000"));
+        engine.reload();
+        assertEquals(Map.of("Internal", "1", "VNPost", "2"), engine.versions());
+    }
+
+    private TariffEngine engine() {
+        return new TariffEngine(new PathMatchingResourcePatternResolver(), new ObjectMapper(), meterRegistry,
+                directory.toUri().toString());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(directory.resolve(name + ".json"), content);
+    }
+
+    private double reloads(String outcome) {
+        return meterRegistry.get("shipping.tariffs.reloads").tag("outcome", outcome).counter().count();
+    }
+
+    private static String card(String carrier, String version, String price) {
+        return """
+                {
+                  "carrier": "%s",
+                  "version": "%s",
+                  "currency": "VND",
+                  "services": [
+                    {
+                      "code": "STANDARD",
+                      "name": "Standard",
+                      "scope": "DOMESTIC",
+                      "deliveryDays": 3,
+                      "weightBreaks": [{"kg": 1, "price": %s}],
+                      "perKgAfter": 5000
+                    }
+                  ]
+                }
+                """.formatted(carrier, version, price);
+    }
+}
@@ -0,0 +1,145 @@
+package com.winnguyen1905.shipping.core.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.winnguyen1905.shipping.core.model.request.ShippingQuoteRequest;
+import com.winnguyen1905.shipping.core.model.response.ShippingQuoteResponse;
+import com.winnguyen1905.shipping.persistance.entity.EShipment;
+import com.winnguyen1905.shipping.persistance.entity.EShipmentItem;
+import com.winnguyen1905.shipping.persistance.entity.EShipmentPackage;
+import com.winnguyen1905.shipping.persistance.entity.EShipmentTrackingEvent;
+import com.winnguyen1905.shipping.persistance.entity.EShippingCarrier;
+import com.winnguyen1905.shipping.persistance.entity.EShippingMethod;
+import com.winnguyen1905.shipping.persistance.entity.EShippingQuote;
+import com.winnguyen1905.shipping.persistance.entity.EShippingRateCalculation;
+import com.winnguyen1905.shipping.persistance.entity.EShippingWebhook;
+import com.winnguyen1905.shipping.persistance.entity.EShippingZone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Writes audit rows into the shipping_quotes table Hibernate generates from the entities,
+ * as it does under ddl-auto, on an in-memory H2 database
+ */
+class ShippingQuoteWriteBehindTest {
+
+    private static final String URL = "jdbc:h2:mem:shipping_quotes;DB_CLOSE_DELAY=-1";
+
+    private SessionFactory sessionFactory;
+    private JdbcTemplate jdbcTemplate;
+    private ShippingQuoteWriteBehind writeBehind;
+
+    @BeforeEach
+    void createSchema() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.connection.url", URL)
+                .applySetting("hibernate.connection.username", "sa")
+                .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClasses(EShippingQuote.class, EShipment.class, EShipmentItem.class,
+                        EShipmentPackage.class, EShipmentTrackingEvent.class, EShippingCarrier.class,
+                        EShippingMethod.class, EShippingZone.class, EShippingRateCalculation.class,
+                        EShippingWebhook.class)
+                .buildMetadata()
+                .buildSessionFactory();
+
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        writeBehind = new ShippingQuoteWriteBehind(jdbcTemplate, new ObjectMapper().findAndRegisterModules(),
+                new SimpleMeterRegistry(), true, true, 100, 10, 1000, 0, true, 1);
+    }
+
+    @AfterEach
+    void dropSchema() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void writesComputedQuoteAndItsCacheHits() {
+        writeBehind.insertBatch(List.of(
+                pending(quote("Q-1", null, false), "Q-1"),
+                pending(quote(null, "Q-1", true), "Q-1"),
+                pending(quote(null, "Q-1", true), "Q-1")));
+
+        assertEquals(3, count("SELECT COUNT(*) FROM shipping_quotes"));
+        assertEquals(1, count("SELECT COUNT(*) FROM shipping_quotes WHERE external_quote_id = 'Q-1'"));
+        assertEquals(2, count("SELECT COUNT(*) FROM shipping_quotes WHERE cache_hit AND source_quote_id = 'Q-1'"));
+
+        Map<String, Object> computed = jdbcTemplate.queryForMap(
+                "SELECT cache_hit, response_data, providers_queried FROM shipping_quotes "
+                        + "WHERE external_quote_id = 'Q-1'");
+        assertEquals(false, computed.get("CACHE_HIT"));
+        assertNotNull(computed.get("RESPONSE_DATA"));
+        assertNotNull(computed.get("PROVIDERS_QUERIED"));
+
+        // A cache hit keeps only its request; the response is on the computed quote's row
+        Map<String, Object> hit = jdbcTemplate.queryForList(
+                "SELECT request_data, response_data, providers_queried FROM shipping_quotes WHERE cache_hit").get(0);
+        assertNotNull(hit.get("REQUEST_DATA"));
+        assertNull(hit.get("RESPONSE_DATA"));
+        assertNull(hit.get("PROVIDERS_QUERIED"));
+    }
+
+    @Test
+    void writesQuotesWithoutCustomer() {
+        writeBehind.insertBatch(List.of(pending(quote("Q-2", null, false), "Q-2")));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM shipping_quotes WHERE customer_id IS NULL"));
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private static EShippingQuote quote(String externalQuoteId, String sourceQuoteId, boolean cacheHit) {
+        return EShippingQuote.builder()
+                .externalQuoteId(externalQuoteId)
+                .sourceQuoteId(sourceQuoteId)
+                .cacheHit(cacheHit)
+                .requestType("SINGLE_VENDOR")
+                .originCountry("VN")
+                .destinationCountry("VN")
+                .totalWeight(new BigDecimal("1.25"))
+                .totalValue(new BigDecimal("250000"))
+                .currency("VND")
+                .bestOptionProvider("VNPOST")
+                .bestOptionCost(new BigDecimal("32000"))
+                .totalOptionsCount(1)
+                .calculationMethod("EXTERNAL_API")
+                .processingTimeMs(12L)
+                .expiresAt(Instant.now().plusSeconds(600))
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static ShippingQuoteWriteBehind.PendingQuote pending(EShippingQuote quote, String quoteId) {
+        ShippingQuoteResponse response = ShippingQuoteResponse.builder()
+                .quoteId(quoteId)
+                .quotedAt(Instant.now())
+                .shippingOptions(List.of())
+                .metadata(ShippingQuoteResponse.QuoteMetadata.builder()
+                        .availableProviders(List.of("VNPOST"))
+                        .unavailableProviders(List.of("EASYPOST"))
+                        .providerErrors(List.of())
+                        .build())
+                .build();
+        return new ShippingQuoteWriteBehind.PendingQuote(quote, ShippingQuoteRequest.builder().build(), response);
+    }
+}
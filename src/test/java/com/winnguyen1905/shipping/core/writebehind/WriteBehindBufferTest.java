@@ -0,0 +1,227 @@
+package com.winnguyen1905.shipping.core.writebehind;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindBufferTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    private WriteBehindBuffer<Integer> buffer;
+
+    @AfterEach
+    void stopBuffer() {
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    void flushesFullBatchesWithoutWaitingForTheInterval() {
+        buffer = new WriteBehindBuffer<>("test", settings(100, 10, Duration.ofSeconds(1)),
+                batch -> batches.add(List.copyOf(batch)), meterRegistry);
+        buffer.start();
+
+        for (int i = 0; i < 25; i++) {
+            buffer.submit(i);
+        }
+
+        awaitTrue(() -> written() >= 20);
+        assertEquals(List.of(10, 10), batches.stream().map(List::size).toList());
+    }
+
+    @Test
+    void flushesPartialBatchAfterTheInterval() {
+        buffer = new WriteBehindBuffer<>("test", settings(100, 50, Duration.ofMillis(50)),
+                batch -> batches.add(List.copyOf(batch)), meterRegistry);
+        buffer.start();
+
+        buffer.submit(1);
+        buffer.submit(2);
+        buffer.submit(3);
+
+        awaitTrue(() -> written() == 3);
+        assertEquals(List.of(List.of(1, 2, 3)), batches);
+    }
+
+    @Test
+    void stopDrainsQueuedRecords() {
+        CountDownLatch release = new CountDownLatch(1);
+        buffer = new WriteBehindBuffer<>("test", settings(1_000, 10, Duration.ofMillis(10)), batch -> {
+            awaitLatch(release);
+            batches.add(List.copyOf(batch));
+        }, meterRegistry);
+        buffer.start();
+
+        for (int i = 0; i < 95; i++) {
+            buffer.submit(i);
+        }
+        release.countDown();
+        buffer.stop();
+
+        assertEquals(95, written());
+        assertEquals(0, buffer.size());
+        assertEquals(95.0, recordCount("written"), 0.0);
+    }
+
+    @Test
+    void recordsSubmittedAfterStopAreWrittenInline() {
+        buffer = new WriteBehindBuffer<>("test", settings(100, 10, Duration.ofMillis(10)),
+                batch -> batches.add(List.copyOf(batch)), meterRegistry);
+        buffer.start();
+        buffer.stop();
+
+        buffer.submit(7);
+
+        assertEquals(List.of(List.of(7)), batches);
+        assertEquals(1.0, recordCount("inline"), 0.0);
+    }
+
+    @Test
+    void recordsSubmittedWhileStoppingAreWrittenExactlyOnce() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            batches.clear();
+            buffer = new WriteBehindBuffer<>("test", settings(1_000, 10, Duration.ofMillis(1)),
+                    batch -> batches.add(List.copyOf(batch)), meterRegistry);
+            buffer.start();
+            int base = round * 1_000;
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                int first = base + p * 100;
+                Thread producer = new Thread(() -> {
+                    for (int i = first; i < first + 100; i++) {
+                        buffer.submit(i);
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            buffer.stop();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            List<Integer> records;
+            synchronized (batches) {
+                records = batches.stream().flatMap(List::stream).sorted().toList();
+            }
+            assertEquals(400, records.size(), "round " + round);
+            assertEquals(400, records.stream().distinct().count(), "round " + round);
+            assertEquals(0, buffer.size(), "round " + round);
+        }
+    }
+
+    @Test
+    void fullQueueWritesInlineAfterTheOfferTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        buffer = new WriteBehindBuffer<>("test", settings(1, 1, Duration.ofMillis(10)), batch -> {
+            if (!Thread.currentThread().getName().startsWith("write-behind-")) {
+                batches.add(List.copyOf(batch));
+                return;
+            }
+            awaitLatch(release);
+            batches.add(List.copyOf(batch));
+        }, meterRegistry);
+        buffer.start();
+
+        buffer.submit(1); // Taken by the flusher, which blocks
+        awaitTrue(() -> buffer.size() == 0);
+        buffer.submit(2); // Fills the queue
+        buffer.submit(3); // Queue full: written inline
+
+        assertEquals(List.of(List.of(3)), batches);
+        assertEquals(1.0, recordCount("inline"), 0.0);
+        release.countDown();
+    }
+
+    @Test
+    void fullQueueDropsRecordsWhenConfiguredTo() {
+        CountDownLatch release = new CountDownLatch(1);
+        buffer = new WriteBehindBuffer<>("test", new WriteBehindBuffer.Settings(true, 1, 1, Duration.ofMillis(10),
+                Duration.ofMillis(20), true, Duration.ofSeconds(5)), batch -> {
+            awaitLatch(release);
+            batches.add(List.copyOf(batch));
+        }, meterRegistry);
+        buffer.start();
+
+        buffer.submit(1); // Taken by the flusher, which blocks
+        awaitTrue(() -> buffer.size() == 0);
+        buffer.submit(2); // Fills the queue
+        buffer.submit(3); // Queue full: dropped
+        buffer.submit(4); // Queue full: dropped
+
+        assertEquals(2.0, recordCount("dropped"), 0.0);
+        assertEquals(0.0, recordCount("inline"), 0.0);
+        release.countDown();
+        awaitTrue(() -> written() == 2);
+        assertEquals(List.of(List.of(1), List.of(2)), batches);
+    }
+
+    @Test
+    void failedBatchIsRetriedRecordByRecord() {
+        buffer = new WriteBehindBuffer<>("test", settings(100, 5, Duration.ofSeconds(1)), batch -> {
+            if (batch.contains(3)) {
+                throw new IllegalStateException("bad row");
+            }
+            batches.add(List.copyOf(batch));
+        }, meterRegistry);
+        buffer.start();
+
+        for (int i = 1; i <= 5; i++) {
+            buffer.submit(i);
+        }
+
+        awaitTrue(() -> written() == 4);
+        assertEquals(List.of(List.of(1), List.of(2), List.of(4), List.of(5)), batches);
+        assertEquals(1.0, recordCount("failed"), 0.0);
+        assertEquals(4.0, recordCount("written"), 0.0);
+    }
+
+    private static WriteBehindBuffer.Settings settings(int capacity, int batchSize, Duration flushInterval) {
+        return new WriteBehindBuffer.Settings(true, capacity, batchSize, flushInterval,
+                Duration.ofMillis(20), false, Duration.ofSeconds(5));
+    }
+
+    private int written() {
+        synchronized (batches) {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+    }
+
+    private double recordCount(String outcome) {
+        return meterRegistry.get("shipping.writebehind.records").tag("outcome", outcome).counter().count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.winnguyen1905.shipping.core.zone;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostalRadixTreeTest {
+
+    @Test
+    void rangeMatchesExactlyTheCodesInsideIt() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of("10250-10379"), 0);
+
+        for (int code = 10000; code <= 10999; code++) {
+            boolean inside = code >= 10250 && code <= 10379;
+            assertEquals(inside, matches(tree, String.valueOf(code)).containsKey(0), "postal code " + code);
+        }
+    }
+
+    @Test
+    void rangeOnlyMatchesCodesWithTheSameDigitCount() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of("10000-19999"), 0);
+
+        assertTrue(matches(tree, "12345").containsKey(0));
+        assertFalse(matches(tree, "1").containsKey(0));
+        assertFalse(matches(tree, "123").containsKey(0));
+        assertFalse(matches(tree, "123456").containsKey(0));
+    }
+
+    @Test
+    void rangeSpanningDigitCountsCoversEachWidth() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of("95-105"), 0);
+
+        for (int code = 0; code <= 1200; code++) {
+            boolean inside = code >= 95 && code <= 105;
+            assertEquals(inside, matches(tree, String.valueOf(code)).containsKey(0), "postal code " + code);
+        }
+    }
+
+    @Test
+    void alignedRangeCompilesToFewPrefixes() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of("10000-19999"), 0);
+        assertEquals(1, tree.prefixCount());
+
+        PostalRadixTree ragged = new PostalRadixTree();
+        ragged.insert(List.of("10250-10379"), 0);
+        // 1025x..1029x, 1030x..1036x, 1037x
+        assertEquals(5 + 7 + 1, ragged.prefixCount());
+    }
+
+    @Test
+    void plainAndWildcardPatternsArePrefixes() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of("SW1"), 0);
+        tree.insert(List.of("sw1a*"), 1);
+
+        assertEquals(Map.of(0, 4, 1, 5), matches(tree, "SW1A1AA"));
+        assertEquals(Map.of(0, 4), matches(tree, "SW1B"));
+        assertTrue(matches(tree, "SW2").isEmpty());
+    }
+
+    @Test
+    void longerPrefixesAreMoreSpecific() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of(), 0);
+        tree.insert(List.of("7"), 1);
+        tree.insert(List.of("700"), 2);
+        tree.insert(List.of("7001"), 3);
+
+        assertEquals(Map.of(0, 0, 1, 2, 2, 4, 3, 5), matches(tree, "70012"));
+        assertEquals(Map.of(0, 0, 1, 2), matches(tree, "71000"));
+    }
+
+    @Test
+    void splittingEdgesKeepsExistingEntries() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of("12345"), 0);
+        tree.insert(List.of("123"), 1);
+        tree.insert(List.of("12399"), 2);
+
+        assertEquals(Map.of(0, 6, 1, 4), matches(tree, "12345"));
+        assertEquals(Map.of(1, 4, 2, 6), matches(tree, "12399"));
+        assertEquals(Map.of(1, 4), matches(tree, "12300"));
+    }
+
+    @Test
+    void unknownPostalCodeMatchesEveryZone() {
+        PostalRadixTree tree = new PostalRadixTree();
+        tree.insert(List.of("100"), 0);
+        tree.insert(List.of("200-299"), 1);
+
+        assertEquals(Map.of(0, 0, 1, 0), matches(tree, null));
+    }
+
+    @Test
+    void normalizeRemovesWhitespaceAndUpperCases() {
+        assertEquals("SW1A1AA", PostalRadixTree.normalize(" sw1a 1aa "));
+        assertEquals("10001", PostalRadixTree.normalize("10001"));
+    }
+
+    private static Map<Integer, Integer> matches(PostalRadixTree tree, String postalCode) {
+        Map<Integer, Integer> matches = new TreeMap<>();
+        tree.match(postalCode == null ? null : PostalRadixTree.normalize(postalCode),
+                (ordinal, specificity) -> matches.merge(ordinal, specificity, Math::max));
+        return matches;
+    }
+}